@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.annotation;
+
+/**
+ * Specifies how binary data ({@code byte[]} or {@code okio.ByteString}) is encoded in the text
+ * content of a {@link PropertyElement}:
+ *
+ * <pre>
+ *   {@code
+ * @PropertyElement(binaryEncoding = BinaryEncoding.BASE64)
+ * byte[] thumbnail;
+ *   }
+ * </pre>
+ */
+public enum BinaryEncoding {
+
+  /**
+   * No binary data. The text content is read as usual
+   */
+  NONE,
+
+  /**
+   * Base64 encoded binary data. While reading both, the standard and the url-safe alphabet, are
+   * supported. Writing uses the standard alphabet.
+   */
+  BASE64,
+
+  /**
+   * Hexadecimal encoded binary data. While reading both, upper and lower case are supported.
+   * Writing uses lower case.
+   */
+  HEX
+}
@@ -104,4 +104,13 @@ public @interface PropertyElement {
    * @return true if CDATA, otherwise false
    */
   boolean writeAsCData() default false;
+
+  /**
+   * Specify how binary data is encoded in the text content. Only {@code byte[]} and {@code
+   * okio.ByteString} fields can be read and written as binary data. The text content is decoded
+   * incrementally while reading, so that large binary data doesn't have to be buffered as String.
+   *
+   * @return The encoding of the binary data. Default is {@link BinaryEncoding#NONE}
+   */
+  BinaryEncoding binaryEncoding() default BinaryEncoding.NONE;
 }
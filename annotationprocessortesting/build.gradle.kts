@@ -9,3 +9,34 @@ dependencies {
 
     testImplementation(Deps.junit)
 }
+
+tasks.named<JavaCompile>("compileJava") {
+    // Generates an index of all type adapters, see AdapterIndexTest
+    options.compilerArgs.add("-Atikxml.adapterIndex=com.tickaroo.tikxml.annotationprocessing.AnnotationProcessingTestAdapterIndex")
+}
+
+// Compiles the same model classes and tests again, but with type adapters generated with
+// -Atikxml.switchDispatch=true, and runs the tests as part of "check"
+val switchDispatch by sourceSets.creating {
+    java.srcDirs(sourceSets.main.get().java.srcDirs, sourceSets.test.get().java.srcDirs)
+    resources.srcDirs(sourceSets.main.get().resources.srcDirs, sourceSets.test.get().resources.srcDirs)
+}
+
+configurations[switchDispatch.implementationConfigurationName].extendsFrom(configurations.testImplementation.get())
+configurations[switchDispatch.annotationProcessorConfigurationName].extendsFrom(configurations.annotationProcessor.get())
+
+tasks.named<JavaCompile>(switchDispatch.compileJavaTaskName) {
+    options.compilerArgs.add("-Atikxml.adapterIndex=com.tickaroo.tikxml.annotationprocessing.AnnotationProcessingTestAdapterIndex")
+    options.compilerArgs.add("-Atikxml.switchDispatch=true")
+}
+
+val switchDispatchTest by tasks.registering(Test::class) {
+    description = "Runs the tests with type adapters generated with -Atikxml.switchDispatch=true"
+    group = "verification"
+    testClassesDirs = switchDispatch.output.classesDirs
+    classpath = switchDispatch.runtimeClasspath
+}
+
+tasks.named("check") {
+    dependsOn(switchDispatchTest)
+}
@@ -0,0 +1,29 @@
+package com.tickaroo.tikxml.annotationprocessing.bytestring;
+
+import com.tickaroo.tikxml.annotation.BinaryEncoding;
+import com.tickaroo.tikxml.annotation.PropertyElement;
+import com.tickaroo.tikxml.annotation.Xml;
+import java.util.Arrays;
+import java.util.Objects;
+import okio.ByteString;
+
+@Xml
+public class Attachment {
+
+  @PropertyElement(binaryEncoding = BinaryEncoding.BASE64) byte[] data;
+
+  @PropertyElement(binaryEncoding = BinaryEncoding.HEX) ByteString checksum;
+
+  @Override public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Attachment)) return false;
+
+    Attachment that = (Attachment) o;
+
+    return Arrays.equals(data, that.data) && Objects.equals(checksum, that.checksum);
+  }
+
+  @Override public int hashCode() {
+    return 31 * Arrays.hashCode(data) + (checksum != null ? checksum.hashCode() : 0);
+  }
+}
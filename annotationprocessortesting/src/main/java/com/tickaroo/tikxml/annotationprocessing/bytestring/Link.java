@@ -0,0 +1,28 @@
+package com.tickaroo.tikxml.annotationprocessing.bytestring;
+
+import com.tickaroo.tikxml.annotation.Attribute;
+import com.tickaroo.tikxml.annotation.Xml;
+import com.tickaroo.tikxml.annotation.TextContent;
+import java.util.Objects;
+import okio.ByteString;
+
+@Xml
+public class Link {
+
+  @Attribute ByteString id;
+
+  @TextContent ByteString url;
+
+  @Override public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Link)) return false;
+
+    Link link = (Link) o;
+
+    return Objects.equals(id, link.id) && Objects.equals(url, link.url);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(id, url);
+  }
+}
@@ -0,0 +1,33 @@
+package com.tickaroo.tikxml.annotationprocessing.bytestring;
+
+import com.tickaroo.tikxml.annotation.Attribute;
+import com.tickaroo.tikxml.annotation.Element;
+import com.tickaroo.tikxml.annotation.PropertyElement;
+import com.tickaroo.tikxml.annotation.Xml;
+import java.util.Objects;
+import okio.ByteString;
+
+@Xml
+public class Product {
+
+  @Attribute ByteString sku;
+
+  @PropertyElement ByteString name;
+
+  @Element Link link;
+
+  @Override public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Product)) return false;
+
+    Product product = (Product) o;
+
+    return Objects.equals(sku, product.sku)
+        && Objects.equals(name, product.name)
+        && Objects.equals(link, product.link);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(sku, name, link);
+  }
+}
@@ -0,0 +1,14 @@
+package com.tickaroo.tikxml.annotationprocessing.largetext;
+
+import com.tickaroo.tikxml.LargeText;
+import com.tickaroo.tikxml.annotation.PropertyElement;
+import com.tickaroo.tikxml.annotation.TextContent;
+import com.tickaroo.tikxml.annotation.Xml;
+
+@Xml
+public class Document {
+
+  @PropertyElement LargeText title;
+
+  @TextContent LargeText content;
+}
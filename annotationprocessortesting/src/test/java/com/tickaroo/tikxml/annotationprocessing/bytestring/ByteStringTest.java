@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.annotationprocessing.bytestring;
+
+import com.tickaroo.tikxml.TestUtils;
+import com.tickaroo.tikxml.TikXml;
+import java.io.IOException;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.*;
+
+public class ByteStringTest {
+
+  @Test
+  public void readAndWrite() throws IOException {
+    TikXml xml = new TikXml.Builder().exceptionOnUnreadXml(true).build();
+
+    String xmlStr =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?><product sku=\"A-123\"><name>Käse</name><link id=\"l1\">https://example.com/a?b=c</link></product>";
+
+    Product product = xml.read(TestUtils.sourceFrom(xmlStr), Product.class);
+    Assert.assertEquals(ByteString.encodeUtf8("A-123"), product.sku);
+    Assert.assertEquals(ByteString.encodeUtf8("Käse"), product.name);
+    Assert.assertEquals(ByteString.encodeUtf8("l1"), product.link.id);
+    Assert.assertEquals(ByteString.encodeUtf8("https://example.com/a?b=c"), product.link.url);
+
+    // Writing xml test
+    Buffer buffer = new Buffer();
+    xml.write(buffer, product);
+    Assert.assertEquals(xmlStr, buffer.readUtf8());
+
+    Product product2 = xml.read(TestUtils.sourceFrom(xmlStr), Product.class);
+    Assert.assertEquals(product, product2);
+  }
+
+  @Test
+  public void readAndWriteBinary() throws IOException {
+    TikXml xml = new TikXml.Builder().exceptionOnUnreadXml(true).build();
+
+    String xmlStr =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?><attachment><data>\n  SGVsbG8g\n  V29ybGQ=\n</data><checksum>0A0B0C</checksum></attachment>";
+
+    Attachment attachment = xml.read(TestUtils.sourceFrom(xmlStr), Attachment.class);
+    Assert.assertEquals("Hello World", new String(attachment.data, "UTF-8"));
+    Assert.assertEquals(ByteString.of((byte) 10, (byte) 11, (byte) 12), attachment.checksum);
+
+    // Writing xml test
+    Buffer buffer = new Buffer();
+    xml.write(buffer, attachment);
+    String writtenXml = buffer.readUtf8();
+    Assert.assertEquals(
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?><attachment><data>SGVsbG8gV29ybGQ=</data><checksum>0a0b0c</checksum></attachment>",
+        writtenXml);
+
+    Attachment attachment2 = xml.read(TestUtils.sourceFrom(writtenXml), Attachment.class);
+    Assert.assertEquals(attachment, attachment2);
+  }
+}
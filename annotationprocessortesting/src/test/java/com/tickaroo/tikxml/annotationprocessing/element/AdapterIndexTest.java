@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.tickaroo.tikxml.annotationprocessing.element;
+
+import com.tickaroo.tikxml.TestUtils;
+import com.tickaroo.tikxml.TikXml;
+import com.tickaroo.tikxml.annotationprocessing.AnnotationProcessingTestAdapterIndex;
+import com.tickaroo.tikxml.annotationprocessing.element.polymorphism.Writer;
+import com.tickaroo.tikxml.annotationprocessing.element.polymorphism.Writer$$TypeAdapterGeneric;
+import com.tickaroo.tikxml.typeadapter.TypeAdapterIndex;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdapterIndexTest {
+
+  @Test
+  public void indexContainsGeneratedAdapters() {
+    TypeAdapterIndex index = new AnnotationProcessingTestAdapterIndex();
+
+    Assert.assertTrue(index.newTypeAdapter(Server.class, false) instanceof Server$$TypeAdapter);
+    Assert.assertTrue(index.newTypeAdapter(Writer.class, true) instanceof Writer$$TypeAdapterGeneric);
+    // Generated by the AutoValue extension
+    Assert.assertTrue(index.newTypeAdapter(
+        com.tickaroo.tikxml.annotationprocessing.element.autovalue.Server.class, false)
+        instanceof com.tickaroo.tikxml.annotationprocessing.element.autovalue.Server$$TypeAdapter);
+
+    Assert.assertNull(index.newTypeAdapter(Writer.class, false));
+    Assert.assertNull(index.newTypeAdapter(String.class, false));
+  }
+
+  @Test
+  public void readWithServiceLoader() throws IOException {
+    TikXml xml = new TikXml.Builder()
+        .exceptionOnUnreadXml(true)
+        .loadAdapterIndexes(AdapterIndexTest.class.getClassLoader())
+        .build();
+
+    Server server = xml.read(TestUtils.sourceForFile("server.xml"), Server.class);
+    Assert.assertEquals("fooServer", server.name);
+    Assert.assertEquals("127.0.0.1", server.config.ip);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.annotationprocessing.largetext;
+
+import com.tickaroo.tikxml.TestUtils;
+import com.tickaroo.tikxml.TikXml;
+import java.io.IOException;
+import okio.Buffer;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+public class LargeTextTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void readAndWrite() throws IOException {
+    TikXml xml = new TikXml.Builder()
+        .exceptionOnUnreadXml(true)
+        .largeTextThreshold(10)
+        .build();
+
+    String xmlStr =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?><document>Some text<title>Short</title>, which is larger than 10 bytes</document>";
+
+    Document document = xml.read(TestUtils.sourceFrom(xmlStr), Document.class);
+    try {
+      Assert.assertNull(document.title.file());
+      Assert.assertEquals("Short", document.title.readString());
+      Assert.assertNotNull(document.content.file());
+      Assert.assertEquals("Some text, which is larger than 10 bytes", document.content.readString());
+
+      // Writing xml test
+      Buffer buffer = new Buffer();
+      xml.write(buffer, document);
+      Assert.assertEquals(
+          "<?xml version=\"1.0\" encoding=\"UTF-8\"?><document><title>Short</title>Some text, which is larger than 10 bytes</document>",
+          TestUtils.bufferToString(buffer));
+    } finally {
+      document.title.delete();
+      document.content.delete();
+    }
+  }
+
+  @Test
+  public void temporaryFileDeletedOnFailedRead() throws IOException {
+    TikXml xml = new TikXml.Builder()
+        .exceptionOnUnreadXml(true)
+        .largeTextThreshold(10)
+        .largeTextDirectory(tempFolder.getRoot())
+        .build();
+
+    String xmlStr =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?><document>Some text, which is larger than 10 bytes<unknown/></document>";
+
+    try {
+      xml.read(TestUtils.sourceFrom(xmlStr), Document.class);
+      Assert.fail("Exception expected");
+    } catch (IOException e) {
+      Assert.assertEquals(0, tempFolder.getRoot().list().length);
+    }
+  }
+
+  @Test
+  public void propertyElementTemporaryFileDeletedOnFailedRead() throws IOException {
+    TikXml xml = new TikXml.Builder()
+        .exceptionOnUnreadXml(true)
+        .largeTextThreshold(10)
+        .largeTextDirectory(tempFolder.getRoot())
+        .build();
+
+    String xmlStr =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?><document><title>A title, which is larger than 10 bytes</title><unknown/></document>";
+
+    try {
+      xml.read(TestUtils.sourceFrom(xmlStr), Document.class);
+      Assert.fail("Exception expected");
+    } catch (IOException e) {
+      Assert.assertEquals(0, tempFolder.getRoot().list().length);
+    }
+  }
+}
@@ -20,6 +20,7 @@ import com.tickaroo.tikxml.annotation.Xml
 import com.tickaroo.tikxml.processor.converter.AttributeConverterChecker
 import com.tickaroo.tikxml.processor.converter.PropertyElementConverterChecker
 import com.tickaroo.tikxml.typeadapter.TypeAdapter
+import com.tickaroo.tikxml.typeadapter.TypeAdapterReference
 import java.io.IOException
 import java.util.ArrayList
 import javax.lang.model.element.Modifier
@@ -74,6 +75,11 @@ fun generateValueHolder(annotatedClass: AutoValueAnnotatedClass, elementUtils: E
     }
     .build()
 
+/**
+ * The name of the field that holds the reference to the type adapter of the value holder
+ */
+private const val valueHolderTypeAdapter = "valueHolderTypeAdapter"
+
 /**
  * Generates a TypeAdapter for the auto value class by delegting the work to the value holder Type Adapter
  */
@@ -82,6 +88,14 @@ fun generateTypeAdapter(annotatedClass: AutoValueAnnotatedClass) =
     .addModifiers(Modifier.PUBLIC)
     .addSuperinterface(
       ParameterizedTypeName.get(ClassName.get(TypeAdapter::class.java), ClassName.get(annotatedClass.autoValueClass.asType())))
+    .apply {
+      // resolve the type adapter of the value holder only once
+      val valueHolderClass = ClassName.get(annotatedClass.packageName, annotatedClass.valueHolderClassName)
+      val referenceType = ParameterizedTypeName.get(ClassName.get(TypeAdapterReference::class.java), valueHolderClass)
+      addField(FieldSpec.builder(referenceType, valueHolderTypeAdapter, Modifier.PRIVATE, Modifier.FINAL)
+        .initializer("new \$T(\$T.class, false)", referenceType, valueHolderClass)
+        .build())
+    }
     .apply {
       // read Xml
       val reader = "reader"
@@ -98,8 +112,8 @@ fun generateTypeAdapter(annotatedClass: AutoValueAnnotatedClass) =
         .addParameter(TikXmlConfig::class.java, config)
         .addParameter(Boolean::class.java, isGenericList)
         .addException(IOException::class.java)
-        .addStatement("\$T $value = (\$T) $config.getTypeAdapter(\$T.class).fromXml($reader, $config, $isGenericList)", valueHolderClass,
-          valueHolderClass, valueHolderClass)
+        .addStatement("\$T $value = $valueHolderTypeAdapter.get($config).fromXml($reader, $config, $isGenericList)",
+          valueHolderClass)
         .addCode("return new \$T(",
           ClassName.get(annotatedClass.packageName, "AutoValue_" + annotatedClass.autoValueClass.simpleName))
         .apply {
@@ -141,8 +155,7 @@ fun generateTypeAdapter(annotatedClass: AutoValueAnnotatedClass) =
             addStatement("$tmpValue.${it.methodName} = $value.${it.methodName}()")
           }
         }
-        .addStatement("$config.getTypeAdapter(\$T.class).toXml($writer, $config, $tmpValue, $overridingXmlElementTagName)",
-          valueHolderClass)
+        .addStatement("$valueHolderTypeAdapter.get($config).toXml($writer, $config, $tmpValue, $overridingXmlElementTagName)")
         .build()
       )
     }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.caliper.runner.CaliperMain;
+import okio.Buffer;
+
+/**
+ * Compares searching the next {@code '<'} with {@link Swar} (8 bytes at a time) to okio's {@link
+ * Buffer#indexOf(byte, long)} (byte by byte) for text of different lengths between the tags. In
+ * the package of {@link Swar} to access it.
+ */
+public class SwarBenchmark {
+
+    public static void main(String[] args) {
+        CaliperMain.main(SwarBenchmark.class, args);
+    }
+
+    /** The number of bytes between two '<' */
+    @Param({"4", "16", "64", "1024"})
+    int textLength;
+
+    private final Buffer buffer = new Buffer();
+    private final Buffer.UnsafeCursor cursor = new Buffer.UnsafeCursor();
+
+    @BeforeExperiment
+    public void setUp() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < textLength; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        text.append('<');
+        while (buffer.size() < 16 * 1024) {
+            buffer.writeUtf8(text.toString());
+        }
+    }
+
+    @Benchmark
+    public long swar(int reps) {
+        long sum = 0;
+        for (int i = 0; i < reps; i++) {
+            for (long p = Swar.indexOf(buffer, (byte) '<', 0, cursor); p != -1;
+                p = Swar.indexOf(buffer, (byte) '<', p + 1, cursor)) {
+                sum += p;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long okio(int reps) {
+        long sum = 0;
+        for (int i = 0; i < reps; i++) {
+            for (long p = buffer.indexOf((byte) '<', 0); p != -1; p = buffer.indexOf((byte) '<', p + 1)) {
+                sum += p;
+            }
+        }
+        return sum;
+    }
+}
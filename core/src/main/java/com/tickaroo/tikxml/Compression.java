@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import okio.BufferedSource;
+import okio.DeflaterSink;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Sink;
+import okio.Source;
+
+/**
+ * The compression formats supported by {@link TikXml}. Compressed xml is read (see {@link
+ * TikXml.Builder#decompressInput(boolean)}) and written (see {@link TikXml#write(okio.BufferedSink,
+ * Object, Compression)}) in a streaming fashion, so the uncompressed document is never held in
+ * memory or written to a temporary file.
+ */
+public enum Compression {
+
+  /**
+   * gzip (RFC 1952), the {@code gzip} content encoding of http
+   */
+  GZIP,
+
+  /**
+   * zlib (RFC 1950), the {@code deflate} content encoding of http
+   */
+  DEFLATE;
+
+  /**
+   * Detects the compression of the given source by peeking at the first two bytes (the magic
+   * header of gzip or the header of zlib). Nothing is consumed.
+   *
+   * @return The compression or null if the source is not compressed (or empty)
+   */
+  static Compression detect(BufferedSource source) throws IOException {
+    if (!source.request(2)) {
+      return null;
+    }
+    int b0 = source.getBuffer().getByte(0) & 0xFF;
+    int b1 = source.getBuffer().getByte(1) & 0xFF;
+    if (b0 == 0x1F && b1 == 0x8B) {
+      return GZIP;
+    }
+    // Compression method 8 (deflate) and a valid header checksum. An xml document never starts
+    // like this, but with '<', a whitespace or a byte order mark.
+    if ((b0 & 0x0F) == 8 && (b0 >>> 4) <= 7 && ((b0 << 8) | b1) % 31 == 0) {
+      return DEFLATE;
+    }
+    return null;
+  }
+
+  /**
+   * Returns a source that decompresses the given source. Closing it releases the native resources
+   * of the {@link Inflater} and closes the given source.
+   */
+  Source decompress(Source source) {
+    if (this == GZIP) {
+      return new GzipSource(source);
+    }
+    return new InflaterSource(source, new Inflater());
+  }
+
+  /**
+   * Returns a sink that compresses into the given sink. Closing it writes the remaining
+   * compressed bytes, releases the native resources of the {@link Deflater} and closes the given
+   * sink.
+   */
+  Sink compress(Sink sink) {
+    if (this == GZIP) {
+      return new GzipSink(sink);
+    }
+    return new DeflaterSink(sink, new Deflater());
+  }
+
+  /**
+   * Wraps the given source so that closing it doesn't close the given source
+   */
+  static Source nonClosing(Source source) {
+    return new ForwardingSource(source) {
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  /**
+   * Wraps the given sink so that closing it doesn't close the given sink
+   */
+  static Sink nonClosing(Sink sink) {
+    return new ForwardingSink(sink) {
+      @Override
+      public void close() {
+      }
+    };
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small, bounded and lock free pool of instances like {@link XmlReader} and {@link XmlWriter}.
+ * It doesn't rely on thread locals, so it's safe to use from any number of (virtual) threads. If
+ * the pool is empty {@link #acquire()} returns null and the caller has to create a new instance.
+ * If the pool is full released instances are simply dropped.
+ */
+final class InstancePool<T> {
+
+  private final AtomicReferenceArray<T> slots;
+
+  InstancePool(int size) {
+    slots = new AtomicReferenceArray<T>(size);
+  }
+
+  /**
+   * Takes an instance out of the pool
+   *
+   * @return An instance or null if the pool is empty
+   */
+  T acquire() {
+    for (int i = 0; i < slots.length(); i++) {
+      T instance = slots.get(i);
+      if (instance != null && slots.compareAndSet(i, instance, null)) {
+        return instance;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Puts an instance back into the pool. The instance must not be used by the caller afterwards.
+   *
+   * @param instance The instance
+   */
+  void release(T instance) {
+    for (int i = 0; i < slots.length(); i++) {
+      if (slots.get(i) == null && slots.compareAndSet(i, null, instance)) {
+        return;
+      }
+    }
+  }
+}
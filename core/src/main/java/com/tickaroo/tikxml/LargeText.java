@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
+
+/**
+ * A handle to a (potentially very large) xml text content. Text contents up to a certain threshold
+ * are kept in memory, everything above is streamed into a temporary file instead of being held in
+ * the heap. Use {@link #source()} to read it lazily.
+ *
+ * <p> A {@link LargeText} can be used as type of a {@code @PropertyElement} or {@code
+ * @TextContent} field. The threshold and the directory for temporary files can be configured via
+ * {@link TikXml.Builder#largeTextThreshold(long)} and {@link TikXml.Builder#largeTextDirectory(File)}
+ * </p>
+ *
+ * <p> The temporary file belongs to the {@link LargeText}: it is deleted by {@link #close()} (or
+ * {@link #delete()}), not when the JVM exits. Close a {@link LargeText} once the text isn't needed
+ * anymore. </p>
+ */
+public final class LargeText implements Closeable {
+
+  private final ByteString bytes;
+  private final File file;
+  private final long size;
+
+  private LargeText(ByteString bytes, File file, long size) {
+    this.bytes = bytes;
+    this.file = file;
+    this.size = size;
+  }
+
+  /**
+   * Creates a {@link LargeText} that is held in memory
+   *
+   * @param text The text
+   * @return The {@link LargeText}
+   */
+  public static LargeText of(String text) {
+    ByteString bytes = ByteString.encodeUtf8(text);
+    return new LargeText(bytes, null, bytes.size());
+  }
+
+  /**
+   * Opens a new source to read the (utf-8 encoded) text. The caller is responsible to close it.
+   *
+   * @return A new source
+   * @throws IOException
+   */
+  public BufferedSource source() throws IOException {
+    if (file != null) {
+      return Okio.buffer(Okio.source(file));
+    }
+    return new Buffer().write(bytes);
+  }
+
+  /**
+   * The size of the text in bytes (utf-8 encoded)
+   *
+   * @return The size in bytes
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Reads the whole text into a String
+   *
+   * @return The text
+   * @throws IOException
+   */
+  public String readString() throws IOException {
+    if (file == null) {
+      return bytes.utf8();
+    }
+
+    BufferedSource source = source();
+    try {
+      return source.readUtf8();
+    } finally {
+      source.close();
+    }
+  }
+
+  /**
+   * Writes the whole text into the given sink
+   *
+   * @param sink The sink to write to
+   * @throws IOException
+   */
+  public void writeTo(BufferedSink sink) throws IOException {
+    if (file == null) {
+      sink.write(bytes);
+      return;
+    }
+
+    BufferedSource source = source();
+    try {
+      sink.writeAll(source);
+    } finally {
+      source.close();
+    }
+  }
+
+  /**
+   * The temporary file where the text has been stored, or null if the text is held in memory
+   *
+   * @return The file or null
+   */
+  public File file() {
+    return file;
+  }
+
+  /**
+   * Deletes the temporary file (if any). The text can't be read afterwards.
+   */
+  public void delete() {
+    if (file != null) {
+      file.delete();
+    }
+  }
+
+  /**
+   * Same as {@link #delete()}
+   */
+  @Override
+  public void close() {
+    delete();
+  }
+
+  @Override
+  public String toString() {
+    return file != null
+        ? "LargeText[size=" + size + ", file=" + file + "]"
+        : "LargeText[size=" + size + "]";
+  }
+
+  /**
+   * A {@link Sink} to build a {@link LargeText}. Bytes are kept in memory until the threshold is
+   * exceeded. Then all bytes are moved into a temporary file.
+   */
+  public static final class Builder implements Sink {
+
+    private final long threshold;
+    private final File directory;
+    private Buffer memory = new Buffer();
+    private File file;
+    private BufferedSink fileSink;
+    private long size = 0;
+
+    /**
+     * @param threshold Max. number of bytes that are held in memory
+     * @param directory The directory for the temporary file, or null for the default temporary
+     * directory
+     */
+    public Builder(long threshold, File directory) {
+      if (threshold < 0) {
+        throw new IllegalArgumentException("threshold < 0: " + threshold);
+      }
+      this.threshold = threshold;
+      this.directory = directory;
+    }
+
+    @Override
+    public void write(Buffer source, long byteCount) throws IOException {
+      size += byteCount;
+      if (fileSink == null && memory.size() + byteCount > threshold) {
+        file = File.createTempFile("tikxml", ".txt", directory);
+        fileSink = Okio.buffer(Okio.sink(file));
+        fileSink.write(memory, memory.size());
+        memory = null;
+      }
+
+      if (fileSink != null) {
+        fileSink.write(source, byteCount);
+      } else {
+        memory.write(source, byteCount);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (fileSink != null) {
+        fileSink.flush();
+      }
+    }
+
+    @Override
+    public Timeout timeout() {
+      return Timeout.NONE;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (fileSink != null) {
+        fileSink.close();
+      }
+    }
+
+    /**
+     * Closes this builder and deletes the temporary file (if any) without creating a {@link
+     * LargeText}. Use this if an error has occurred while writing. An exception while closing is
+     * ignored, so that it doesn't hide the original error.
+     */
+    public void discard() {
+      try {
+        close();
+      } catch (IOException ignored) {
+      } finally {
+        if (file != null) {
+          file.delete();
+        }
+      }
+    }
+
+    /**
+     * Closes this builder and creates the {@link LargeText}
+     *
+     * @return The {@link LargeText}
+     * @throws IOException
+     */
+    public LargeText build() throws IOException {
+      close();
+      if (file != null) {
+        return new LargeText(null, file, size);
+      }
+      return new LargeText(memory.readByteString(), null, size);
+    }
+  }
+}
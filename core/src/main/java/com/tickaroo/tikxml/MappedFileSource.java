@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import okio.Buffer;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * A {@link Source} that reads a file by memory-mapping it. This only saves the read syscalls: the
+ * bytes are still copied from the mapped region into the segments of the okio {@link Buffer}, just
+ * like a {@code FileInputStream} source copies them. The file is mapped in windows of a fixed size,
+ * so that files larger than 2 GB (the max. size of a single mapping) can be read as well.
+ *
+ * <p> The channel is not closed by this source. </p>
+ */
+final class MappedFileSource implements Source {
+
+  /** The default size of a mapped window */
+  static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+  private final FileChannel channel;
+  private final long windowSize;
+  private final long end;
+  /** The position in the file of the next byte that has not been mapped yet */
+  private long position;
+  private MappedByteBuffer window;
+  private boolean closed = false;
+
+  /**
+   * @param channel The channel to read from, starting at its current position
+   * @param windowSize The number of bytes that are mapped at once
+   */
+  MappedFileSource(FileChannel channel, long windowSize) throws IOException {
+    this(channel, channel.position(), channel.size(), windowSize);
+  }
+
+  /**
+   * @param channel The channel to read from. Its position is neither used nor changed, so
+   * multiple sources can read different regions of the same channel concurrently.
+   * @param start The position in the file of the first byte to read
+   * @param end The position in the file after the last byte to read
+   * @param windowSize The number of bytes that are mapped at once
+   */
+  MappedFileSource(FileChannel channel, long start, long end, long windowSize) {
+    if (start < 0 || start > end) {
+      throw new IllegalArgumentException("Invalid range: start = " + start + ", end = " + end);
+    }
+    if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("windowSize must be in range 1 to " + Integer.MAX_VALUE + " but was " + windowSize);
+    }
+    this.channel = channel;
+    this.windowSize = windowSize;
+    this.position = start;
+    this.end = end;
+  }
+
+  @Override
+  public long read(Buffer sink, long byteCount) throws IOException {
+    if (closed) {
+      throw new IllegalStateException("closed");
+    }
+    if (byteCount < 0) {
+      throw new IllegalArgumentException("byteCount < 0: " + byteCount);
+    }
+
+    if (window == null || !window.hasRemaining()) {
+      if (position >= end) {
+        return -1;
+      }
+      // Map the next window. The previous one is unmapped once it has been garbage collected
+      long length = Math.min(windowSize, end - position);
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      position += length;
+    }
+
+    int toRead = (int) Math.min(byteCount, window.remaining());
+    int limit = window.limit();
+    window.limit(window.position() + toRead);
+    int read = sink.write(window);
+    window.limit(limit);
+    return read;
+  }
+
+  @Override
+  public Timeout timeout() {
+    return Timeout.NONE;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    window = null;
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Reads all records (xml elements at a given path) of a file in parallel. A sequential pre-scan
+ * skips over the document on byte level (see {@link XmlReader#skipRemainingElement()}) and splits
+ * it into chunks of consecutive records. Every chunk is read with its own {@link XmlReader} on a
+ * {@link ForkJoinPool} as soon as its boundaries are known, so the pre-scan and the (much more
+ * expensive) binding run concurrently. The results are merged in document order.
+ */
+final class ParallelRecordReader<T> {
+
+  /** Lower and upper bound of the size of a chunk in bytes */
+  static final long MIN_CHUNK_SIZE = 1024 * 1024;
+  static final long MAX_CHUNK_SIZE = 64L * 1024 * 1024;
+
+  private final TikXml tikXml;
+  private final TikXmlConfig config;
+  private final TypeAdapter<T> adapter;
+  private final XmlReader.Options[] segments;
+  private final FileChannel channel;
+  private final ForkJoinPool pool;
+  private final long chunkSize;
+
+  /**
+   * @param segments The path of the records, see {@link XmlRecordIterator#parsePath(String)}
+   * @param channel The file to read. Its position is not used.
+   * @param chunkSize The min. number of bytes of a chunk (the last chunk may be smaller)
+   */
+  ParallelRecordReader(TikXml tikXml, TikXmlConfig config, TypeAdapter<T> adapter,
+      XmlReader.Options[] segments, FileChannel channel, ForkJoinPool pool, long chunkSize) {
+    this.tikXml = tikXml;
+    this.config = config;
+    this.adapter = adapter;
+    this.segments = segments;
+    this.channel = channel;
+    this.pool = pool;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Computes a chunk size so that each worker of the pool gets a few chunks
+   */
+  static long chunkSizeFor(long fileSize, ForkJoinPool pool) {
+    long size = fileSize / (pool.getParallelism() * 4L);
+    return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size));
+  }
+
+  /**
+   * Reads all records
+   *
+   * @return The records in document order
+   */
+  List<T> read() throws IOException {
+    List<ChunkTask> chunks = new ArrayList<>();
+    boolean success = false;
+    try {
+      scan(chunks);
+
+      List<T> result = new ArrayList<>();
+      for (ChunkTask chunk : chunks) {
+        List<T> records = chunk.join();
+        if (chunk.error != null) {
+          throw chunk.error;
+        }
+        result.addAll(records);
+      }
+      success = true;
+      return result;
+    } finally {
+      if (!success) {
+        for (ChunkTask chunk : chunks) {
+          chunk.cancel(false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Walks the whole document (skipping the records) and submits a task for every chunk
+   */
+  private void scan(List<ChunkTask> chunks) throws IOException {
+    CountingSource counting = new CountingSource(
+        new MappedFileSource(channel, 0, channel.size(), MappedFileSource.DEFAULT_WINDOW_SIZE));
+    BufferedSource source = Okio.buffer(counting);
+    XmlReader reader = tikXml.acquireReader(source);
+    try {
+      int matched = 0; // Number of path segments we are currently in
+      long chunkStart = -1;
+      long chunkEnd = -1;
+
+      while (true) {
+        if (reader.hasElement()) {
+          // The opening '<' has already been consumed by peeking
+          long recordStart = counting.position(source) - 1;
+          reader.beginElement();
+          if (reader.selectElementName(segments[matched]) == -1) {
+            reader.skipRemainingElement();
+            continue;
+          }
+
+          if (matched < segments.length - 1) {
+            // A chunk must not span multiple parent elements
+            if (chunkStart != -1) {
+              chunks.add(submit(chunkStart, chunkEnd));
+              chunkStart = -1;
+            }
+            reader.skipRemainingAttributes();
+            matched++;
+          } else {
+            reader.skipRemainingElement();
+            if (chunkStart == -1) {
+              chunkStart = recordStart;
+            }
+            chunkEnd = counting.position(source);
+            if (chunkEnd - chunkStart >= chunkSize) {
+              chunks.add(submit(chunkStart, chunkEnd));
+              chunkStart = -1;
+            }
+          }
+        } else if (reader.hasTextContent()) {
+          reader.skipTextContent();
+        } else if (matched == 0) {
+          break; // end of document
+        } else {
+          if (chunkStart != -1) {
+            chunks.add(submit(chunkStart, chunkEnd));
+            chunkStart = -1;
+          }
+          reader.endElement();
+          matched--;
+        }
+      }
+
+      if (chunkStart != -1) {
+        chunks.add(submit(chunkStart, chunkEnd));
+      }
+    } finally {
+      reader.close(); // doesn't close the channel
+      tikXml.releaseReader(reader);
+    }
+  }
+
+  private ChunkTask submit(long start, long end) {
+    ChunkTask task = new ChunkTask(start, end);
+    pool.execute(task);
+    return task;
+  }
+
+  /**
+   * Reads all records between the given positions of the file. The chunk contains only complete
+   * records of the same parent element (and maybe whitespaces or other elements in between).
+   */
+  private List<T> readChunk(long start, long end) throws IOException {
+    BufferedSource source = Okio.buffer(
+        new MappedFileSource(channel, start, end, MappedFileSource.DEFAULT_WINDOW_SIZE));
+    XmlReader.Options recordName = segments[segments.length - 1];
+    XmlReader reader = tikXml.acquireReader(source);
+    try {
+      List<T> records = new ArrayList<>();
+      while (reader.peek() != XmlReader.XmlToken.END_OF_DOCUMENT) {
+        reader.beginElement();
+        if (reader.selectElementName(recordName) == -1) {
+          reader.skipRemainingElement();
+        } else {
+          records.add(adapter.fromXml(reader, config, false));
+          reader.endElement();
+        }
+      }
+      return records;
+    } finally {
+      reader.close();
+      tikXml.releaseReader(reader);
+    }
+  }
+
+  /**
+   * Reads a single chunk. An {@link IOException} is kept as it is, so that it can be rethrown by
+   * the thread that merges the results.
+   */
+  private final class ChunkTask extends RecursiveTask<List<T>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long start;
+    private final long end;
+    IOException error;
+
+    ChunkTask(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected List<T> compute() {
+      try {
+        return readChunk(start, end);
+      } catch (IOException e) {
+        error = e;
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Counts the bytes read from the underlying source to compute the position of the reader
+   */
+  private static final class CountingSource extends ForwardingSource {
+
+    private long bytesRead = 0;
+
+    CountingSource(Source delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public long read(Buffer sink, long byteCount) throws IOException {
+      long read = super.read(sink, byteCount);
+      if (read != -1) {
+        bytesRead += read;
+      }
+      return read;
+    }
+
+    /**
+     * The position of the next byte that will be consumed from the given buffered source
+     */
+    long position(BufferedSource source) {
+      return bytesRead - source.getBuffer().size();
+    }
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executor;
+import okio.Buffer;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * A {@link Source} that reads ahead from an upstream source on another thread, so that I/O (and
+ * i.e. decompression of a {@code GzipSource}) and parsing run concurrently. The upstream source is
+ * read in chunks of at most {@link #CHUNK_SIZE} bytes into a buffer that never holds more than
+ * {@code maxBytes} bytes, no matter how many bytes a single upstream read returns. The segments of
+ * the chunks are moved (not copied) into the sink of {@link #read(Buffer, long)}.
+ *
+ * <p>While the background task is waiting for bytes, {@link #read(Buffer, long)} waits at most as
+ * long as the {@link Source#timeout()} of the upstream source allows.
+ *
+ * <p>{@link #cancel()} must be called once the source isn't read anymore. It waits until an
+ * upstream read that is in flight has returned, so that the caller owns the upstream source again
+ * (i.e. may close it) once {@link #cancel()} returns. The bytes of that read are dropped and the
+ * upstream source is not read again (and not closed).
+ */
+final class PrefetchingSource implements Source {
+
+  /** The max. number of bytes of a single upstream read, which is the size of an okio segment */
+  static final int CHUNK_SIZE = 8192;
+
+  /** Runs each background task on a new daemon thread */
+  static final Executor NEW_THREAD_EXECUTOR = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      Thread thread = new Thread(command, "TikXml prefetch");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  };
+
+  private final Source upstream;
+  private final long maxBytes;
+
+  // All fields below are guarded by this
+  /** The bytes read ahead, but not read by {@link #read(Buffer, long)} yet */
+  private final Buffer prefetched = new Buffer();
+  /** True once the upstream source is exhausted or has thrown an exception */
+  private boolean endOfInput = false;
+  /** The exception thrown by the upstream source, thrown once after the prefetched bytes */
+  private Throwable error;
+  private boolean cancelled = false;
+  /** True while the background task is reading the upstream source */
+  private boolean upstreamReading = false;
+
+  /**
+   * Creates the source and starts reading ahead
+   *
+   * @param upstream The source to read from
+   * @param maxBytes The max. number of bytes to read ahead
+   * @param executor The executor running the background task. It has to run it on its own thread.
+   */
+  PrefetchingSource(Source upstream, long maxBytes, Executor executor) {
+    this.upstream = upstream;
+    this.maxBytes = Math.max(1, maxBytes);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        prefetch();
+      }
+    });
+  }
+
+  /**
+   * Reads the upstream source until it is exhausted or the source has been cancelled. Runs on the
+   * thread of the executor.
+   */
+  private void prefetch() {
+    Buffer chunk = new Buffer();
+    try {
+      while (true) {
+        long byteCount;
+        synchronized (this) {
+          while (!cancelled && prefetched.size() >= maxBytes) {
+            wait();
+          }
+          if (cancelled) {
+            return;
+          }
+          byteCount = Math.min(CHUNK_SIZE, maxBytes - prefetched.size());
+          upstreamReading = true;
+        }
+
+        // Not holding the lock, so that read() doesn't wait for the upstream source
+        long read;
+        try {
+          read = upstream.read(chunk, byteCount);
+        } finally {
+          synchronized (this) {
+            upstreamReading = false;
+            notifyAll();
+          }
+        }
+
+        synchronized (this) {
+          if (cancelled) {
+            chunk.clear();
+            return;
+          }
+          if (read == -1L) {
+            endOfInput = true;
+          } else {
+            prefetched.write(chunk, chunk.size());
+          }
+          notifyAll();
+          if (endOfInput) {
+            return;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      stop(new InterruptedIOException("Prefetching has been interrupted"));
+    } catch (Throwable t) {
+      stop(t);
+    }
+  }
+
+  /**
+   * Ends the input after the bytes read ahead so far with the given error
+   */
+  private synchronized void stop(Throwable t) {
+    error = t;
+    endOfInput = true;
+    notifyAll();
+  }
+
+  @Override
+  public synchronized long read(Buffer sink, long byteCount) throws IOException {
+    if (byteCount < 0) {
+      throw new IllegalArgumentException("byteCount < 0: " + byteCount);
+    }
+    if (cancelled) {
+      throw new IllegalStateException("cancelled");
+    }
+
+    while (prefetched.size() == 0) {
+      if (endOfInput) {
+        Throwable t = error;
+        error = null;
+        if (t instanceof IOException) {
+          throw (IOException) t;
+        } else if (t instanceof RuntimeException) {
+          throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+          throw (Error) t;
+        }
+        return -1L;
+      }
+      upstream.timeout().waitUntilNotified(this);
+    }
+
+    long read = prefetched.read(sink, byteCount);
+    notifyAll(); // There is space for the background task again
+    return read;
+  }
+
+  /**
+   * Stops reading ahead. Bytes that have been read ahead are discarded. Waits until an upstream read
+   * that is in flight has returned, but not for the rest of the background task. The wait can't be
+   * interrupted; the interrupt status of the calling thread is restored afterwards.
+   */
+  synchronized void cancel() {
+    cancelled = true;
+    prefetched.clear();
+    notifyAll();
+
+    boolean interrupted = false;
+    while (upstreamReading) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public Timeout timeout() {
+    return upstream.timeout();
+  }
+
+  /**
+   * Same as {@link #cancel()}. The upstream source is not closed.
+   */
+  @Override
+  public void close() {
+    cancel();
+  }
+}
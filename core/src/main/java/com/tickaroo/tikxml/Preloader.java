@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Resolves the {@link com.tickaroo.tikxml.typeadapter.TypeAdapter}s of root types and of all types
+ * reachable from them, so that they are instantiated and cached before the first document is read
+ * or written. Generated type adapters resolve the type adapters of child elements lazily through
+ * {@link TikXmlConfig#getTypeAdapter(Type)}, therefore the reachable types are found via
+ * reflections:
+ *
+ * <ul>
+ * <li>The types of all fields, including the element types of lists and other generic types</li>
+ * <li>The return types of abstract methods (AutoValue properties) and the AutoValue value
+ * holder</li>
+ * <li>Classes referenced by annotations of fields and methods, i.e. the types of
+ * {@code @ElementNameMatcher}</li>
+ * </ul>
+ *
+ * Only types that have a type adapter (and no type converter) are followed. The implementations
+ * of a {@code @GenericAdapter} type are not known at runtime, their type adapters are resolved by
+ * reading a sample (see {@link TikXml.Builder#warmUp(Type, okio.BufferedSource)}).
+ */
+final class Preloader {
+
+  /** The suffix of the value holder class the AutoValue extension generates */
+  private static final String AUTO_VALUE_VALUE_HOLDER_SUFFIX = "TikXmlValueHolder";
+
+  private final TikXmlConfig config;
+  private final Set<Class<?>> visited = new HashSet<>();
+
+  Preloader(TikXmlConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Resolves the type adapter of the given root type and of all types reachable from it
+   *
+   * @param root The root type, as passed to {@link TikXml#read(okio.BufferedSource, Type)}
+   * @throws TypeAdapterNotFoundException if there is no type adapter for the root type
+   */
+  void preload(Type root) throws TypeAdapterNotFoundException {
+    config.getTypeAdapter(root);
+    visit(root);
+  }
+
+  private void visit(Type type) {
+    if (type instanceof ParameterizedType) {
+      for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+        visit(argument);
+      }
+      visit(((ParameterizedType) type).getRawType());
+    } else if (type instanceof WildcardType) {
+      for (Type bound : ((WildcardType) type).getUpperBounds()) {
+        visit(bound);
+      }
+    } else if (type instanceof GenericArrayType) {
+      visit(((GenericArrayType) type).getGenericComponentType());
+    } else if (type instanceof Class) {
+      Class<?> clazz = (Class<?>) type;
+      if (clazz.isArray()) {
+        visit(clazz.getComponentType());
+      } else if (!clazz.isPrimitive() && !isPlatformClass(clazz) && visited.add(clazz)) {
+        visitClass(clazz);
+      }
+    }
+    // Type variables can't be resolved
+  }
+
+  private void visitClass(Class<?> clazz) {
+    if (hasTypeConverter(clazz)) {
+      return;
+    }
+
+    boolean isAbstract = clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers());
+    boolean hasAdapter = resolve(clazz, false);
+    if (isAbstract) {
+      hasAdapter |= resolve(clazz, true);
+    }
+    if (!hasAdapter) {
+      return; // Not a model class
+    }
+
+    for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+          visit(field.getGenericType());
+          visitAnnotations(field);
+        }
+      }
+      for (Method method : c.getDeclaredMethods()) {
+        if (Modifier.isAbstract(method.getModifiers()) && method.getParameterTypes().length == 0) {
+          visit(method.getGenericReturnType());
+        }
+        visitAnnotations(method);
+      }
+    }
+
+    if (isAbstract) {
+      Class<?> valueHolder = loadValueHolder(clazz);
+      if (valueHolder != null) {
+        visit(valueHolder);
+      }
+    }
+  }
+
+  /**
+   * Visits all classes referenced by the annotations of the given field or method
+   */
+  private void visitAnnotations(AnnotatedElement element) {
+    for (Annotation annotation : element.getDeclaredAnnotations()) {
+      visitAnnotationValue(annotation);
+    }
+  }
+
+  private void visitAnnotationValue(Object value) {
+    if (value instanceof Class) {
+      visit((Class<?>) value);
+    } else if (value instanceof Class[]) {
+      for (Class<?> c : (Class<?>[]) value) {
+        visit(c);
+      }
+    } else if (value instanceof Annotation[]) {
+      for (Annotation a : (Annotation[]) value) {
+        visitAnnotationValue(a);
+      }
+    } else if (value instanceof Annotation) {
+      for (Method member : ((Annotation) value).annotationType().getDeclaredMethods()) {
+        if (member.getParameterTypes().length == 0) {
+          try {
+            visitAnnotationValue(member.invoke(value));
+          } catch (Exception e) {
+            // Not accessible, skip it
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if a type adapter has been resolved, otherwise false
+   */
+  private boolean resolve(Class<?> clazz, boolean generic) {
+    try {
+      config.getTypeAdapter(clazz, generic);
+      return true;
+    } catch (TypeAdapterNotFoundException e) {
+      return false;
+    }
+  }
+
+  private boolean hasTypeConverter(Class<?> clazz) {
+    try {
+      config.getTypeConverter(clazz);
+      return true;
+    } catch (TypeConverterNotFoundException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Loads the value holder the AutoValue extension generates for an abstract class. The generated
+   * type adapter of the abstract class delegates to the type adapter of the value holder.
+   *
+   * @return The value holder class or null
+   */
+  private static Class<?> loadValueHolder(Class<?> clazz) {
+    Package packageElement = clazz.getPackage();
+    String prefix = packageElement == null || packageElement.getName().isEmpty()
+        ? "" : packageElement.getName() + '.';
+    try {
+      return Class.forName(prefix + clazz.getSimpleName() + AUTO_VALUE_VALUE_HOLDER_SUFFIX, false,
+          clazz.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  private static boolean isPlatformClass(Class<?> clazz) {
+    String name = clazz.getName();
+    return name.startsWith("java.")
+        || name.startsWith("javax.")
+        || name.startsWith("kotlin.")
+        || name.startsWith("android.")
+        || name.startsWith("okio.");
+  }
+}
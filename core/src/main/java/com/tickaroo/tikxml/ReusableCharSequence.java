@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import java.io.EOFException;
+import okio.Buffer;
+
+/**
+ * A mutable {@link CharSequence} that is reused for every attribute value and text content passed
+ * to a {@link XmlVisitor}. The bytes are decoded from UTF-8 into an internal char array that only
+ * grows if needed, so no {@link String} is allocated unless {@link #toString()} is called.
+ */
+final class ReusableCharSequence implements CharSequence {
+
+  private static final char REPLACEMENT_CHARACTER = '�';
+
+  private byte[] bytes = new byte[256];
+  private char[] chars = new char[256];
+  private int length = 0;
+
+  /**
+   * Consumes the given number of bytes from the buffer and decodes them. Malformed UTF-8 sequences
+   * are replaced with {@code U+FFFD} like {@link Buffer#readUtf8()} does.
+   */
+  void readUtf8(Buffer buffer, long byteCount) throws EOFException {
+    if (byteCount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Text is too long: " + byteCount + " bytes");
+    }
+    int n = (int) byteCount;
+    if (bytes.length < n) {
+      bytes = new byte[Math.max(n, bytes.length * 2)];
+      chars = new char[bytes.length];
+    }
+    for (int read = 0; read < n; ) {
+      int count = buffer.read(bytes, read, n - read);
+      if (count == -1) {
+        throw new EOFException();
+      }
+      read += count;
+    }
+
+    int i = 0;
+    int j = 0;
+    while (i < n) {
+      int b = bytes[i];
+      if (b >= 0) {
+        chars[j++] = (char) b;
+        i++;
+        continue;
+      }
+
+      int size;
+      int codePoint;
+      int min;
+      if ((b & 0xE0) == 0xC0) {
+        size = 2;
+        codePoint = b & 0x1F;
+        min = 0x80;
+      } else if ((b & 0xF0) == 0xE0) {
+        size = 3;
+        codePoint = b & 0x0F;
+        min = 0x800;
+      } else if ((b & 0xF8) == 0xF0) {
+        size = 4;
+        codePoint = b & 0x07;
+        min = 0x10000;
+      } else {
+        chars[j++] = REPLACEMENT_CHARACTER;
+        i++;
+        continue;
+      }
+
+      boolean valid = i + size <= n;
+      for (int k = 1; valid && k < size; k++) {
+        int next = bytes[i + k];
+        if ((next & 0xC0) != 0x80) {
+          valid = false;
+        } else {
+          codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+      }
+      if (!valid || codePoint < min || codePoint > Character.MAX_CODE_POINT
+          || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+        chars[j++] = REPLACEMENT_CHARACTER;
+        i++;
+        continue;
+      }
+
+      i += size;
+      if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+        chars[j++] = Character.highSurrogate(codePoint);
+        chars[j++] = Character.lowSurrogate(codePoint);
+      } else {
+        chars[j++] = (char) codePoint;
+      }
+    }
+    length = j;
+  }
+
+  /**
+   * Sets the content to the given String (i.e. as fallback if it has been read as String already)
+   */
+  void set(String value) {
+    int n = value.length();
+    if (chars.length < n) {
+      chars = new char[n];
+      bytes = new byte[n];
+    }
+    value.getChars(0, n, chars, 0);
+    length = n;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+    }
+    return chars[index];
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    if (start < 0 || end > length || start > end) {
+      throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+    }
+    return new String(chars, start, end - start);
+  }
+
+  @Override
+  public String toString() {
+    return new String(chars, 0, length);
+  }
+}
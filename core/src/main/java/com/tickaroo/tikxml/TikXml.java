@@ -19,10 +19,24 @@
 package com.tickaroo.tikxml;
 
 import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import com.tickaroo.tikxml.typeadapter.TypeAdapterIndex;
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import okio.BufferedSink;
+import okio.Buffer;
 import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Source;
 
 /**
  * The main facade class to write or read xml. Use {@link TikXml.Builder} to instantiate a new
@@ -41,7 +55,14 @@ public final class TikXml {
    */
   public static final class Builder {
 
+    /** The default number of times a warm up sample is read */
+    private static final int DEFAULT_WARM_UP_ITERATIONS = 1000;
+
     private TikXmlConfig config = new TikXmlConfig();
+    private final List<Type> preloadTypes = new ArrayList<>();
+    private final List<Type> warmUpTypes = new ArrayList<>();
+    private final List<ByteString> warmUpSamples = new ArrayList<>();
+    private final List<Integer> warmUpIterations = new ArrayList<>();
 
     /**
      * Specify if an exception should be thrown if parts of the currently reading xml element are
@@ -64,6 +85,104 @@ public final class TikXml {
       return this;
     }
 
+    /**
+     * Specify the max. number of bytes of a {@link LargeText} field that are held in memory. Text
+     * contents above this threshold are streamed into a temporary file. Default is 1 MB.
+     *
+     * @param threshold The threshold in bytes
+     * @return The Builder itself
+     */
+    public Builder largeTextThreshold(long threshold) {
+      if (threshold < 0) {
+        throw new IllegalArgumentException("threshold < 0: " + threshold);
+      }
+      config.largeTextThreshold = threshold;
+      return this;
+    }
+
+    /**
+     * Specify the directory where temporary files of {@link LargeText} fields are stored. Default
+     * is the default temporary directory of the system.
+     *
+     * @param directory The directory
+     * @return The Builder itself
+     */
+    public Builder largeTextDirectory(File directory) {
+      config.largeTextDirectory = directory;
+      return this;
+    }
+
+    /**
+     * Should {@link XmlReader} and {@link XmlWriter} instances be reused across {@link
+     * TikXml#read(BufferedSource, Type)} and {@link TikXml#write(BufferedSink, Object)} calls? This
+     * avoids allocating new instances (and their internal arrays) for every read or write, which
+     * pays off if you parse many small xml documents. The pool is safe to use from any number of
+     * (virtual) threads. Default is false.
+     *
+     * @param pool true if readers and writers should be pooled, otherwise false
+     * @return The Builder itself
+     */
+    public Builder poolReadersAndWriters(boolean pool) {
+      config.poolReadersAndWriters = pool;
+      return this;
+    }
+
+    /**
+     * Should {@link TikXml#read(BufferedSource, Type)} read ahead from the source on a background
+     * thread? Then I/O (and decompression, i.e. of a {@code GzipSource}) and parsing run
+     * concurrently, which pays off for slow sources like a network stream. Bytes behind the end of
+     * the xml document may be consumed from the source. Default is 0 (disabled).
+     *
+     * <p>Before {@link TikXml#read(BufferedSource, Type)} returns or throws, it waits until a read
+     * of the source that is still in flight has returned (its bytes are dropped). The source isn't
+     * touched afterwards, so the caller may close it right away. While waiting for bytes of the
+     * background task, the {@link BufferedSource#timeout()} of the source is honoured.
+     *
+     * @param maxBytes The max. number of bytes read from the source, but not parsed yet. 0 to
+     * disable prefetching
+     * @return The Builder itself
+     */
+    public Builder prefetch(long maxBytes) {
+      return prefetch(maxBytes, PrefetchingSource.NEW_THREAD_EXECUTOR);
+    }
+
+    /**
+     * Like {@link #prefetch(long)}, but runs the background task with the given executor, i.e. one
+     * that starts a virtual thread per task. The executor must not run the task on the calling
+     * thread.
+     *
+     * @param maxBytes The max. number of bytes read from the source, but not parsed yet. 0 to
+     * disable prefetching
+     * @param executor The executor running the background task of each read
+     * @return The Builder itself
+     */
+    public Builder prefetch(long maxBytes, Executor executor) {
+      if (maxBytes < 0) {
+        throw new IllegalArgumentException("maxBytes < 0: " + maxBytes);
+      }
+      if (executor == null) {
+        throw new NullPointerException("executor == null");
+      }
+      config.prefetchBytes = maxBytes;
+      config.prefetchExecutor = executor;
+      return this;
+    }
+
+    /**
+     * Should compressed xml be decompressed transparently? If true, all {@code read()} methods
+     * (from a {@link BufferedSource} or a file) and {@link TikXml#readStream(BufferedSource,
+     * String, Type)} detect gzip and zlib (http content encoding {@code deflate}) compressed input
+     * by its header and decompress it while reading. Default is false.
+     *
+     * @param decompress true if compressed input should be detected, otherwise false
+     * @return The Builder itself
+     * @see Compression
+     */
+    public Builder decompressInput(boolean decompress) {
+      config.decompressInput = decompress;
+      return this;
+    }
+
     /**
      * Adds an type converter for the given class
      *
@@ -88,35 +207,431 @@ public final class TikXml {
       return this;
     }
 
+    /**
+     * Adds an index of generated {@link TypeAdapter}s. Generated type adapters contained in the
+     * index are instantiated directly instead of being loaded via reflections.
+     *
+     * @param index The index, generated by the annotation processor
+     * @return The Builder itself
+     * @see TypeAdapterIndex
+     */
+    public Builder addAdapterIndex(TypeAdapterIndex index) {
+      config.typeAdapters.addIndex(index);
+      return this;
+    }
+
+    /**
+     * Adds all {@link TypeAdapterIndex}es registered for {@link ServiceLoader}. The annotation
+     * processor registers the indexes it generates.
+     *
+     * @param classLoader The class loader to load the indexes with
+     * @return The Builder itself
+     * @see TypeAdapterIndex
+     */
+    public Builder loadAdapterIndexes(ClassLoader classLoader) {
+      for (TypeAdapterIndex index : ServiceLoader.load(TypeAdapterIndex.class, classLoader)) {
+        config.typeAdapters.addIndex(index);
+      }
+      return this;
+    }
+
+    /**
+     * Shares the {@link TypeAdapter} and {@link TypeConverter} registry of the given {@link TikXml}
+     * instance. All type adapters and type converters that have not been added to this builder are
+     * taken from the other instance. Generated type adapters are loaded (via reflection) and cached
+     * only once by the other instance, no matter how many instances share its registry.
+     * Type adapters and type converters added to this builder are not visible to the other
+     * instance.
+     *
+     * <p>Lookups don't lock, so a registry can be shared by many threads.
+     *
+     * @param other The {@link TikXml} instance to share the registry with
+     * @return The Builder itself
+     */
+    public Builder shareTypeRegistryWith(TikXml other) {
+      if (other == null) {
+        throw new NullPointerException("other == null");
+      }
+      config.typeAdapters.setParent(other.config.typeAdapters);
+      config.typeConverters.setParent(other.config.typeConverters);
+      return this;
+    }
+
+    /**
+     * Resolves the {@link TypeAdapter}s of the given root types and of all types reachable from
+     * them (child elements, elements of lists, polymorphic types and generic type adapters) in
+     * {@link #build()}. Otherwise type adapters are loaded lazily the first time a type is read or
+     * written.
+     *
+     * @param types The root types, as passed to {@link TikXml#read(BufferedSource, Type)}
+     * @return The Builder itself
+     */
+    public Builder preload(Type... types) {
+      for (Type type : types) {
+        if (type == null) {
+          throw new NullPointerException("type == null");
+        }
+        preloadTypes.add(type);
+      }
+      return this;
+    }
+
+    /**
+     * Reads the given sample document 1000 times in {@link
+     * #build()}, so that the JIT compiles {@link XmlReader} and the (generated) type adapters
+     * before the first real document is read.
+     *
+     * @param type The type to read the sample into
+     * @param sample The sample document, read completely by this method
+     * @return The Builder itself
+     * @throws IOException if the sample can't be read from the source
+     * @see #warmUp(Type, BufferedSource, int)
+     */
+    public Builder warmUp(Type type, BufferedSource sample) throws IOException {
+      return warmUp(type, sample, DEFAULT_WARM_UP_ITERATIONS);
+    }
+
+    /**
+     * Reads the given sample document the given number of times in {@link #build()}, so that the
+     * JIT compiles {@link XmlReader} and the (generated) type adapters before the first real
+     * document is read. The sample is read without prefetching and decompression.
+     *
+     * @param type The type to read the sample into
+     * @param sample The sample document, read completely by this method
+     * @param iterations How often the sample is read
+     * @return The Builder itself
+     * @throws IOException if the sample can't be read from the source
+     */
+    public Builder warmUp(Type type, BufferedSource sample, int iterations) throws IOException {
+      if (type == null) {
+        throw new NullPointerException("type == null");
+      }
+      if (iterations < 0) {
+        throw new IllegalArgumentException("iterations < 0: " + iterations);
+      }
+      warmUpTypes.add(type);
+      warmUpSamples.add(sample.readByteString());
+      warmUpIterations.add(iterations);
+      return this;
+    }
+
     /**
      * @return {@link TikXml} instance with the specified config
+     * @throws IllegalArgumentException if a type passed to {@link #preload(Type...)} has no {@link
+     * TypeAdapter} or a warm up sample can't be read
      */
     public TikXml build() {
-      return new TikXml(config);
+      TikXml tikXml = new TikXml(config);
+
+      Preloader preloader = new Preloader(config);
+      for (Type type : preloadTypes) {
+        try {
+          preloader.preload(type);
+        } catch (TypeAdapterNotFoundException e) {
+          throw new IllegalArgumentException("Can't preload " + type + ": " + e.getMessage(), e);
+        }
+      }
+
+      for (int i = 0; i < warmUpTypes.size(); i++) {
+        Type type = warmUpTypes.get(i);
+        ByteString sample = warmUpSamples.get(i);
+        try {
+          for (int j = 0, iterations = warmUpIterations.get(i); j < iterations; j++) {
+            tikXml.readDocument(new Buffer().write(sample), type);
+          }
+        } catch (IOException e) {
+          throw new IllegalArgumentException(
+              "Warm up sample for " + type + " can't be read: " + e.getMessage(), e);
+        }
+      }
+
+      return tikXml;
     }
   }
 
   // Visible for testing
   final TikXmlConfig config;
 
+  /** Pools of readers and writers, null if pooling is disabled */
+  private final InstancePool<XmlReader> readerPool;
+  private final InstancePool<XmlWriter> writerPool;
+
   private TikXml(TikXmlConfig config) {
     this.config = config;
+    if (config.poolReadersAndWriters) {
+      int poolSize = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+      readerPool = new InstancePool<XmlReader>(poolSize);
+      writerPool = new InstancePool<XmlWriter>(poolSize);
+    } else {
+      readerPool = null;
+      writerPool = null;
+    }
   }
 
   public <T> T read(BufferedSource source, Type clazz) throws IOException {
+    Compression compression = config.decompressInput ? Compression.detect(source) : null;
+    if (compression == null) {
+      return readPrefetching(source, clazz);
+    }
+
+    // The caller closes the source, closing the decompressing source only releases the inflater
+    Source decompressing = compression.decompress(Compression.nonClosing(source));
+    try {
+      return readPrefetching(Okio.buffer(decompressing), clazz);
+    } finally {
+      decompressing.close();
+    }
+  }
+
+  /**
+   * Reads the xml document from the given source, with a {@link PrefetchingSource} if enabled
+   */
+  private <T> T readPrefetching(BufferedSource source, Type clazz) throws IOException {
+    if (config.prefetchBytes == 0) {
+      return readDocument(source, clazz);
+    }
+
+    PrefetchingSource prefetching =
+        new PrefetchingSource(source, config.prefetchBytes, config.prefetchExecutor);
+    try {
+      return readDocument(Okio.buffer(prefetching), clazz);
+    } finally {
+      prefetching.cancel();
+    }
+  }
 
-    XmlReader reader = XmlReader.of(source);
+  /**
+   * Reads the xml document from the given source without prefetching
+   */
+  private <T> T readDocument(BufferedSource source, Type clazz) throws IOException {
+    XmlReader reader = acquireReader(source);
+    try {
+      reader.beginElement();
+      reader.nextElementName(); // We don't care about the name of the root tag
 
-    reader.beginElement();
-    reader.nextElementName(); // We don't care about the name of the root tag
+      T value = (T)config.getTypeAdapter(clazz).fromXml(reader, config, false);
 
-    T value = (T)config.getTypeAdapter(clazz).fromXml(reader, config, false);
+      if (reader.hasElement()) {
+        reader.endElement();
+      }
 
-    if (reader.hasElement()) {
-      reader.endElement();
+      return value;
+    } finally {
+      releaseReader(reader);
     }
+  }
 
-    return value;
+  /**
+   * Reads the xml file at the given path by memory-mapping it (in windows, so that files of
+   * several GB can be read as well). This saves the read syscalls of a {@code FileInputStream},
+   * but the file content is still copied into the okio buffer of the {@link XmlReader}.
+   *
+   * @param path The path of the xml file
+   * @param clazz The type to read
+   * @return The parsed object
+   * @throws IOException
+   */
+  public <T> T read(Path path, Type clazz) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return read(channel, clazz);
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads xml from the given channel, starting at its current position, by memory-mapping it. See
+   * {@link #read(Path, Type)}. The channel is not closed.
+   *
+   * @param channel The channel to read from
+   * @param clazz The type to read
+   * @return The parsed object
+   * @throws IOException
+   */
+  public <T> T read(FileChannel channel, Type clazz) throws IOException {
+    return read(Okio.buffer(new MappedFileSource(channel, MappedFileSource.DEFAULT_WINDOW_SIZE)), clazz);
+  }
+
+  /**
+   * Reads all xml elements matching the given path one after another, without reading the whole
+   * document into memory. For example, {@code readStream(source, "/catalog/product",
+   * Product.class)} reads all {@code <product>} elements that are direct children of the root
+   * element {@code <catalog>}. A record is read with the {@link TypeAdapter} of the given type as
+   * soon as its closing tag has been reached. All other elements are skipped.
+   *
+   * <p>The returned iterator has to be closed, which also closes the source. If a record can't be
+   * read, the exception is thrown (see {@link XmlRecordIterator.ErrorPolicy#FAIL}).
+   *
+   * @param source The source to read from
+   * @param path The absolute path of the elements to read like {@code /catalog/product}
+   * @param clazz The type of a single record
+   * @return An iterator over the records
+   */
+  public <T> XmlRecordIterator<T> readStream(BufferedSource source, String path, Type clazz)
+      throws IOException {
+    return readStream(source, path, clazz, XmlRecordIterator.ErrorPolicy.FAIL);
+  }
+
+  /**
+   * Like {@link #readStream(BufferedSource, String, Type)}, but with the given policy for records
+   * that can't be read.
+   *
+   * @param source The source to read from
+   * @param path The absolute path of the elements to read like {@code /catalog/product}
+   * @param clazz The type of a single record
+   * @param errorPolicy What to do if a single record can't be read
+   * @return An iterator over the records
+   */
+  public <T> XmlRecordIterator<T> readStream(BufferedSource source, String path, Type clazz,
+      XmlRecordIterator.ErrorPolicy errorPolicy) throws IOException {
+    XmlReader.Options[] segments = XmlRecordIterator.parsePath(path);
+    TypeAdapter<T> adapter = config.getTypeAdapter(clazz);
+    Compression compression = config.decompressInput ? Compression.detect(source) : null;
+    if (compression != null) {
+      // Closing the iterator closes the source, as documented
+      source = Okio.buffer(compression.decompress(source));
+    }
+    return new XmlRecordIterator<T>(this, acquireReader(source), config, adapter, path, segments,
+        errorPolicy);
+  }
+
+  /**
+   * Reads all xml elements matching the given path of a (large) file in parallel on the common
+   * {@link ForkJoinPool}. See {@link #readParallel(Path, String, Type, ForkJoinPool)}.
+   *
+   * @param file The xml file
+   * @param path The absolute path of the elements to read like {@code /feed/entry}
+   * @param clazz The type of a single record
+   * @return All records in document order
+   */
+  public <T> List<T> readParallel(Path file, String path, Type clazz) throws IOException {
+    return readParallel(file, path, clazz, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Reads all xml elements matching the given path of a (large) file in parallel. This is meant
+   * for documents that mainly consist of a long list of independent records like the {@code
+   * <entry>} elements of a feed. The file is split into chunks at record boundaries by a fast
+   * pre-scan and every chunk is read on the given pool with its own {@link XmlReader}. Like with
+   * {@link #readStream(BufferedSource, String, Type)}, all elements not matching the path are
+   * skipped.
+   *
+   * @param file The xml file
+   * @param path The absolute path of the elements to read like {@code /feed/entry}
+   * @param clazz The type of a single record
+   * @param pool The pool to read the chunks on
+   * @return All records in document order
+   */
+  public <T> List<T> readParallel(Path file, String path, Type clazz, ForkJoinPool pool)
+      throws IOException {
+    XmlReader.Options[] segments = XmlRecordIterator.parsePath(path);
+    TypeAdapter<T> adapter = config.getTypeAdapter(clazz);
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long chunkSize = ParallelRecordReader.chunkSizeFor(channel.size(), pool);
+      return new ParallelRecordReader<T>(this, config, adapter, segments, channel, pool, chunkSize)
+          .read();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Creates a non-blocking parser for the xml elements matching the given path. Unlike {@link
+   * #readStream(BufferedSource, String, Type)}, the document is not read from a source but pushed
+   * into the parser chunk by chunk, so that no thread blocks while waiting for more input. See
+   * {@link XmlFeedParser}.
+   *
+   * @param path The absolute path of the elements to read like {@code /feed/entry}
+   * @param clazz The type of a single record
+   * @return A new parser
+   */
+  public <T> XmlFeedParser<T> feedParser(String path, Type clazz) throws IOException {
+    XmlReader.Options[] segments = XmlRecordIterator.parsePath(path);
+    TypeAdapter<T> adapter = config.getTypeAdapter(clazz);
+    return new XmlFeedParser<T>(this, config, adapter, segments);
+  }
+
+  /**
+   * Reads the whole xml document and pushes each element, attribute and text content to the given
+   * visitor, without binding anything to model classes. Attribute values and text contents are
+   * decoded into reusable {@link CharSequence}s, so scanning a document doesn't allocate a {@link
+   * String} per value (see {@link XmlVisitor}).
+   *
+   * @param source The source to read from
+   * @param visitor The visitor receiving the tokens
+   * @throws IOException
+   */
+  public void scan(BufferedSource source, XmlVisitor visitor) throws IOException {
+    ReusableCharSequence value = new ReusableCharSequence();
+    XmlReader reader = acquireReader(source);
+    try {
+      while (true) {
+        switch (reader.peek()) {
+          case ELEMENT_BEGIN:
+            reader.beginElement();
+            visitor.startElement(reader.nextElementName());
+            while (reader.hasAttribute()) {
+              String name = reader.nextAttributeName();
+              reader.nextAttributeValue(value);
+              visitor.attribute(name, value);
+            }
+            break;
+
+          case ELEMENT_TEXT_CONTENT:
+            reader.nextTextContent(value);
+            visitor.text(value);
+            break;
+
+          case ELEMENT_END:
+            reader.endElement();
+            visitor.endElement();
+            break;
+
+          case END_OF_DOCUMENT:
+            return;
+
+          default:
+            throw new IOException("Unexpected token " + reader.peek() + " at path " + reader.getPath());
+        }
+      }
+    } finally {
+      releaseReader(reader);
+    }
+  }
+
+  /**
+   * Writes the given value compressed with the given format. Compression happens while writing,
+   * so the uncompressed xml document is never held in memory. The sink is not closed.
+   *
+   * @param sink The sink to write the compressed xml document to
+   * @param valueToWrite The value to write
+   * @param compression The compression format
+   * @throws IOException
+   */
+  public <T> void write(BufferedSink sink, T valueToWrite, Compression compression)
+      throws IOException {
+    write(sink, valueToWrite, valueToWrite.getClass(), compression);
+  }
+
+  /**
+   * Like {@link #write(BufferedSink, Object, Compression)}, but for the given type
+   *
+   * @param sink The sink to write the compressed xml document to
+   * @param valueToWrite The value to write
+   * @param typeOfValueToWrite The type to write
+   * @param compression The compression format
+   * @throws IOException
+   */
+  public <T> void write(BufferedSink sink, T valueToWrite, Type typeOfValueToWrite,
+      Compression compression) throws IOException {
+    BufferedSink compressing = Okio.buffer(compression.compress(Compression.nonClosing(sink)));
+    try {
+      write(compressing, valueToWrite, typeOfValueToWrite);
+    } finally {
+      compressing.close(); // Writes the remaining compressed bytes (trailer) to the sink
+    }
   }
 
   public <T> void write(BufferedSink sink, T valueToWrite) throws IOException {
@@ -125,12 +640,39 @@ public final class TikXml {
 
   public <T> void write(BufferedSink sink, T valueToWrite, Type typeOfValueToWrite) throws IOException {
 
-    XmlWriter writer = XmlWriter.of(sink);
+    XmlWriter writer = acquireWriter(sink);
+    try {
+      TypeAdapter<T> adapter = config.getTypeAdapter(typeOfValueToWrite);
+      if (config.writeDefaultXmlDeclaration()) {
+        writer.xmlDeclaration();
+      }
+      adapter.toXml(writer, config, valueToWrite, null);
+    } finally {
+      releaseWriter(writer);
+    }
+  }
+
+  XmlReader acquireReader(BufferedSource source) { // package visibility
+    XmlReader reader = readerPool != null ? readerPool.acquire() : null;
+    return reader != null ? reader.reset(source) : XmlReader.of(source);
+  }
+
+  void releaseReader(XmlReader reader) { // package visibility
+    if (readerPool != null) {
+      reader.clear(); // Don't keep a reference to the source
+      readerPool.release(reader);
+    }
+  }
+
+  private XmlWriter acquireWriter(BufferedSink sink) {
+    XmlWriter writer = writerPool != null ? writerPool.acquire() : null;
+    return writer != null ? writer.reset(sink) : XmlWriter.of(sink);
+  }
 
-    TypeAdapter<T> adapter = config.getTypeAdapter(typeOfValueToWrite);
-    if (config.writeDefaultXmlDeclaration()) {
-      writer.xmlDeclaration();
+  private void releaseWriter(XmlWriter writer) {
+    if (writerPool != null) {
+      writer.clear(); // Don't keep a reference to the sink
+      writerPool.release(writer);
     }
-    adapter.toXml(writer, config, valueToWrite, null);
   }
 }
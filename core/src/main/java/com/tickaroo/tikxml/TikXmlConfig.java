@@ -20,7 +20,9 @@ package com.tickaroo.tikxml;
 
 import com.tickaroo.tikxml.typeadapter.TypeAdapter;
 
+import java.io.File;
 import java.lang.reflect.Type;
+import java.util.concurrent.Executor;
 
 /**
  * Holds the config for parsing and writing xml via {@link TikXml}
@@ -34,6 +36,12 @@ public final class TikXmlConfig {
   TypeConverters typeConverters = new TypeConverters();
   TypeAdapters typeAdapters = new TypeAdapters();
   boolean writeDefaultXmlDeclaration = true;
+  long largeTextThreshold = 1024 * 1024;
+  File largeTextDirectory = null;
+  boolean poolReadersAndWriters = false;
+  long prefetchBytes = 0;
+  boolean decompressInput = false;
+  Executor prefetchExecutor = PrefetchingSource.NEW_THREAD_EXECUTOR;
 
   TikXmlConfig() {
   }
@@ -58,6 +66,25 @@ public final class TikXmlConfig {
     return writeDefaultXmlDeclaration;
   }
 
+  /**
+   * Max. number of bytes of a {@link LargeText} that are held in memory. Larger text contents are
+   * streamed into a temporary file.
+   *
+   * @return The threshold in bytes
+   */
+  public long largeTextThreshold() {
+    return largeTextThreshold;
+  }
+
+  /**
+   * The directory where temporary files of {@link LargeText} are stored.
+   *
+   * @return The directory or null if the default temporary directory should be used
+   */
+  public File largeTextDirectory() {
+    return largeTextDirectory;
+  }
+
   /**
    * Query a {@link TypeConverter} for a given class
    *
@@ -19,22 +19,33 @@
 package com.tickaroo.tikxml;
 
 import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import com.tickaroo.tikxml.typeadapter.TypeAdapterIndex;
 import java.io.IOException;
 import java.lang.reflect.Type;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
 
 /**
- * Class is responsible to manage and load {@link TypeAdapter}
+ * Class is responsible to manage and load {@link TypeAdapter}. It is safe to use from multiple
+ * threads: lookups don't lock, and if a generated {@link TypeAdapter} is loaded by multiple threads
+ * at the same time, all of them get the same instance.
  *
  * @author Hannes Dorfmann
  * @since 1.0
  */
 final class TypeAdapters {
 
-  private final static String AUTO_VALUE_NAME_PREFIX = "\\$*AutoValue_.+";
-  private final Map<Type, TypeAdapter<?>> adaptersCache = new HashMap<>();
-  private final Map<Type, TypeAdapter<?>> genericAdaptersCache = new HashMap<>();
+  private final static Pattern AUTO_VALUE_NAME_PREFIX = Pattern.compile("\\$*AutoValue_.+");
+  private final ConcurrentMap<Type, TypeAdapter<?>> adaptersCache = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Type, TypeAdapter<?>> genericAdaptersCache =
+      new ConcurrentHashMap<>();
+  /** Asked for generated adapters before they are loaded via reflections */
+  private final List<TypeAdapterIndex> indexes = new CopyOnWriteArrayList<>();
+  /** Asked for adapters that have not been added to this instance, may be null */
+  private TypeAdapters parent;
 
   TypeAdapters() {
   } // package visibility
@@ -50,6 +61,34 @@ final class TypeAdapters {
     adaptersCache.put(clazz, adapter);
   }
 
+  /**
+   * Add a {@link TypeAdapterIndex} that is asked for generated {@link TypeAdapter}s before they are
+   * loaded via reflections
+   *
+   * @param index The index
+   */
+  void addIndex(TypeAdapterIndex index) {
+    if (index == null) {
+      throw new NullPointerException("index == null");
+    }
+    indexes.add(index);
+  }
+
+  /**
+   * Sets the registry that is asked for all adapters that have not been added to this instance.
+   * Generated adapters are loaded and cached by the parent, so they are shared by all children.
+   *
+   * @param parent The parent or null
+   */
+  void setParent(TypeAdapters parent) {
+    for (TypeAdapters p = parent; p != null; p = p.parent) {
+      if (p == this) {
+        throw new IllegalArgumentException("Cyclic parent");
+      }
+    }
+    this.parent = parent;
+  }
+
   /**
    * Get the a {@link TypeAdapter} for the given class
    *
@@ -75,7 +114,7 @@ final class TypeAdapters {
   public <T> TypeAdapter<T> get(Type type, boolean generic) throws TypeAdapterNotFoundException {
     type = Types.canonicalize(type);
 
-    Map<Type, TypeAdapter<?>> cache;
+    ConcurrentMap<Type, TypeAdapter<?>> cache;
     if (generic) {
       cache = genericAdaptersCache;
     } else {
@@ -86,6 +125,20 @@ final class TypeAdapters {
 
     if (adapter != null) {
       return adapter;
+    }
+
+    if (type instanceof Class) {
+      for (TypeAdapterIndex index : indexes) {
+        @SuppressWarnings("unchecked") // The index returns the type adapter generated for the type
+        TypeAdapter<T> indexedAdapter = (TypeAdapter<T>) index.newTypeAdapter((Class<?>) type, generic);
+        if (indexedAdapter != null) {
+          return cacheIfAbsent(cache, type, indexedAdapter);
+        }
+      }
+    }
+
+    if (parent != null) {
+      return parent.get(type, generic);
     } else if (type instanceof Class) {
       Class clazz = (Class) type;
       // try to load TypeAdapter via reflections
@@ -115,16 +168,14 @@ final class TypeAdapters {
               (Class<TypeAdapter<T>>) Class.forName(qualifiedTypeAdapterClassName.toString());
 
           TypeAdapter<T> adapterInstance = adapterClass.newInstance();
-          cache.put(clazz, adapterInstance);
-          return adapterInstance;
+          return cacheIfAbsent(cache, clazz, adapterInstance);
         } catch (ClassNotFoundException e) {
-          if (clazz.getSimpleName().matches(AUTO_VALUE_NAME_PREFIX)) {
+          if (AUTO_VALUE_NAME_PREFIX.matcher(clazz.getSimpleName()).matches()) {
             // Special case for Auto_Value generated classe we have to scan the inheritance hierarchy
             Class<?> superClass = clazz.getSuperclass();
             if (superClass != null) {
               TypeAdapter<T> superClassAdapter = get(superClass);
-              cache.put(clazz, superClassAdapter);
-              return superClassAdapter;
+              return cacheIfAbsent(cache, clazz, superClassAdapter);
             } else {
               // No more super class
               throw new TypeAdapterNotFoundException("No TypeAdapter for class "
@@ -150,4 +201,16 @@ final class TypeAdapters {
           "No generated nor manually added TypeAdapter has been found for " + type.toString());
     }
   }
+
+  /**
+   * Caches the given adapter unless another thread has been faster
+   *
+   * @return The cached adapter
+   */
+  private static <T> TypeAdapter<T> cacheIfAbsent(ConcurrentMap<Type, TypeAdapter<?>> cache,
+      Type type, TypeAdapter<T> adapter) {
+    @SuppressWarnings("unchecked") // Only adapters of the type are cached for a type
+    TypeAdapter<T> existing = (TypeAdapter<T>) cache.putIfAbsent(type, adapter);
+    return existing != null ? existing : adapter;
+  }
 }
@@ -19,18 +19,22 @@
 package com.tickaroo.tikxml;
 
 import java.lang.reflect.Type;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * This class is internally responsible to manage {@link TypeConverter}
+ * This class is internally responsible to manage {@link TypeConverter}. It is safe to use from
+ * multiple threads, lookups don't lock.
  *
  * @author Hannes Dorfmann
  * @since 1.0
  */
 final class TypeConverters {
 
-  private final Map<Type, TypeConverter<?>> cache = new HashMap<Type, TypeConverter<?>>();
+  private final ConcurrentMap<Type, TypeConverter<?>> cache =
+      new ConcurrentHashMap<Type, TypeConverter<?>>();
+  /** Asked for converters that have not been added to this instance, may be null */
+  private TypeConverters parent;
 
   TypeConverters() {
   } // package visibility
@@ -48,6 +52,21 @@ final class TypeConverters {
     return this;
   }
 
+  /**
+   * Sets the converters that are asked for all converters that have not been added to this
+   * instance
+   *
+   * @param parent The parent or null
+   */
+  void setParent(TypeConverters parent) {
+    for (TypeConverters p = parent; p != null; p = p.parent) {
+      if (p == this) {
+        throw new IllegalArgumentException("Cyclic parent");
+      }
+    }
+    this.parent = parent;
+  }
+
   /**
    * Get a type converter for the given class
    *
@@ -57,6 +76,9 @@ final class TypeConverters {
    */
   public <T> TypeConverter<T> get(Type clazz) throws TypeConverterNotFoundException {
     TypeConverter<T> converter = (TypeConverter<T>) cache.get(clazz);
+    if (converter == null && parent != null) {
+      return parent.get(clazz);
+    }
     if (converter == null) {
       throw new TypeConverterNotFoundException("No "
           + TypeConverter.class.getSimpleName()
@@ -36,4 +36,8 @@ public final class XmlDataException extends IOException {
   public XmlDataException(String message) {
     super(message);
   }
+
+  public XmlDataException(String message, Throwable cause) {
+    super(message, cause);
+  }
 }
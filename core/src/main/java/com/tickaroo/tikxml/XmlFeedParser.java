@@ -0,0 +1,460 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * A non-blocking parser for xml documents that arrive in chunks, i.e. the body of a http response
+ * read on an event loop. Instead of pulling bytes from a source (and blocking until they are
+ * available) like {@link XmlReader}, bytes are pushed into this parser with {@link
+ * #feed(ByteBuffer)} and the records (xml elements at a given path like {@code /feed/entry}) are
+ * pulled with {@link #next()} as soon as they are complete:
+ *
+ * <pre>
+ * XmlFeedParser&lt;Entry&gt; parser = tikXml.feedParser("/feed/entry", Entry.class);
+ *
+ * // Whenever a chunk arrives:
+ * parser.feed(chunk);
+ * while (parser.next() == XmlFeedParser.State.RECORD) {
+ *   Entry entry = parser.record();
+ * }
+ *
+ * // After the last chunk:
+ * parser.endOfInput();
+ * while (parser.next() == XmlFeedParser.State.RECORD) { ... }
+ * </pre>
+ *
+ * <p>The document is scanned on byte level by a small state machine that keeps its state between
+ * calls and only looks at every byte once. It only tracks tags, quotes, comments, CDATA sections
+ * and processing instructions to find the boundaries of the records. Only the bytes of the current
+ * record are buffered, everything else is discarded as soon as it has been scanned. Once a record
+ * is complete, it is read from memory with a regular {@link XmlReader} and {@link TypeAdapter},
+ * hence this never blocks.
+ *
+ * <p>Instances are created with {@link TikXml#feedParser(String, java.lang.reflect.Type)}. This
+ * class is not thread safe.
+ */
+public final class XmlFeedParser<T> {
+
+  /**
+   * The result of {@link #next()}
+   */
+  public enum State {
+    /**
+     * A record has been read and can be retrieved with {@link #record()}
+     */
+    RECORD,
+
+    /**
+     * More input is needed, see {@link #feed(ByteBuffer)} and {@link #endOfInput()}
+     */
+    NEED_MORE_INPUT,
+
+    /**
+     * The whole document has been read
+     */
+    END_OF_DOCUMENT
+  }
+
+  /** What is currently scanned */
+  private static final int TEXT = 0;
+  private static final int MARKUP = 1; // Right after '<'
+  private static final int START_TAG = 2;
+  private static final int END_TAG = 3;
+  private static final int COMMENT = 4;
+  private static final int CDATA = 5;
+  private static final int PROCESSING_INSTRUCTION = 6;
+  private static final int DECLARATION = 7; // Like <!DOCTYPE ...>
+
+  private static final ByteString COMMENT_OPEN = ByteString.encodeUtf8("<!--");
+  private static final ByteString COMMENT_CLOSE = ByteString.encodeUtf8("-->");
+  private static final ByteString CDATA_OPEN = ByteString.encodeUtf8("<![CDATA[");
+  private static final ByteString CDATA_CLOSE = ByteString.encodeUtf8("]]>");
+  private static final ByteString PROCESSING_INSTRUCTION_CLOSE = ByteString.encodeUtf8("?>");
+  private static final ByteString TAG_TERMINALS = ByteString.encodeUtf8(">\"'");
+  private static final ByteString DECLARATION_TERMINALS = ByteString.encodeUtf8(">\"'[]");
+
+  private final TikXml tikXml;
+  private final TikXmlConfig config;
+  private final TypeAdapter<T> adapter;
+  private final XmlReader.Options[] segments;
+
+  /** The bytes that have been fed but not consumed yet */
+  private final Buffer pending = new Buffer();
+  private final Buffer.UnsafeCursor cursor = new Buffer.UnsafeCursor();
+  private boolean endOfInput = false;
+
+  private int state = TEXT;
+  /** Index of the next byte to scan in {@link #pending} */
+  private long pos = 0;
+  /** Index of the '<' of the markup that is currently scanned */
+  private long markupStart = 0;
+  /** The quote char if we are in a quoted attribute value, otherwise 0 */
+  private byte quote = 0;
+  /** Nesting of [ ] in a declaration */
+  private int brackets = 0;
+
+  /** Number of open elements */
+  private int depth = 0;
+  /** Number of path segments the open elements match */
+  private int matched = 0;
+  /** Depth of the current record's element or -1 if not in a record */
+  private int recordDepth = -1;
+
+  private T record;
+  private boolean hasRecord = false;
+
+  XmlFeedParser(TikXml tikXml, TikXmlConfig config, TypeAdapter<T> adapter,
+      XmlReader.Options[] segments) {
+    this.tikXml = tikXml;
+    this.config = config;
+    this.adapter = adapter;
+    this.segments = segments;
+  }
+
+  /**
+   * Appends the remaining bytes of the given buffer to the input. The bytes are copied, so the
+   * buffer can be reused afterwards.
+   *
+   * @param bytes The next chunk of the document
+   */
+  public void feed(ByteBuffer bytes) throws IOException {
+    if (endOfInput) {
+      throw new IllegalStateException("endOfInput() has already been called");
+    }
+    pending.write(bytes);
+  }
+
+  /**
+   * Appends (moves) all bytes of the given buffer to the input without copying them
+   *
+   * @param bytes The next chunk of the document
+   */
+  void feed(Buffer bytes) {
+    if (endOfInput) {
+      throw new IllegalStateException("endOfInput() has already been called");
+    }
+    pending.write(bytes, bytes.size());
+  }
+
+  /**
+   * Signals that all chunks have been fed. Afterwards {@link #next()} never returns {@link
+   * State#NEED_MORE_INPUT}.
+   */
+  public void endOfInput() {
+    endOfInput = true;
+  }
+
+  /**
+   * Scans the input fed so far until the next record is complete.
+   *
+   * @return {@link State#RECORD} if a record has been read, {@link State#NEED_MORE_INPUT} if all
+   * input fed so far has been scanned, or {@link State#END_OF_DOCUMENT} after {@link #endOfInput()}
+   * if there are no more records.
+   * @throws IOException If the document (or a record) is malformed or ends unexpectedly
+   */
+  public State next() throws IOException {
+    hasRecord = false;
+    record = null;
+
+    while (true) {
+      if (!scan()) {
+        if (!endOfInput) {
+          return State.NEED_MORE_INPUT;
+        }
+        if (state != TEXT || depth > 0) {
+          throw new EOFException("Unexpected end of input. "
+              + depth
+              + " xml element(s) not closed.");
+        }
+        pending.clear();
+        pos = 0;
+        return State.END_OF_DOCUMENT;
+      }
+
+      if (recordDepth == -1) {
+        // Not in a record: discard everything that has been scanned
+        pending.skip(pos);
+        pos = 0;
+      } else if (depth == recordDepth) {
+        // The record's element has just been closed
+        Buffer bytes = new Buffer();
+        bytes.write(pending, pos);
+        pos = 0;
+        recordDepth = -1;
+        record = readRecord(bytes);
+        hasRecord = true;
+        return State.RECORD;
+      }
+    }
+  }
+
+  /**
+   * Returns the record that has been read by the last call of {@link #next()}
+   *
+   * @return The record
+   * @throws NoSuchElementException if the last call of {@link #next()} didn't return {@link
+   * State#RECORD}
+   */
+  public T record() {
+    if (!hasRecord) {
+      throw new NoSuchElementException("No record available. next() didn't return RECORD");
+    }
+    return record;
+  }
+
+  /**
+   * Scans the next piece of markup (a tag, comment, etc. including the text in front of it)
+   *
+   * @return true if a piece of markup has been scanned completely, false if more input is needed
+   */
+  private boolean scan() throws IOException {
+    while (true) {
+      switch (state) {
+        case TEXT: {
+          long index = Swar.indexOf(pending, (byte) '<', pos, cursor);
+          if (index == -1) {
+            pos = pending.size();
+            return false;
+          }
+          markupStart = index;
+          pos = index + 1;
+          state = MARKUP;
+          break;
+        }
+
+        case MARKUP: {
+          if (pos >= pending.size()) {
+            return false;
+          }
+          byte c = pending.getByte(pos);
+          if (c == '/') {
+            pos++;
+            state = END_TAG;
+          } else if (c == '?') {
+            pos++;
+            state = PROCESSING_INSTRUCTION;
+          } else if (c == '!') {
+            int comment = startsWith(markupStart, COMMENT_OPEN);
+            int cdata = startsWith(markupStart, CDATA_OPEN);
+            if (comment == 1) {
+              pos = markupStart + COMMENT_OPEN.size();
+              state = COMMENT;
+            } else if (cdata == 1) {
+              pos = markupStart + CDATA_OPEN.size();
+              state = CDATA;
+            } else if (comment == -1 || cdata == -1) {
+              return false;
+            } else {
+              pos++;
+              brackets = 0;
+              state = DECLARATION;
+            }
+          } else {
+            state = START_TAG;
+          }
+          break;
+        }
+
+        case START_TAG: {
+          long index = indexOfTerminal(TAG_TERMINALS);
+          if (index == -1) {
+            return false;
+          }
+          if (pending.getByte(index) != '>') {
+            continue; // quote opened or closed
+          }
+          pos = index + 1;
+          state = TEXT;
+          startElement(pending.getByte(index - 1) == '/');
+          return true;
+        }
+
+        case END_TAG: {
+          long index = Swar.indexOf(pending, (byte) '>', pos, cursor);
+          if (index == -1) {
+            pos = pending.size();
+            return false;
+          }
+          pos = index + 1;
+          state = TEXT;
+          endElement();
+          return true;
+        }
+
+        case COMMENT:
+          return skipTo(COMMENT_CLOSE);
+
+        case CDATA:
+          return skipTo(CDATA_CLOSE);
+
+        case PROCESSING_INSTRUCTION:
+          return skipTo(PROCESSING_INSTRUCTION_CLOSE);
+
+        case DECLARATION: {
+          long index = indexOfTerminal(DECLARATION_TERMINALS);
+          if (index == -1) {
+            return false;
+          }
+          byte c = pending.getByte(index);
+          if (c == '[') {
+            brackets++;
+          } else if (c == ']') {
+            brackets--;
+          } else if (c == '>' && brackets == 0) {
+            state = TEXT;
+            return true;
+          }
+          break;
+        }
+
+        default:
+          throw new AssertionError("Unknown state " + state);
+      }
+    }
+  }
+
+  /**
+   * Called after a start tag has been scanned completely
+   *
+   * @param empty true if it is an empty element like {@code <element />}
+   */
+  private void startElement(boolean empty) throws IOException {
+    if (recordDepth == -1 && depth == matched
+        && isName(markupStart + 1, segments[matched].byteStrings[0])) {
+      if (matched == segments.length - 1) {
+        // A new record starts. Discard everything before it.
+        pending.skip(markupStart);
+        pos -= markupStart;
+        markupStart = 0;
+        recordDepth = depth;
+      } else if (!empty) {
+        matched++;
+      }
+    }
+    if (!empty) {
+      depth++;
+    }
+  }
+
+  private void endElement() throws IOException {
+    if (depth == 0) {
+      throw new IOException("Unexpected closing xml element. There is no open element");
+    }
+    if (recordDepth == -1 && matched == depth) {
+      matched--;
+    }
+    depth--;
+  }
+
+  /**
+   * Finds the next byte of the given terminals (with {@code pos} as the starting point), skipping
+   * quoted attribute values. Updates {@link #pos} and {@link #quote}.
+   *
+   * @return The index of the terminal or a quote, or -1 if more input is needed
+   */
+  private long indexOfTerminal(ByteString terminals) {
+    long index;
+    if (quote != 0) {
+      index = Swar.indexOf(pending, quote, pos, cursor);
+      if (index != -1) {
+        quote = 0;
+      }
+    } else {
+      index = pending.indexOfElement(terminals, pos);
+      if (index != -1) {
+        byte c = pending.getByte(index);
+        if (c == '"' || c == '\'') {
+          quote = c;
+        }
+      }
+    }
+
+    if (index == -1) {
+      pos = pending.size();
+    } else {
+      pos = index + 1;
+    }
+    return index;
+  }
+
+  /**
+   * Skips everything up to and including the given terminator
+   *
+   * @return true if the terminator has been found, false if more input is needed
+   */
+  private boolean skipTo(ByteString terminator) throws IOException {
+    long index = pending.indexOf(terminator, pos);
+    if (index == -1) {
+      // The terminator might be split across chunks
+      pos = Math.max(pos, pending.size() - terminator.size() + 1);
+      return false;
+    }
+    pos = index + terminator.size();
+    state = TEXT;
+    return true;
+  }
+
+  /**
+   * Checks if the bytes at the given index start with the given prefix
+   *
+   * @return 1 if so, 0 if not, -1 if not enough bytes are available to decide
+   */
+  private int startsWith(long index, ByteString prefix) {
+    long available = Math.min(pending.size() - index, prefix.size());
+    for (int i = 0; i < available; i++) {
+      if (pending.getByte(index + i) != prefix.getByte(i)) {
+        return 0;
+      }
+    }
+    return available == prefix.size() ? 1 : -1;
+  }
+
+  /**
+   * Checks if the element name at the given index of a completely scanned start tag is the given
+   * one
+   */
+  private boolean isName(long index, ByteString name) {
+    if (!pending.rangeEquals(index, name)) {
+      return false;
+    }
+    byte c = pending.getByte(index + name.size());
+    return c == ' ' || c == '>' || c == '/' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  private T readRecord(Buffer bytes) throws IOException {
+    XmlReader reader = tikXml.acquireReader(bytes);
+    try {
+      reader.beginElement();
+      reader.nextElementName();
+      T value = adapter.fromXml(reader, config, false);
+      reader.endElement();
+      return value;
+    } finally {
+      tikXml.releaseReader(reader);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * A symbol table for xml element and attribute names used by {@link XmlReader}. Names are matched
+ * against the raw bytes of the buffer, so a name that has already been seen is not decoded again
+ * and always the same (canonical) {@link String} instance is returned.
+ *
+ * The table is bounded: very long names or names seen after the table is full are not interned
+ * at all. The caller has to decode them as usual.
+ */
+final class XmlNameTable {
+
+  /** Names longer than this are not interned */
+  static final int MAX_NAME_LENGTH = 128;
+
+  /** Max. number of names in the table. Protects against documents with unbounded name sets */
+  private static final int MAX_SIZE = 1024;
+
+  private int[] hashes = new int[64];
+  private ByteString[] bytes = new ByteString[64];
+  private String[] names = new String[64];
+  private int size = 0;
+
+  XmlNameTable() {
+  } // package visibility
+
+  /**
+   * Looks up the name that is made of the first {@code byteCount} bytes of the given buffer and
+   * adds it to the table if it hasn't been seen before. This method doesn't consume any bytes of
+   * the buffer.
+   *
+   * @param buffer The buffer where the name starts at position 0
+   * @param byteCount The length of the name in bytes
+   * @return The slot of the name. Use {@link #name(int)} and {@link #bytes(int)} to access it. -1
+   * if the name is not interned (too long or table is full).
+   */
+  int intern(Buffer buffer, long byteCount) {
+    if (byteCount <= 0 || byteCount > MAX_NAME_LENGTH) {
+      return -1;
+    }
+
+    int length = (int) byteCount;
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + buffer.getByte(i);
+    }
+
+    int mask = hashes.length - 1;
+    int slot = hash & mask;
+    while (bytes[slot] != null) {
+      if (hashes[slot] == hash
+          && bytes[slot].size() == length
+          && buffer.rangeEquals(0, bytes[slot])) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    // Not found, so add it
+    if (size == MAX_SIZE) {
+      return -1;
+    }
+
+    ByteString nameBytes = buffer.snapshot(length);
+    if (++size * 2 > hashes.length) {
+      grow();
+      mask = hashes.length - 1;
+      slot = hash & mask;
+      while (bytes[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    hashes[slot] = hash;
+    bytes[slot] = nameBytes;
+    names[slot] = nameBytes.utf8();
+    return slot;
+  }
+
+  /**
+   * Get the name of a given slot as String
+   */
+  String name(int slot) {
+    return names[slot];
+  }
+
+  /**
+   * Get the name of a given slot as raw bytes
+   */
+  ByteString bytes(int slot) {
+    return bytes[slot];
+  }
+
+  /**
+   * Doubles the capacity of the table
+   */
+  private void grow() {
+    int[] oldHashes = hashes;
+    ByteString[] oldBytes = bytes;
+    String[] oldNames = names;
+
+    int capacity = oldHashes.length * 2;
+    hashes = new int[capacity];
+    bytes = new ByteString[capacity];
+    names = new String[capacity];
+
+    int mask = capacity - 1;
+    for (int i = 0; i < oldHashes.length; i++) {
+      if (oldBytes[i] != null) {
+        int slot = oldHashes[i] & mask;
+        while (bytes[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        hashes[slot] = oldHashes[i];
+        bytes[slot] = oldBytes[i];
+        names[slot] = oldNames[i];
+      }
+    }
+  }
+}
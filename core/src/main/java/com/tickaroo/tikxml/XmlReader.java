@@ -22,10 +22,13 @@ package com.tickaroo.tikxml;
 import okio.Buffer;
 import okio.BufferedSource;
 import okio.ByteString;
+import okio.Sink;
 
 import java.io.Closeable;
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * A class to read and parse an xml stream.
@@ -40,9 +43,13 @@ public class XmlReader implements Closeable {
   private static final ByteString UNQUOTED_STRING_TERMINALS
       = ByteString.encodeUtf8(" >/=\n");
 
+  /** Characters that are interesting while skipping the attributes of an opening xml tag */
+  private static final ByteString START_TAG_TERMINALS = ByteString.encodeUtf8("\"'/>");
+
   private static final ByteString CDATA_CLOSE = ByteString.encodeUtf8("]]>");
   private static final ByteString CDATA_OPEN = ByteString.encodeUtf8("<![CDATA[");
   private static final ByteString DOCTYPE_OPEN = ByteString.encodeUtf8("<!DOCTYPE");
+  private static final ByteString COMMENT_OPEN = ByteString.encodeUtf8("<!--");
   private static final ByteString COMMENT_CLOSE = ByteString.encodeUtf8("-->");
   private static final ByteString XML_DECLARATION_CLOSE = ByteString.encodeUtf8("?>");
   private static final ByteString UTF8_BOM = ByteString.of((byte) 0xEF, (byte) 0xBB, (byte) 0xBF);
@@ -54,6 +61,18 @@ public class XmlReader implements Closeable {
   private static final byte OPENING_DOCTYPE_BRACKET = '[';
   private static final byte CLOSING_DOCTYPE_BRACKET = ']';
 
+  /** Returned by {@link #textContentEnd()} for an element without any text content */
+  private static final long EMPTY_TEXT_CONTENT = -2L;
+
+  /** The max. number of significant digits of a decimal number that can be converted exactly */
+  private static final int MAX_EXACT_DOUBLE_DIGITS = 15;
+
+  /** All powers of ten that are exactly representable as double */
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+      1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
   //
   // Peek states
   //
@@ -85,6 +104,15 @@ public class XmlReader implements Closeable {
   private String[] pathNames = new String[32];
   private int[] pathIndices = new int[32];
 
+  /**
+   * The raw bytes of the element names in {@link #pathNames}. Used to check closing tags by
+   * comparing bytes.
+   */
+  private ByteString[] pathNameBytes = new ByteString[32];
+
+  /** Symbol table to avoid decoding the same element and attribute names over and over again */
+  private final XmlNameTable nameTable = new XmlNameTable();
+
   /*
    * The nesting stack. Using a manual array rather than an ArrayList saves 20%.
    */
@@ -95,10 +123,17 @@ public class XmlReader implements Closeable {
     stack[stackSize++] = XmlScope.EMPTY_DOCUMENT;
   }
 
-  private final BufferedSource source;
-  private final Buffer buffer;
+  private BufferedSource source;
+  private Buffer buffer;
+  /** Used to scan the segments of the buffer, see {@link Swar} */
+  private final Buffer.UnsafeCursor cursor = new Buffer.UnsafeCursor();
   private String currentElementName;
 
+  /** Result of the last successful {@link #parseLong(long, long, long, long)} */
+  private long parsedLong;
+  /** Result of the last successful {@link #parseDouble(long, long)} */
+  private double parsedDouble;
+
   private XmlReader(BufferedSource source) {
     if (source == null) {
       throw new NullPointerException("source == null");
@@ -114,6 +149,44 @@ public class XmlReader implements Closeable {
     return new XmlReader(source);
   }
 
+  /**
+   * Resets this reader so that it can be reused to read another XML-encoded stream from {@code
+   * source}. All parsing state is cleared, but the internal (already grown) arrays and the table of
+   * known element and attribute names are kept, so that no allocations are needed for that.
+   *
+   * <p> The previous source is not closed. </p>
+   *
+   * @param source The new source to read from
+   * @return this reader
+   */
+  public XmlReader reset(BufferedSource source) {
+    if (source == null) {
+      throw new NullPointerException("source == null");
+    }
+    clear();
+    this.source = source;
+    this.buffer = source.getBuffer();
+    return this;
+  }
+
+  /**
+   * Clears the parsing state and releases the reference to the current source (i.e. before putting
+   * this reader into a pool)
+   */
+  void clear() {
+    source = null;
+    buffer = null;
+    peeked = PEEKED_NONE;
+    currentElementName = null;
+    // The arrays are not necessarily cleaned up above stackSize (i.e. after a parsing error)
+    Arrays.fill(pathNames, null);
+    Arrays.fill(pathNameBytes, null);
+    Arrays.fill(pathIndices, 0);
+    Arrays.fill(stack, 0);
+    stackSize = 0;
+    stack[stackSize++] = XmlScope.EMPTY_DOCUMENT;
+  }
+
   /**
    * Get the next token without consuming it.
    *
@@ -272,9 +345,10 @@ public class XmlReader implements Closeable {
 
           buffer.readByte(); // consume /
 
-          // Check if it is the corresponding xml element name
-          String closingElementName = nextUnquotedValue();
-          if (closingElementName != null && closingElementName.equals(pathNames[stackSize - 1])) {
+          // Check if it is the corresponding xml element name by comparing bytes
+          ByteString openingElementName = pathNameBytes[stackSize - 1];
+          if (openingElementName != null && isNextUnquotedValue(openingElementName)) {
+            buffer.skip(openingElementName.size());
 
             if (nextNonWhitespace(false) == '>') {
               buffer.readByte(); // consume >
@@ -286,7 +360,7 @@ public class XmlReader implements Closeable {
             syntaxError("Expected a closing element tag </"
                 + pathNames[stackSize - 1]
                 + "> but found </"
-                + closingElementName
+                + nextUnquotedValue()
                 + ">");
           }
         }
@@ -412,6 +486,32 @@ public class XmlReader implements Closeable {
     return result;
   }
 
+  /**
+   * If the next attribute name is in {@code options}, this consumes it and returns its index.
+   * Otherwise this returns -1 and no name is consumed, so that the caller can still read it with
+   * {@link #nextAttributeName()} or skip it. Names are compared byte by byte, so no String is
+   * decoded. Assumes that {@link #beginElement()} has been called before.
+   *
+   * @param options The expected attribute names
+   * @return The index of the attribute name in options or -1 if not found
+   */
+  public int selectAttributeName(Options options) throws IOException {
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      p = doPeek();
+    }
+    if (p != PEEKED_ATTRIBUTE_NAME) {
+      throw syntaxError("Expected xml element attribute name but was " + peek());
+    }
+
+    int index = selectUnquotedValue(options);
+    if (index != -1) {
+      peeked = PEEKED_NONE;
+      pathNames[stackSize - 1] = options.strings[index];
+    }
+    return index;
+  }
+
   /**
    * Consumes the next attribute's value. Assumes that {@link #nextAttributeName()} has been called
    * before invoking this method
@@ -450,8 +550,14 @@ public class XmlReader implements Closeable {
    * @throws IOException
    */
   public int nextAttributeValueAsInt() throws IOException {
-    // TODO natively support integer
-    return Integer.parseInt(nextAttributeValue());
+    long end = attributeValueEnd();
+    if (end != -1L && parseLong(0, end, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+      consumeAttributeValue(end);
+      return (int) parsedLong;
+    }
+
+    // Not a plain decimal number, so let Integer.parseInt() decide (and report the error)
+    return Integer.parseInt(nextAttributeValue().trim());
   }
 
   /**
@@ -462,8 +568,14 @@ public class XmlReader implements Closeable {
    * @throws IOException
    */
   public long nextAttributeValueAsLong() throws IOException {
-    // TODO natively support long
-    return Long.parseLong(nextAttributeValue());
+    long end = attributeValueEnd();
+    if (end != -1L && parseLong(0, end, Long.MIN_VALUE, Long.MAX_VALUE)) {
+      consumeAttributeValue(end);
+      return parsedLong;
+    }
+
+    // Not a plain decimal number, so let Long.parseLong() decide (and report the error)
+    return Long.parseLong(nextAttributeValue().trim());
   }
 
   /**
@@ -474,15 +586,101 @@ public class XmlReader implements Closeable {
    * @throws IOException
    */
   public boolean nextAttributeValueAsBoolean() throws IOException {
-    // TODO natively support
-    return Boolean.parseBoolean(nextAttributeValue());
+    long end = attributeValueEnd();
+    if (end != -1L) {
+      boolean result = isTrue(0, end);
+      consumeAttributeValue(end);
+      return result;
+    }
+
+    return Boolean.parseBoolean(nextAttributeValue().trim());
   }
 
+  /**
+   * Consumes the next attribute's value and returns it as double. Assumes that {@link
+   * #nextAttributeName()} has been called before invoking this method
+   *
+   * @return the attributes value as an double
+   * @throws IOException
+   */
   public double nextAttributeValueAsDouble() throws IOException {
-    // TODO natively support
+    long end = attributeValueEnd();
+    if (end != -1L && parseDouble(0, end)) {
+      consumeAttributeValue(end);
+      return parsedDouble;
+    }
+
+    // Too many digits, NaN, Infinity etc. Let Double.parseDouble() do the hard work
     return Double.parseDouble(nextAttributeValue());
   }
 
+  /**
+   * Consumes the next attribute's value and returns the raw (utf-8 encoded) bytes of it. The value
+   * is not decoded to a {@link String}, which is useful for values like ids or urls that are only
+   * compared, hashed or passed through. Use {@link ByteString#utf8()} to decode it lazily. Assumes
+   * that {@link #nextAttributeName()} has been called before invoking this method
+   *
+   * @return the attributes value as bytes
+   * @throws IOException
+   */
+  public ByteString nextAttributeValueAsByteString() throws IOException {
+    long end = attributeValueEnd();
+    if (end == -1L) {
+      // Let nextAttributeValue() report the error
+      return ByteString.encodeUtf8(nextAttributeValue());
+    }
+
+    ByteString value = buffer.readByteString(end);
+    consumeAttributeValue(0);
+    return value;
+  }
+
+  /**
+   * Like {@link #nextAttributeValue()} but decodes the value into the given reusable char sequence
+   * instead of allocating a new String.
+   *
+   * @param out Receives the attribute value
+   */
+  void nextAttributeValue(ReusableCharSequence out) throws IOException {
+    long end = attributeValueEnd();
+    if (end == -1L) {
+      // Let nextAttributeValue() report the error
+      out.set(nextAttributeValue());
+      return;
+    }
+
+    out.readUtf8(buffer, end);
+    consumeAttributeValue(0);
+  }
+
+  /**
+   * Returns the index of the closing quote of the attribute value that has been peeked, without
+   * consuming anything. Returns -1 if we are not at an attribute value or the closing quote is
+   * missing. In that case the caller should fallback to {@link #nextAttributeValue()} which throws
+   * the appropriate exception.
+   */
+  private long attributeValueEnd() throws IOException {
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      p = doPeek();
+    }
+
+    if (p == PEEKED_DOUBLE_QUOTED || p == PEEKED_SINGLE_QUOTED) {
+      return indexOf(p == PEEKED_DOUBLE_QUOTED ? DOUBLE_QUOTE : SINGLE_QUOTE, 0);
+    }
+    return -1L;
+  }
+
+  /**
+   * Consumes the attribute value (and the closing quote) up to the given index returned by {@link
+   * #attributeValueEnd()}
+   */
+  private void consumeAttributeValue(long end) throws IOException {
+    buffer.skip(end + 1); // +1 because of consuming closing quote
+    peeked = PEEKED_NONE;
+    pathNames[stackSize - 1] = null; // Remove attribute name from stack
+  }
+
   /**
    * Skip the value of an attribute if you don't want to read the value. {@link
    * #nextAttributeName()} must be called before invoking this method
@@ -514,10 +712,45 @@ public class XmlReader implements Closeable {
    * @throws IOException
    */
   public void skipAttribute() throws IOException {
-    nextAttributeName();
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      p = doPeek();
+    }
+    if (p != PEEKED_ATTRIBUTE_NAME) {
+      throw syntaxError("Expected xml element attribute name but was " + peek());
+    }
+
+    // Skip the attribute name without decoding it
+    long i = indexOfUnquotedStringTerminal();
+    buffer.skip(i != -1L ? i : buffer.size());
+    peeked = PEEKED_NONE;
+
     skipAttributeValue();
   }
 
+  /**
+   * Skips all remaining attributes of the current xml element without decoding their names or
+   * values. Afterwards {@link #hasAttribute()} returns false. This can be called at any time after
+   * {@link #nextElementName()} (even after having read some attributes).
+   *
+   * @throws IOException
+   */
+  public void skipRemainingAttributes() throws IOException {
+    if (stack[stackSize - 1] != XmlScope.ELEMENT_ATTRIBUTE) {
+      // We are not in the attributes scope anymore (i.e. because end of opening tag has already been peeked)
+      return;
+    }
+
+    int p = peeked;
+    if (p == PEEKED_DOUBLE_QUOTED || p == PEEKED_SINGLE_QUOTED) {
+      skipQuotedValue(p == PEEKED_DOUBLE_QUOTED ? DOUBLE_QUOTE : SINGLE_QUOTE);
+    }
+    peeked = PEEKED_NONE;
+    pathNames[stackSize - 1] = null;
+
+    skipToEndOfStartTag();
+  }
+
   /**
    * Returns true if the current xml element  has another a body which contains either a value or
    * other child xml elements ( objects )
@@ -557,7 +790,7 @@ public class XmlReader implements Closeable {
       peeked = PEEKED_NONE;
 
       // Read text until '<' found
-      long index = source.indexOf(OPENING_XML_ELEMENT);
+      long index = indexOf(OPENING_XML_ELEMENT, 0);
       if (index == -1L) {
         throw syntaxError("Unterminated element text content. Expected </"
             + pathNames[stackSize - 1]
@@ -595,14 +828,22 @@ public class XmlReader implements Closeable {
    * @throws IOException
    */
   public int nextTextContentAsInt() throws IOException {
-    // TODO natively support
+    long end = textContentEnd();
+    if (end == EMPTY_TEXT_CONTENT) {
+      // case when <element></element>  is empty, then return default value which is "0" for int
+      return 0;
+    }
 
-    // case when <element></element>  is empty, then return default value which is "0" for long
-    String content = nextTextContent();
+    if (end != -1L && parseLong(0, end, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+      consumeTextContent(end);
+      return (int) parsedLong;
+    }
+
+    // Not a plain decimal number, so let Integer.parseInt() decide (and report the error)
+    String content = nextTextContent().trim();
     if (content.equals("")) {
       return 0;
     }
-
     return Integer.parseInt(content);
   }
 
@@ -615,14 +856,22 @@ public class XmlReader implements Closeable {
    * @throws IOException
    */
   public long nextTextContentAsLong() throws IOException {
-    // TODO natively support
+    long end = textContentEnd();
+    if (end == EMPTY_TEXT_CONTENT) {
+      // case when <element></element>  is empty, then return default value which is "0" for long
+      return 0;
+    }
+
+    if (end != -1L && parseLong(0, end, Long.MIN_VALUE, Long.MAX_VALUE)) {
+      consumeTextContent(end);
+      return parsedLong;
+    }
 
-    // case when <element></element>  is empty, then return default value which is "0" for long
-    String content = nextTextContent();
+    // Not a plain decimal number, so let Long.parseLong() decide (and report the error)
+    String content = nextTextContent().trim();
     if (content.equals("")) {
       return 0;
     }
-
     return Long.parseLong(content);
   }
 
@@ -635,14 +884,22 @@ public class XmlReader implements Closeable {
    * @throws IOException
    */
   public double nextTextContentAsDouble() throws IOException {
-    // TODO natively support
+    long end = textContentEnd();
+    if (end == EMPTY_TEXT_CONTENT) {
+      // case when <element></element>  is empty, then return default value which is "0.0" for double
+      return 0;
+    }
+
+    if (end != -1L && parseDouble(0, end)) {
+      consumeTextContent(end);
+      return parsedDouble;
+    }
 
-    // case when <element></element>  is empty, then return default value which is "0.0" for double
-    String content = nextTextContent();
+    // Too many digits, NaN, Infinity etc. Let Double.parseDouble() do the hard work
+    String content = nextTextContent().trim();
     if (content.equals("")) {
       return 0;
     }
-
     return Double.parseDouble(content);
   }
 
@@ -655,155 +912,795 @@ public class XmlReader implements Closeable {
    * @throws IOException
    */
   public boolean nextTextContentAsBoolean() throws IOException {
-    // TODO natively support
-
-    // case when <element></element>  is empty, then return default value which is "false" for boolean
-    String content = nextTextContent();
-    if (content.equals("")) {
+    long end = textContentEnd();
+    if (end == EMPTY_TEXT_CONTENT) {
+      // case when <element></element>  is empty, then return default value which is "false" for boolean
       return false;
     }
-    return Boolean.parseBoolean(content);
+
+    if (end != -1L) {
+      boolean result = isTrue(0, end);
+      consumeTextContent(end);
+      return result;
+    }
+
+    return Boolean.parseBoolean(nextTextContent().trim());
   }
 
   /**
-   * Returns the index of the last character before starting the CDATA closing tag "{@code ]]>}".
-   * This method does not consume the closing CDATA tag.
+   * Get the next text content of an xml element as raw (utf-8 encoded) bytes. The text content is
+   * not decoded to a {@link String}. Use {@link ByteString#utf8()} to decode it lazily.
    *
-   * @return index of last character before closing tag.
+   * @return The xml element's text content as bytes or {@link ByteString#EMPTY} if empty tag like
+   * {@code <element></element>}
    * @throws IOException
    */
-  private long indexOfClosingCDATA() throws IOException {
-    long index = source.indexOf(CDATA_CLOSE);
-    if (index == -1) {
-      throw new EOFException("<![CDATA[ at " + getPath() + " has never been closed with ]]>");
+  public ByteString nextTextContentAsByteString() throws IOException {
+    long end = textContentEnd();
+    if (end == EMPTY_TEXT_CONTENT) {
+      return ByteString.EMPTY;
     }
-    return index;
+
+    if (end == -1L) {
+      // Let nextTextContent() report the error
+      return ByteString.encodeUtf8(nextTextContent());
+    }
+
+    ByteString content = buffer.readByteString(end);
+    consumeTextContent(0);
+    return content;
   }
 
   /**
-   * Skip the text content. Text content is {@code <element>text content</element>}
+   * Like {@link #nextTextContent()} but decodes the text content into the given reusable char
+   * sequence instead of allocating a new String.
+   *
+   * @param out Receives the text content, empty if empty tag like {@code <element></element>}
+   */
+  void nextTextContent(ReusableCharSequence out) throws IOException {
+    long end = textContentEnd();
+    if (end == EMPTY_TEXT_CONTENT) {
+      out.set("");
+      return;
+    }
+
+    if (end == -1L) {
+      // Let nextTextContent() report the error
+      out.set(nextTextContent());
+      return;
+    }
+
+    out.readUtf8(buffer, end);
+    consumeTextContent(0);
+  }
+
+  /**
+   * Like {@link #nextTextContentAsByteString()} but leading and trailing whitespaces are removed.
+   * Whitespaces are removed on the byte level, so the text content is not decoded to a {@link
+   * String} either.
    *
+   * @return The xml element's trimmed text content as bytes or {@link ByteString#EMPTY} if empty
+   * tag like {@code <element></element>}
    * @throws IOException
    */
-  public void skipTextContent() throws IOException {
+  public ByteString nextTextContentAsTrimmedByteString() throws IOException {
+    long end = textContentEnd();
+    if (end == EMPTY_TEXT_CONTENT) {
+      return ByteString.EMPTY;
+    }
+
+    if (end == -1L) {
+      // Let nextTextContent() report the error
+      return ByteString.encodeUtf8(nextTextContent().trim());
+    }
+
+    long start = 0;
+    while (start < end && isWhitespace(buffer.getByte(start))) {
+      start++;
+    }
+    long trimmedEnd = end;
+    while (trimmedEnd > start && isWhitespace(buffer.getByte(trimmedEnd - 1))) {
+      trimmedEnd--;
+    }
+
+    buffer.skip(start);
+    ByteString content = buffer.readByteString(trimmedEnd - start);
+    consumeTextContent(end - trimmedEnd);
+    return content;
+  }
 
+  /**
+   * Streams the next text content of an xml element (utf-8 encoded) into the given sink. In
+   * contrast to {@link #nextTextContent()} the text content is never buffered as a whole: only the
+   * bytes that are already buffered are scanned for the end of the text content and moved to the
+   * sink before the next segment is requested.
+   *
+   * @param sink The sink where the text content is written to
+   * @return The number of bytes written to the sink. 0 if empty tag like {@code
+   * <element></element>}
+   * @throws IOException
+   */
+  public long nextTextContent(Sink sink) throws IOException {
     int p = peeked;
     if (p == PEEKED_NONE) {
       p = doPeek();
     }
 
-    if (p == PEEKED_ELEMENT_TEXT_CONTENT) {
-      peeked = PEEKED_NONE;
-
-      // Read text until '<' found
-      long index = source.indexOf(OPENING_XML_ELEMENT);
-      if (index == -1L) {
-        throw syntaxError("Unterminated element text content. Expected </"
-            + pathNames[stackSize - 1]
-            + "> but haven't found");
-      }
+    if (p == PEEKED_ELEMENT_END) {
+      // <element></element>, so nothing to stream. Don't consume the end tag.
+      return 0;
+    }
 
-      buffer.skip(index);
-    } else if (p == PEEKED_CDATA) {
-      peeked = PEEKED_NONE;
-      // Search index of closing CDATA tag ]]>
-      long index = indexOfClosingCDATA();
-      buffer.skip(index + 3); // +3 because of consuming closing tag
-    } else {
+    if (p != PEEKED_ELEMENT_TEXT_CONTENT && p != PEEKED_CDATA) {
       throw new XmlDataException("Expected xml element text content but was " + peek()
           + " at path " + getPath());
     }
+
+    peeked = PEEKED_NONE;
+
+    boolean cdata = p == PEEKED_CDATA;
+    // Keep the bytes that might be the beginning of a ]]> which is split across segments
+    long keep = cdata ? CDATA_CLOSE.size() - 1 : 0;
+    long written = 0;
+    while (true) {
+      long end = cdata ? buffer.indexOf(CDATA_CLOSE)
+          : Swar.indexOf(buffer, OPENING_XML_ELEMENT, 0, cursor);
+      if (end != -1L) {
+        sink.write(buffer, end);
+        written += end;
+        break;
+      }
+
+      long count = buffer.size() - keep;
+      if (count > 0) {
+        sink.write(buffer, count);
+        written += count;
+      }
+
+      if (!source.request(buffer.size() + 1)) {
+        throw syntaxError(cdata
+            ? "Unterminated CDATA section. Expected ]]> but haven't found"
+            : "Unterminated element text content. Expected </"
+                + pathNames[stackSize - 1]
+                + "> but haven't found");
+      }
+    }
+
+    if (cdata) {
+      buffer.skip(CDATA_CLOSE.size());
+    }
+    return written;
   }
 
   /**
-   * Push a new scope on top of the scope stack
+   * Get the next text content of an xml element as {@link LargeText}. Text contents up to the
+   * given threshold are held in memory, larger ones are streamed into a temporary file (see {@link
+   * #nextTextContent(Sink)}).
    *
-   * @param newTop The scope that should be pushed on top of the stack
+   * @param threshold Max. number of bytes that are held in memory
+   * @param directory The directory for the temporary file, or null for the default temporary
+   * directory
+   * @return The xml element's text content
+   * @throws IOException
    */
-  private void pushStack(int newTop) {
-    if (stackSize == stack.length) {
-      int[] newStack = new int[stackSize * 2];
-      int[] newPathIndices = new int[stackSize * 2];
-      String[] newPathNames = new String[stackSize * 2];
-      System.arraycopy(stack, 0, newStack, 0, stackSize);
-      System.arraycopy(pathIndices, 0, newPathIndices, 0, stackSize);
-      System.arraycopy(pathNames, 0, newPathNames, 0, stackSize);
-      stack = newStack;
-      pathIndices = newPathIndices;
-      pathNames = newPathNames;
+  public LargeText nextTextContentAsLargeText(long threshold, File directory) throws IOException {
+    LargeText.Builder builder = new LargeText.Builder(threshold, directory);
+    boolean success = false;
+    try {
+      nextTextContent(builder);
+      success = true;
+      return builder.build();
+    } finally {
+      if (!success) {
+        builder.discard();
+      }
     }
-    stack[stackSize++] = newTop;
   }
 
   /**
-   * Removes the top element of the stack
+   * Decodes the next text content of an xml element as base64 (standard or url-safe alphabet) and
+   * writes the decoded bytes into the given sink. In contrast to {@link #nextTextContent()} the text
+   * content is decoded incrementally, one segment at a time, so that large binary text contents
+   * don't have to be buffered completely in memory. Whitespaces are ignored.
+   *
+   * @param sink The sink where the decoded bytes are written to
+   * @return The number of decoded bytes written to the sink. 0 if empty tag like {@code
+   * <element></element>}
+   * @throws IOException
    */
-  private void popStack() {
-    stack[stackSize - 1] = 0;
-    stackSize--;
-    pathNames[stackSize] = null; // Free the last path name so that it can be garbage collected!
-    pathIndices[stackSize - 1]++;
+  public long nextTextContentBase64(Sink sink) throws IOException {
+    return nextBinaryTextContent(sink, true);
   }
 
   /**
-   * Returns a XPath to the current location in the XML value.
+   * Decodes the next text content of an xml element as base64. See {@link
+   * #nextTextContentBase64(Sink)}
+   *
+   * @return The decoded bytes or an empty array if empty tag like {@code <element></element>}
+   * @throws IOException
    */
-  public String getPath() {
-    return XmlScope.getPath(stackSize, stack, pathNames, pathIndices);
-  }
-
-  @Override
-  public void close() throws IOException {
-    peeked = PEEKED_NONE;
-    buffer.clear();
-    source.close();
+  public byte[] nextTextContentBase64AsBytes() throws IOException {
+    Buffer decoded = new Buffer();
+    nextBinaryTextContent(decoded, true);
+    return decoded.readByteArray();
   }
 
   /**
-   * Returns true once {@code limit - pos >= minimum}. If the data is exhausted before that many
-   * characters are available, this returns false.
+   * Decodes the next text content of an xml element as hexadecimal string and writes the decoded
+   * bytes into the given sink. Like {@link #nextTextContentBase64(Sink)} the text content is decoded
+   * incrementally. Whitespaces are ignored.
+   *
+   * @param sink The sink where the decoded bytes are written to
+   * @return The number of decoded bytes written to the sink. 0 if empty tag like {@code
+   * <element></element>}
+   * @throws IOException
    */
-  private boolean fillBuffer(long minimum) throws IOException {
-    return source.request(minimum);
+  public long nextTextContentHex(Sink sink) throws IOException {
+    return nextBinaryTextContent(sink, false);
   }
 
   /**
-   * Returns the next character in the stream that is neither whitespace nor a part of a comment.
-   * When this returns, the returned character is always at {@code buffer[pos-1]}; this means the
-   * caller can always pushStack back the returned character by decrementing {@code pos}.
+   * Decodes the next text content of an xml element as hexadecimal string. See {@link
+   * #nextTextContentHex(Sink)}
+   *
+   * @return The decoded bytes or an empty array if empty tag like {@code <element></element>}
+   * @throws IOException
    */
-  private int nextNonWhitespace(boolean throwOnEof) throws IOException {
-    return nextNonWhitespace(throwOnEof, false);
+  public byte[] nextTextContentHexAsBytes() throws IOException {
+    Buffer decoded = new Buffer();
+    nextBinaryTextContent(decoded, false);
+    return decoded.readByteArray();
   }
 
   /**
-   * Returns the next character in the stream that is neither whitespace nor a part of a comment.
-   * When this returns, the returned character is always at {@code buffer[pos-1]}; this means the
-   * caller can always pushStack back the returned character by decrementing {@code pos}.
+   * Decodes the text content (or CDATA) segment by segment as base64 or hex into the given sink.
+   * Only the bytes that are already buffered are scanned for the end of the text content, so the
+   * source is never asked to buffer the whole text content at once.
    */
-  private int nextNonWhitespace(boolean throwOnEof, boolean isDocumentBeginning) throws IOException {
-    /*
-     * This code uses ugly local variables 'p' and 'l' representing the 'pos'
-     * and 'limit' fields respectively. Using locals rather than fields saves
-     * a few field reads for each whitespace character in a pretty-printed
-     * document, resulting in a 5% speedup. We need to flush 'p' to its field
-     * before any (potentially indirect) call to fillBuffer() and reread both
-     * 'p' and 'l' after any (potentially indirect) call to the same method.
-     */
+  private long nextBinaryTextContent(Sink sink, boolean base64) throws IOException {
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      p = doPeek();
+    }
+
+    if (p == PEEKED_ELEMENT_END) {
+      // <element></element>, so nothing to decode. Don't consume the end tag.
+      return 0;
+    }
+
+    if (p != PEEKED_ELEMENT_TEXT_CONTENT && p != PEEKED_CDATA) {
+      throw new XmlDataException("Expected xml element text content but was " + peek()
+          + " at path " + getPath());
+    }
+
+    peeked = PEEKED_NONE;
+
+    // Neither base64 nor hex contain '<' or ']', so the first one marks the end
+    byte terminal = p == PEEKED_CDATA ? CDATA_CLOSE.getByte(0) : OPENING_XML_ELEMENT;
+    int bitsPerChar = base64 ? 6 : 4;
+    int charsPerGroup = base64 ? 4 : 2;
+
+    Buffer decoded = new Buffer();
+    long decodedCount = 0;
+    int group = 0;
+    int chars = 0;
+    boolean padding = false;
+
+    while (true) {
+      if (buffer.size() == 0 && !source.request(1)) {
+        throw syntaxError("Unterminated element text content. Expected </"
+            + pathNames[stackSize - 1]
+            + "> but haven't found");
+      }
+
+      long end = Swar.indexOf(buffer, terminal, 0, cursor);
+      long count = end == -1L ? buffer.size() : end;
+      for (long i = 0; i < count; i++) {
+        byte c = buffer.readByte();
+        if (isWhitespace(c)) {
+          continue;
+        }
+        if (base64 && c == '=') {
+          padding = true;
+          continue;
+        }
+
+        int value = base64 ? base64Value(c) : hexValue(c);
+        if (value == -1 || padding) {
+          throw new XmlDataException("Invalid " + (base64 ? "base64" : "hex")
+              + " character '" + (char) (c & 0xff) + "' in text content at path " + getPath());
+        }
+
+        group = (group << bitsPerChar) | value;
+        if (++chars == charsPerGroup) {
+          if (base64) {
+            decoded.writeByte(group >> 16).writeByte(group >> 8).writeByte(group);
+          } else {
+            decoded.writeByte(group);
+          }
+          group = 0;
+          chars = 0;
+        }
+      }
+
+      // Hand over the decoded segment
+      long size = decoded.size();
+      if (size > 0) {
+        decodedCount += size;
+        sink.write(decoded, size);
+      }
+
+      if (end != -1L) {
+        break;
+      }
+    }
+
+    // Remaining (padded) chars of the last group
+    if (base64 && chars == 2) {
+      decoded.writeByte(group >> 4);
+    } else if (base64 && chars == 3) {
+      decoded.writeByte(group >> 10).writeByte(group >> 2);
+    } else if (chars != 0) {
+      throw new XmlDataException("Incomplete " + (base64 ? "base64" : "hex")
+          + " text content at path " + getPath());
+    }
+
+    long size = decoded.size();
+    if (size > 0) {
+      decodedCount += size;
+      sink.write(decoded, size);
+    }
+
+    if (p == PEEKED_CDATA) {
+      if (!source.request(CDATA_CLOSE.size()) || !buffer.rangeEquals(0, CDATA_CLOSE)) {
+        throw syntaxError("Unterminated CDATA section. Expected ]]> but haven't found");
+      }
+      buffer.skip(CDATA_CLOSE.size());
+    }
+
+    return decodedCount;
+  }
+
+  /**
+   * Returns the value of the given base64 (standard or url-safe alphabet) character or -1 if it's
+   * not a base64 character
+   */
+  private static int base64Value(byte c) {
+    if (c >= 'A' && c <= 'Z') {
+      return c - 'A';
+    } else if (c >= 'a' && c <= 'z') {
+      return c - 'a' + 26;
+    } else if (c >= '0' && c <= '9') {
+      return c - '0' + 52;
+    } else if (c == '+' || c == '-') {
+      return 62;
+    } else if (c == '/' || c == '_') {
+      return 63;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the value of the given hex character or -1 if it's not a hex character
+   */
+  private static int hexValue(byte c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    } else if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    } else if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the index of the end of the text content (or CDATA) that has been peeked, without
+   * consuming anything. Returns {@link #EMPTY_TEXT_CONTENT} for an element without text content
+   * like {@code <element></element>} and -1 if we are not at a text content or it is not terminated.
+   * In the later case the caller should fallback to {@link #nextTextContent()} which throws the
+   * appropriate exception.
+   */
+  private long textContentEnd() throws IOException {
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      p = doPeek();
+    }
+
+    if (p == PEEKED_ELEMENT_TEXT_CONTENT) {
+      return indexOf(OPENING_XML_ELEMENT, 0);
+    } else if (p == PEEKED_CDATA) {
+      return source.indexOf(CDATA_CLOSE);
+    } else if (p == PEEKED_ELEMENT_END) {
+      return EMPTY_TEXT_CONTENT;
+    }
+    return -1L;
+  }
+
+  /**
+   * Consumes the text content (and the closing CDATA tag if any) up to the given index returned by
+   * {@link #textContentEnd()}
+   */
+  private void consumeTextContent(long end) throws IOException {
+    if (peeked == PEEKED_CDATA) {
+      buffer.skip(end + 3); // +3 because of consuming closing ]]>
+    } else {
+      buffer.skip(end);
+    }
+    peeked = PEEKED_NONE;
+  }
+
+  /**
+   * Parses the bytes from {@code start} (inclusive) to {@code end} (exclusive) of the buffer as
+   * decimal integer number without consuming them and without allocating a String. Leading and
+   * trailing whitespaces are ignored. The result is stored in {@link #parsedLong}.
+   *
+   * @return true if the bytes are a valid number in the range of min and max, otherwise false
+   */
+  private boolean parseLong(long start, long end, long min, long max) {
+    while (start < end && isWhitespace(buffer.getByte(start))) {
+      start++;
+    }
+    while (end > start && isWhitespace(buffer.getByte(end - 1))) {
+      end--;
+    }
+    if (start == end) {
+      return false;
+    }
+
+    boolean negative = false;
+    byte first = buffer.getByte(start);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      if (++start == end) {
+        return false;
+      }
+    }
+
+    // Accumulating negatively like Long.parseLong() does, so that we can represent MIN_VALUE
+    long limit = negative ? min : -max;
+    long multiplyMin = limit / 10;
+    long result = 0;
+    for (long i = start; i < end; i++) {
+      int digit = buffer.getByte(i) - '0';
+      if (digit < 0 || digit > 9 || result < multiplyMin) {
+        return false;
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        return false;
+      }
+      result -= digit;
+    }
+
+    parsedLong = negative ? result : -result;
+    return true;
+  }
+
+  /**
+   * Parses the bytes from {@code start} (inclusive) to {@code end} (exclusive) of the buffer as
+   * decimal floating point number (optionally with exponent like {@code 1.5e-3}) without consuming
+   * them and without allocating a String. Leading and trailing whitespaces are ignored. The result
+   * is stored in {@link #parsedDouble}.
+   *
+   * Only numbers that can be converted exactly (at most 15 significant digits and a power of ten
+   * which is exactly representable as double) are handled here. For everything else false is
+   * returned, so that the caller can fallback to {@link Double#parseDouble(String)}.
+   *
+   * @return true if the bytes could be parsed, otherwise false
+   */
+  private boolean parseDouble(long start, long end) {
+    while (start < end && isWhitespace(buffer.getByte(start))) {
+      start++;
+    }
+    while (end > start && isWhitespace(buffer.getByte(end - 1))) {
+      end--;
+    }
+    if (start == end) {
+      return false;
+    }
+
+    boolean negative = false;
+    byte first = buffer.getByte(start);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      start++;
+    }
+
+    long mantissa = 0;
+    int significantDigits = 0;
+    int exponent = 0;
+    boolean seenDigit = false;
+    boolean seenDot = false;
+    long i = start;
+    for (; i < end; i++) {
+      byte c = buffer.getByte(i);
+      if (c >= '0' && c <= '9') {
+        seenDigit = true;
+        if (mantissa == 0 && c == '0') {
+          // leading zero, not significant
+          if (seenDot) {
+            exponent--;
+          }
+          continue;
+        }
+        if (significantDigits == MAX_EXACT_DOUBLE_DIGITS) {
+          return false;
+        }
+        mantissa = mantissa * 10 + (c - '0');
+        significantDigits++;
+        if (seenDot) {
+          exponent--;
+        }
+      } else if (c == '.' && !seenDot) {
+        seenDot = true;
+      } else if ((c == 'e' || c == 'E') && seenDigit) {
+        break;
+      } else {
+        return false;
+      }
+    }
+
+    if (!seenDigit) {
+      return false;
+    }
+
+    if (i < end) {
+      // exponent part, i points to 'e'
+      if (++i == end) {
+        return false;
+      }
+      boolean negativeExponent = false;
+      byte sign = buffer.getByte(i);
+      if (sign == '-' || sign == '+') {
+        negativeExponent = sign == '-';
+        if (++i == end) {
+          return false;
+        }
+      }
+
+      int explicitExponent = 0;
+      for (; i < end; i++) {
+        int digit = buffer.getByte(i) - '0';
+        if (digit < 0 || digit > 9 || explicitExponent > 1000) {
+          return false;
+        }
+        explicitExponent = explicitExponent * 10 + digit;
+      }
+      exponent += negativeExponent ? -explicitExponent : explicitExponent;
+    }
+
+    double result;
+    if (mantissa == 0) {
+      result = 0;
+    } else if (exponent < 0) {
+      if (-exponent >= POWERS_OF_TEN.length) {
+        return false;
+      }
+      result = (double) mantissa / POWERS_OF_TEN[-exponent];
+    } else {
+      if (exponent >= POWERS_OF_TEN.length) {
+        return false;
+      }
+      result = (double) mantissa * POWERS_OF_TEN[exponent];
+    }
+
+    parsedDouble = negative ? -result : result;
+    return true;
+  }
+
+  /**
+   * Checks (case insensitive and ignoring leading and trailing whitespaces) if the bytes from
+   * {@code start} (inclusive) to {@code end} (exclusive) of the buffer are "true", like {@link
+   * Boolean#parseBoolean(String)} does. Doesn't consume any bytes.
+   */
+  private boolean isTrue(long start, long end) {
+    while (start < end && isWhitespace(buffer.getByte(start))) {
+      start++;
+    }
+    while (end > start && isWhitespace(buffer.getByte(end - 1))) {
+      end--;
+    }
+    if (end - start != 4) {
+      return false;
+    }
+
+    return (buffer.getByte(start) | 0x20) == 't'
+        && (buffer.getByte(start + 1) | 0x20) == 'r'
+        && (buffer.getByte(start + 2) | 0x20) == 'u'
+        && (buffer.getByte(start + 3) | 0x20) == 'e';
+  }
+
+  /**
+   * Checks whether the given byte is a xml whitespace character
+   */
+  private static boolean isWhitespace(byte c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  /**
+   * Returns the index of the last character before starting the CDATA closing tag "{@code ]]>}".
+   * This method does not consume the closing CDATA tag.
+   *
+   * @return index of last character before closing tag.
+   * @throws IOException
+   */
+  private long indexOfClosingCDATA() throws IOException {
+    long index = source.indexOf(CDATA_CLOSE);
+    if (index == -1) {
+      throw new EOFException("<![CDATA[ at " + getPath() + " has never been closed with ]]>");
+    }
+    return index;
+  }
+
+  /**
+   * Skip the text content. Text content is {@code <element>text content</element>}
+   *
+   * @throws IOException
+   */
+  public void skipTextContent() throws IOException {
+
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      p = doPeek();
+    }
+
+    if (p == PEEKED_ELEMENT_TEXT_CONTENT) {
+      peeked = PEEKED_NONE;
+
+      // Read text until '<' found
+      long index = indexOf(OPENING_XML_ELEMENT, 0);
+      if (index == -1L) {
+        throw syntaxError("Unterminated element text content. Expected </"
+            + pathNames[stackSize - 1]
+            + "> but haven't found");
+      }
+
+      buffer.skip(index);
+    } else if (p == PEEKED_CDATA) {
+      peeked = PEEKED_NONE;
+      // Search index of closing CDATA tag ]]>
+      long index = indexOfClosingCDATA();
+      buffer.skip(index + 3); // +3 because of consuming closing tag
+    } else {
+      throw new XmlDataException("Expected xml element text content but was " + peek()
+          + " at path " + getPath());
+    }
+  }
+
+  /**
+   * Push a new scope on top of the scope stack
+   *
+   * @param newTop The scope that should be pushed on top of the stack
+   */
+  private void pushStack(int newTop) {
+    if (stackSize == stack.length) {
+      int[] newStack = new int[stackSize * 2];
+      int[] newPathIndices = new int[stackSize * 2];
+      String[] newPathNames = new String[stackSize * 2];
+      ByteString[] newPathNameBytes = new ByteString[stackSize * 2];
+      System.arraycopy(stack, 0, newStack, 0, stackSize);
+      System.arraycopy(pathIndices, 0, newPathIndices, 0, stackSize);
+      System.arraycopy(pathNames, 0, newPathNames, 0, stackSize);
+      System.arraycopy(pathNameBytes, 0, newPathNameBytes, 0, stackSize);
+      stack = newStack;
+      pathIndices = newPathIndices;
+      pathNames = newPathNames;
+      pathNameBytes = newPathNameBytes;
+    }
+    stack[stackSize++] = newTop;
+  }
+
+  /**
+   * Removes the top element of the stack
+   */
+  private void popStack() {
+    stack[stackSize - 1] = 0;
+    stackSize--;
+    pathNames[stackSize] = null; // Free the last path name so that it can be garbage collected!
+    pathNameBytes[stackSize] = null;
+    pathIndices[stackSize - 1]++;
+  }
+
+  /**
+   * Returns the current nesting depth of the reader. Opening an element (and reading its
+   * attributes) increases the depth, closing it decreases the depth again.
+   */
+  int depth() {
+    return stackSize;
+  }
+
+  /**
+   * Returns a XPath to the current location in the XML value.
+   */
+  public String getPath() {
+    return XmlScope.getPath(stackSize, stack, pathNames, pathIndices);
+  }
+
+  @Override
+  public void close() throws IOException {
+    peeked = PEEKED_NONE;
+    buffer.clear();
+    source.close();
+  }
+
+  /**
+   * Returns the index of the next {@code b} in the buffer at or after {@code fromIndex} like {@link
+   * BufferedSource#indexOf(byte, long)}.
+   */
+  private long indexOf(byte b, long fromIndex) throws IOException {
+    while (true) {
+      long index = Swar.indexOf(buffer, b, fromIndex, cursor);
+      if (index != -1L) {
+        return index;
+      }
+      fromIndex = Math.max(fromIndex, buffer.size());
+      if (!fillBuffer(fromIndex + 1)) {
+        return -1L;
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the next character that terminates an unquoted value (element or
+   * attribute name), see {@link #UNQUOTED_STRING_TERMINALS}, or -1 if the source is exhausted.
+   */
+  private long indexOfUnquotedStringTerminal() throws IOException {
+    long fromIndex = 0;
+    while (true) {
+      long index = Swar.indexOfUnquotedStringTerminal(buffer, fromIndex, cursor);
+      if (index != -1L) {
+        return index;
+      }
+      fromIndex = buffer.size();
+      if (!fillBuffer(fromIndex + 1)) {
+        return -1L;
+      }
+    }
+  }
+
+  /**
+   * Returns true once {@code limit - pos >= minimum}. If the data is exhausted before that many
+   * characters are available, this returns false.
+   */
+  private boolean fillBuffer(long minimum) throws IOException {
+    return source.request(minimum);
+  }
+
+  /**
+   * Returns the next character in the stream that is neither whitespace nor a part of a comment.
+   * When this returns, the returned character is always at {@code buffer[pos-1]}; this means the
+   * caller can always pushStack back the returned character by decrementing {@code pos}.
+   */
+  private int nextNonWhitespace(boolean throwOnEof) throws IOException {
+    return nextNonWhitespace(throwOnEof, false);
+  }
+
+  /**
+   * Returns the next character in the stream that is neither whitespace nor a part of a comment.
+   * When this returns, the returned character is always at {@code buffer[pos-1]}; this means the
+   * caller can always pushStack back the returned character by decrementing {@code pos}.
+   */
+  private int nextNonWhitespace(boolean throwOnEof, boolean isDocumentBeginning) throws IOException {
+    /*
+     * Whitespaces are skipped 8 bytes at a time (see Swar), which is what pretty-printed documents
+     * spend most of their time on.
+     */
 
     // Look for UTF-8 BOM sequence 0xEFBBBF and skip it
     if (isDocumentBeginning && source.rangeEquals(0, UTF8_BOM)) {
       source.skip(3);
     }
 
-    int p = 0;
-    while (fillBuffer(p + 1)) {
-      int c = buffer.getByte(p++);
-      if (c == '\n' || c == ' ' || c == '\r' || c == '\t') {
+    while (fillBuffer(1)) {
+      long p = Swar.indexOfNonWhitespace(buffer, 0, cursor);
+      if (p == -1L) {
+        buffer.clear(); // only whitespaces buffered
         continue;
       }
 
-      buffer.skip(p - 1);
+      int c = buffer.getByte(p);
+      buffer.skip(p);
       if (c == '<' && !isCDATA() && fillBuffer(2)) {
 
         byte peek = buffer.getByte(1);
@@ -826,7 +1723,6 @@ public class XmlReader implements Closeable {
             source.skip(index + 1); // skip behind >
           }
           // TODO inline DOCTYPE.
-          p = 0;
           continue;
         } else if (peek == '!' && fillBuffer(4)) {
           long index = source.indexOf(COMMENT_CLOSE, 4); // skip <!-- in comparison by offset 4
@@ -834,7 +1730,6 @@ public class XmlReader implements Closeable {
             throw syntaxError("Unterminated comment");
           }
           source.skip(index + COMMENT_CLOSE.size()); // skip behind --!>
-          p = 0;
           continue;
         } else if (peek == '?') {
           long index = source.indexOf(XML_DECLARATION_CLOSE, 2); // skip <? in comparison by offset 2
@@ -842,7 +1737,6 @@ public class XmlReader implements Closeable {
             throw syntaxError("Unterminated xml declaration or processing instruction \"<?\"");
           }
           source.skip(index + XML_DECLARATION_CLOSE.size()); // skip behind ?>
-          p = 0;
           continue;
         }
       }
@@ -880,24 +1774,112 @@ public class XmlReader implements Closeable {
       throw syntaxError("Expected XML Tag Element name, but have " + peek());
     }
 
-    currentElementName = nextUnquotedValue();
+    long i = indexOfUnquotedStringTerminal();
+    int slot = i != -1L ? nameTable.intern(buffer, i) : -1;
+    ByteString nameBytes;
+    if (slot != -1) {
+      // Already known name, no need to decode it again
+      nameBytes = nameTable.bytes(slot);
+      currentElementName = nameTable.name(slot);
+      buffer.skip(i);
+    } else {
+      nameBytes = i != -1L ? buffer.readByteString(i) : buffer.readByteString();
+      currentElementName = nameBytes.utf8();
+    }
 
     peeked = PEEKED_NONE;
     pathNames[stackSize - 1] = currentElementName;
+    pathNameBytes[stackSize - 1] = nameBytes;
 
     // Next we expect element attributes block
     pushStack(XmlScope.ELEMENT_ATTRIBUTE);
     return currentElementName;
   }
 
+  /**
+   * If the name of the opening xml element is in {@code options}, this consumes it and returns its
+   * index. Otherwise this returns -1 and no name is consumed, so that the caller can still read it
+   * with {@link #nextElementName()} or skip the element. Names are compared byte by byte, so no
+   * String is decoded.
+   *
+   * @param options The expected element names
+   * @return The index of the element name in options or -1 if not found
+   * @throws IOException
+   */
+  public int selectElementName(Options options) throws IOException {
+    int p = peeked;
+    if (p == PEEKED_NONE) {
+      p = doPeek();
+    }
+    if (p != PEEKED_ELEMENT_NAME) {
+      throw syntaxError("Expected XML Tag Element name, but have " + peek());
+    }
+
+    int index = selectUnquotedValue(options);
+    if (index != -1) {
+      currentElementName = options.strings[index];
+      peeked = PEEKED_NONE;
+      pathNames[stackSize - 1] = currentElementName;
+      pathNameBytes[stackSize - 1] = options.byteStrings[index];
+
+      // Next we expect element attributes block
+      pushStack(XmlScope.ELEMENT_ATTRIBUTE);
+    }
+    return index;
+  }
+
   public String getCurrentElementName() {
     return currentElementName;
   }
 
-  /** Returns an unquoted value as a string. */
+  /** Returns an unquoted value as a string. Names that have been read before are not decoded again. */
   private String nextUnquotedValue() throws IOException {
-    long i = source.indexOfElement(UNQUOTED_STRING_TERMINALS);
-    return i != -1 ? buffer.readUtf8(i) : buffer.readUtf8();
+    long i = indexOfUnquotedStringTerminal();
+    if (i == -1L) {
+      return buffer.readUtf8();
+    }
+
+    int slot = nameTable.intern(buffer, i);
+    if (slot != -1) {
+      buffer.skip(i);
+      return nameTable.name(slot);
+    }
+    return buffer.readUtf8(i);
+  }
+
+  /**
+   * Compares the next unquoted value with the given options and consumes it if one of them
+   * matches.
+   *
+   * @return The index of the matching option, otherwise -1
+   */
+  private int selectUnquotedValue(Options options) throws IOException {
+    long i = indexOfUnquotedStringTerminal();
+    long length = i != -1L ? i : buffer.size();
+
+    ByteString[] candidates = options.byteStrings;
+    for (int j = 0; j < candidates.length; j++) {
+      ByteString candidate = candidates[j];
+      if (candidate.size() == length && buffer.rangeEquals(0, candidate)) {
+        buffer.skip(length);
+        return j;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks if the next unquoted value is exactly the given name (and not just starts with it) by
+   * comparing bytes. Doesn't consume anything.
+   */
+  private boolean isNextUnquotedValue(ByteString name) throws IOException {
+    int size = name.size();
+    if (!fillBuffer(size + 1) || !buffer.rangeEquals(0, name)) {
+      return false;
+    }
+
+    byte next = buffer.getByte(size);
+    return next == '>' || next == '/' || next == '=' || isWhitespace(next);
   }
 
   /**
@@ -910,7 +1892,7 @@ public class XmlReader implements Closeable {
   private String nextQuotedValue(byte runTerminator) throws IOException {
     StringBuilder builder = null;
     while (true) {
-      long index = source.indexOf(runTerminator);
+      long index = indexOf(runTerminator, 0);
       if (index == -1L) {
         throw syntaxError(
             "Unterminated string (" + (runTerminator == DOUBLE_QUOTE ? "double quote \""
@@ -1024,9 +2006,9 @@ public class XmlReader implements Closeable {
    * @param runTerminator The terminator to skip
    * @throws IOException
    */
-  private void skipQuotedValue(Byte runTerminator) throws IOException {
+  private void skipQuotedValue(byte runTerminator) throws IOException {
     while (true) {
-      long index = source.indexOf(runTerminator);
+      long index = indexOf(runTerminator, 0);
       if (index == -1L) throw syntaxError("Unterminated string");
 
       if (buffer.getByte(index) == '\\') {
@@ -1055,47 +2037,147 @@ public class XmlReader implements Closeable {
           "This method can only be invoked after having consumed the opening element via beginElement()");
     }
 
-    int count = 1;
-    do {
-      switch (peek()) {
-        case ELEMENT_BEGIN:
-          beginElement();
-          count++;
-          break;
+    if (stackPeek == XmlScope.ELEMENT_OPENING && peek() == XmlToken.ELEMENT_NAME) {
+      // Read the name (without decoding it again if it is in the name table), so that the path in
+      // error messages points to the skipped element
+      nextElementName();
+      stackPeek = XmlScope.ELEMENT_ATTRIBUTE;
+    }
 
-        case ELEMENT_END:
-          endElement();
-          count--;
-          break;
+    int p = peeked;
+    if (p == PEEKED_ELEMENT_END) {
+      // Self closing element like <foo /> has already been peeked
+      endElement();
+      return;
+    }
 
-        case ELEMENT_NAME:
-          nextElementName(); // TODO add a skip element name method
-          break;
+    if (p == PEEKED_DOUBLE_QUOTED || p == PEEKED_SINGLE_QUOTED) {
+      // Opening quote has already been consumed
+      skipQuotedValue(p == PEEKED_DOUBLE_QUOTED ? DOUBLE_QUOTE : SINGLE_QUOTE);
+    }
+    peeked = PEEKED_NONE;
 
-        case ATTRIBUTE_NAME:
-          nextAttributeName(); // TODO add a skip attribute name method
-          break;
+    if (stackPeek == XmlScope.ELEMENT_ATTRIBUTE) {
+      popStack();
+    }
 
-        case ATTRIBUTE_VALUE:
-          skipAttributeValue();
-          break;
+    // From here on we scan raw bytes and only keep track of the nesting depth.
+    // Element names are neither decoded nor pushed on the stack.
+    int depth = skipStartTag() ? 0 : 1;
+    while (depth > 0) {
+      long index = indexOf(OPENING_XML_ELEMENT, 0);
+      if (index == -1L || !fillBuffer(index + 2)) {
+        throw unexpectedEndOfInputWhileSkipping(depth);
+      }
+      buffer.skip(index); // skip text content
+
+      byte c = buffer.getByte(1);
+      if (c == '/') {
+        // Closing tag </foo>
+        long end = indexOf(CLOSING_XML_ELEMENT, 2);
+        if (end == -1L) {
+          throw unexpectedEndOfInputWhileSkipping(depth);
+        }
+        buffer.skip(end + 1);
+        depth--;
+      } else if (c == '!') {
+        if (isCDATA()) {
+          skipPast(CDATA_CLOSE, CDATA_OPEN.size(), depth);
+        } else if (fillBuffer(COMMENT_OPEN.size()) && buffer.rangeEquals(0, COMMENT_OPEN)) {
+          skipPast(COMMENT_CLOSE, COMMENT_OPEN.size(), depth);
+        } else {
+          long end = indexOf(CLOSING_XML_ELEMENT, 2);
+          if (end == -1L) {
+            throw unexpectedEndOfInputWhileSkipping(depth);
+          }
+          buffer.skip(end + 1);
+        }
+      } else if (c == '?') {
+        skipPast(XML_DECLARATION_CLOSE, 2, depth);
+      } else {
+        buffer.readByte(); // consume '<'
+        if (!skipStartTag()) {
+          depth++;
+        }
+      }
+    }
 
-        case ELEMENT_TEXT_CONTENT:
-          skipTextContent();
-          break;
+    popStack();
+  }
 
-        case END_OF_DOCUMENT:
-          if (count != 0) {
-            throw syntaxError("Unexpected end of file! At least one xml element is not closed!");
-          }
-          break;
+  /**
+   * Skips the remaining bytes of an opening xml tag (element name and attributes) until (but not
+   * including) the closing {@code >} or {@code />}. Quoted attribute values are skipped as a whole,
+   * so they may contain {@code >}.
+   */
+  private void skipToEndOfStartTag() throws IOException {
+    while (true) {
+      long index = source.indexOfElement(START_TAG_TERMINALS);
+      if (index == -1L) {
+        throw new EOFException("Unexpected end of input at path " + getPath());
+      }
 
-        default:
-          throw new AssertionError(
-              "Oops, there is something not implemented correctly internally. Please fill an issue on https://github.com/Tickaroo/tikxml/issues . Please include stacktrace and the model class you try to parse");
+      byte c = buffer.getByte(index);
+      if (c == DOUBLE_QUOTE || c == SINGLE_QUOTE) {
+        buffer.skip(index + 1);
+        long end = indexOf(c, 0);
+        if (end == -1L) {
+          throw syntaxError("Unterminated string (" + (c == DOUBLE_QUOTE ? "double quote \""
+              : "single quote '") + " is missing)");
+        }
+        buffer.skip(end + 1);
+      } else if (c == CLOSING_XML_ELEMENT) {
+        buffer.skip(index);
+        return;
+      } else {
+        // '/'
+        buffer.skip(index);
+        if (fillBuffer(2) && buffer.getByte(1) == CLOSING_XML_ELEMENT) {
+          return;
+        }
+        throw syntaxError("Expected closing />");
       }
-      peeked = PEEKED_NONE;
-    } while (count != 0);
+    }
+  }
+
+  /**
+   * Skips the remaining bytes of an opening xml tag including the closing {@code >} or {@code />}.
+   *
+   * @return true if it was a self closing tag like {@code <foo />}, otherwise false
+   */
+  private boolean skipStartTag() throws IOException {
+    skipToEndOfStartTag();
+    if (buffer.readByte() == CLOSING_XML_ELEMENT) {
+      return false;
+    }
+    buffer.skip(1); // '/' has been consumed, now consume '>'
+    return true;
+  }
+
+  /**
+   * Skips everything up to and including the given terminal (i.e. closing comment or CDATA tag)
+   *
+   * @param terminal The terminal to search for
+   * @param fromIndex The index where to start searching (i.e. to not match the opening tag)
+   * @param depth The current nesting depth while skipping. Only used for error message
+   */
+  private void skipPast(ByteString terminal, long fromIndex, int depth) throws IOException {
+    long index = source.indexOf(terminal, fromIndex);
+    if (index == -1L) {
+      throw unexpectedEndOfInputWhileSkipping(depth);
+    }
+    buffer.skip(index + terminal.size());
+  }
+
+  /**
+   * Creates the exception thrown if the document ends while skipping an element
+   */
+  private EOFException unexpectedEndOfInputWhileSkipping(int depth) {
+    return new EOFException("Unexpected end of input while skipping the element at path "
+        + getPath()
+        + ": "
+        + depth
+        + " xml element(s) not closed");
   }
 
   /**
@@ -1107,6 +2189,57 @@ public class XmlReader implements Closeable {
    * buffer.skip(i != -1L ? i : buffer.size()); }
    */
 
+  /**
+   * A set of element or attribute names, encoded as UTF-8 ahead of time, that can be read with
+   * {@link #selectElementName(Options)} or {@link #selectAttributeName(Options)} without decoding
+   * any String. Create it once (i.e. as a constant in a {@code TypeAdapter}) and reuse it.
+   */
+  public static final class Options {
+    final String[] strings;
+    final ByteString[] byteStrings;
+
+    private Options(String[] strings, ByteString[] byteStrings) {
+      this.strings = strings;
+      this.byteStrings = byteStrings;
+    }
+
+    /**
+     * Creates a new Options instance
+     *
+     * @param names The element or attribute names. The index of a name is the value returned by
+     * the select methods.
+     * @return The Options
+     */
+    public static Options of(String... names) {
+      String[] strings = names.clone();
+      ByteString[] byteStrings = new ByteString[strings.length];
+      for (int i = 0; i < strings.length; i++) {
+        if (strings[i] == null) {
+          throw new NullPointerException("Name at index " + i + " is null");
+        }
+        byteStrings[i] = ByteString.encodeUtf8(strings[i]);
+      }
+      return new Options(strings, byteStrings);
+    }
+
+    /**
+     * Get the name for a given index
+     *
+     * @param index The index of the name
+     * @return The name
+     */
+    public String name(int index) {
+      return strings[index];
+    }
+
+    /**
+     * @return The number of names
+     */
+    public int size() {
+      return strings.length;
+    }
+  }
+
   public enum XmlToken {
     /**
      * Indicates that an xml element begins.
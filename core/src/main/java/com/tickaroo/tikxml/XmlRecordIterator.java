@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over all xml elements matching a given path (like {@code /catalog/product}) of a xml
+ * document. Each matching element is read with the regular {@link TypeAdapter} as soon as its
+ * closing tag has been reached, everything else is skipped. Hence only one record is held in
+ * memory at the same time, regardless of the size of the document.
+ *
+ * <p>Instances are created with {@link TikXml#readStream(okio.BufferedSource, String,
+ * java.lang.reflect.Type)}. Always {@link #close()} the iterator (or the {@link #stream()}), which
+ * closes the underlying source as well. Since {@link Iterator} can't throw checked exceptions,
+ * {@link IOException}s are rethrown as {@link UncheckedIOException}.
+ */
+public final class XmlRecordIterator<T> implements Iterator<T>, Closeable {
+
+  /**
+   * Specifies what happens if a single record can't be read, i.e. because a value can't be
+   * converted.
+   */
+  public enum ErrorPolicy {
+    /**
+     * The exception is thrown and iteration stops. This is the default.
+     */
+    FAIL,
+
+    /**
+     * The malformed record is skipped and iteration continues with the next record.
+     */
+    SKIP,
+
+    /**
+     * Like {@link #SKIP}, but the exception is added to {@link #errors()}
+     */
+    COLLECT
+  }
+
+  private final TikXml tikXml;
+  private final TikXmlConfig config;
+  private final TypeAdapter<T> adapter;
+  private final XmlReader.Options[] segments;
+  private final String path;
+  private final ErrorPolicy errorPolicy;
+  private final List<XmlDataException> errors = new ArrayList<>();
+
+  private XmlReader reader;
+  /** Number of path segments we are currently in */
+  private int matched = 0;
+  /** Number of records found so far (including malformed ones) */
+  private int recordIndex = 0;
+  private T next;
+  private boolean hasNext = false;
+
+  XmlRecordIterator(TikXml tikXml, XmlReader reader, TikXmlConfig config, TypeAdapter<T> adapter,
+      String path, XmlReader.Options[] segments, ErrorPolicy errorPolicy) {
+    this.tikXml = tikXml;
+    this.reader = reader;
+    this.config = config;
+    this.adapter = adapter;
+    this.path = path;
+    this.errorPolicy = errorPolicy;
+    this.segments = segments;
+  }
+
+  /**
+   * Splits an absolute path like {@code /catalog/product} into its element names
+   */
+  static XmlReader.Options[] parsePath(String path) {
+    if (path == null || !path.startsWith("/") || path.length() == 1) {
+      throw new IllegalArgumentException(
+          "Path must be absolute and point to an element like /catalog/product, but was " + path);
+    }
+    String[] names = path.substring(1).split("/", -1);
+    XmlReader.Options[] segments = new XmlReader.Options[names.length];
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].isEmpty()) {
+        throw new IllegalArgumentException("Path " + path + " contains an empty element name");
+      }
+      segments[i] = XmlReader.Options.of(names[i]);
+    }
+    return segments;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (!hasNext && reader != null) {
+      try {
+        hasNext = advance();
+        if (!hasNext) {
+          close();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return hasNext;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    T value = next;
+    next = null;
+    hasNext = false;
+    return value;
+  }
+
+  /**
+   * The errors of all records that have been skipped so far. Only used with {@link
+   * ErrorPolicy#COLLECT}
+   *
+   * @return unmodifiable list of errors
+   */
+  public List<XmlDataException> errors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * Get a sequential {@link Stream} of the remaining records. Closing the stream closes this
+   * iterator.
+   */
+  public Stream<T> stream() {
+    Stream<T> stream = StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false);
+    return stream.onClose(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Walks the document until the next element matching the path has been read
+   *
+   * @return true if a record has been found, false if the end of the document has been reached
+   */
+  private boolean advance() throws IOException {
+    while (true) {
+      if (reader.hasElement()) {
+        int depth = reader.depth();
+        reader.beginElement();
+        if (reader.selectElementName(segments[matched]) == -1) {
+          reader.skipRemainingElement();
+        } else if (matched < segments.length - 1) {
+          reader.skipRemainingAttributes();
+          matched++;
+        } else if (readRecord(depth)) {
+          return true;
+        }
+      } else if (reader.hasTextContent()) {
+        reader.skipTextContent();
+      } else if (matched == 0) {
+        return false; // end of document
+      } else {
+        reader.endElement();
+        matched--;
+      }
+    }
+  }
+
+  /**
+   * Reads the record the reader is currently pointing to.
+   *
+   * @param depth The depth of the reader before the record element has been opened
+   * @return true if the record has been read, false if it has been skipped
+   */
+  private boolean readRecord(int depth) throws IOException {
+    int index = recordIndex++;
+    try {
+      next = adapter.fromXml(reader, config, false);
+      reader.endElement();
+      return true;
+    } catch (IOException | RuntimeException e) {
+      if (errorPolicy == ErrorPolicy.FAIL) {
+        throw e;
+      }
+
+      XmlDataException error =
+          new XmlDataException("Could not read record " + path + "[" + index + "]: " + e.getMessage(), e);
+      skipToDepth(depth);
+      if (errorPolicy == ErrorPolicy.COLLECT) {
+        errors.add(error);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Skips everything until the reader is back at the given depth, i.e. after a record could not be
+   * read completely.
+   */
+  private void skipToDepth(int depth) throws IOException {
+    while (reader.depth() > depth) {
+      switch (reader.peek()) {
+        case ELEMENT_BEGIN:
+          reader.beginElement();
+          reader.skipRemainingElement();
+          break;
+
+        case ELEMENT_NAME:
+        case ATTRIBUTE_NAME:
+        case ATTRIBUTE_VALUE:
+          // Still in the opening tag
+          reader.skipRemainingElement();
+          break;
+
+        case ELEMENT_TEXT_CONTENT:
+          reader.skipTextContent();
+          break;
+
+        case ELEMENT_END:
+          reader.endElement();
+          break;
+
+        default:
+          throw new EOFException("Unexpected end of document at path " + reader.getPath());
+      }
+    }
+  }
+
+  /**
+   * Closes the underlying source. Calling this method more than once has no effect.
+   */
+  @Override
+  public void close() throws IOException {
+    XmlReader r = reader;
+    if (r != null) {
+      reader = null;
+      hasNext = false;
+      next = null;
+      try {
+        r.close();
+      } finally {
+        tikXml.releaseReader(r);
+      }
+    }
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import okio.Buffer;
+
+/**
+ * Publishes the records (xml elements at a given path like {@code /feed/entry}) of a xml document
+ * that is published chunk by chunk by an upstream {@link Flow.Publisher}. Every subscriber gets
+ * its own subscription to the upstream publisher and its own {@link XmlFeedParser}.
+ *
+ * <p>Subscriber demand is honoured: chunks are requested from upstream one at a time, and only
+ * until one record more than requested has been read (or the end of the document has been
+ * reached). So at most one record is buffered, and {@link Flow.Subscriber#onComplete()} is
+ * signaled right after the last record, even if the subscriber has requested exactly the number
+ * of records of the document. All signals are serialized with a work-in-progress counter, so
+ * records are read on whichever thread delivers a chunk or requests more records, and never
+ * concurrently.
+ *
+ * <p>Instances are created with {@link #create(TikXml, Flow.Publisher, String, Type)}. This
+ * requires {@code java.util.concurrent.Flow} (Java 9 or Android API level 30), unlike {@link
+ * TikXml} itself.
+ */
+public final class XmlRecordPublisher<T> implements Flow.Publisher<T> {
+
+  private final TikXml tikXml;
+  private final TikXmlConfig config;
+  private final TypeAdapter<T> adapter;
+  private final XmlReader.Options[] segments;
+  private final Flow.Publisher<ByteBuffer> upstream;
+
+  private XmlRecordPublisher(TikXml tikXml, TikXmlConfig config, TypeAdapter<T> adapter,
+      XmlReader.Options[] segments, Flow.Publisher<ByteBuffer> upstream) {
+    this.tikXml = tikXml;
+    this.config = config;
+    this.adapter = adapter;
+    this.segments = segments;
+    this.upstream = upstream;
+  }
+
+  /**
+   * Publishes the xml elements matching the given path of a xml document that is published chunk
+   * by chunk, i.e. a streaming http body of a reactive http client. Records are read with a {@link
+   * XmlFeedParser}, so no thread blocks while waiting for the next chunk.
+   *
+   * @param tikXml The TikXml instance providing the configuration and type adapters
+   * @param upstream The publisher of the chunks of the xml document
+   * @param path The absolute path of the elements to read like {@code /feed/entry}
+   * @param clazz The type of a single record
+   * @return A publisher of the records. Every subscriber subscribes to upstream on its own.
+   */
+  public static <T> Flow.Publisher<T> create(TikXml tikXml,
+      Flow.Publisher<ByteBuffer> upstream, String path, Type clazz) throws IOException {
+    if (upstream == null) {
+      throw new NullPointerException("upstream == null");
+    }
+    XmlReader.Options[] segments = XmlRecordIterator.parsePath(path);
+    TypeAdapter<T> adapter = tikXml.config.getTypeAdapter(clazz);
+    return new XmlRecordPublisher<T>(tikXml, tikXml.config, adapter, segments, upstream);
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber == null");
+    }
+    RecordSubscription subscription = new RecordSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    upstream.subscribe(subscription);
+  }
+
+  /**
+   * Subscribes to the upstream chunks and is the subscription of the downstream subscriber
+   */
+  private final class RecordSubscription implements Flow.Subscriber<ByteBuffer>, Flow.Subscription {
+
+    private final Flow.Subscriber<? super T> downstream;
+    private final XmlFeedParser<T> parser;
+
+    /** Chunks received from upstream but not fed to the parser yet */
+    private final Queue<Buffer> chunks = new ConcurrentLinkedQueue<>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile Flow.Subscription upstreamSubscription;
+    private volatile boolean upstreamDone = false;
+    private volatile Throwable error;
+    private volatile boolean cancelled = false;
+    /** True once the subscriber has requested records, before nothing is read ahead */
+    private volatile boolean requested = false;
+
+    // Only accessed in drain()
+    private boolean chunkRequested = false;
+    private boolean endOfInput = false;
+    private boolean terminated = false;
+    /** A record that has been read but not emitted yet because of missing demand */
+    private T record;
+    private boolean hasRecord = false;
+
+    RecordSubscription(Flow.Subscriber<? super T> downstream) {
+      this.downstream = downstream;
+      this.parser = new XmlFeedParser<T>(tikXml, config, adapter, segments);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      if (upstreamSubscription != null || cancelled) {
+        subscription.cancel();
+        return;
+      }
+      upstreamSubscription = subscription;
+      drain();
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+      // Copy the bytes, the upstream publisher may reuse the ByteBuffer
+      Buffer chunk = new Buffer();
+      try {
+        chunk.write(item);
+      } catch (IOException e) {
+        onError(e);
+        return;
+      }
+      chunks.offer(chunk);
+      drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      upstreamDone = true;
+      drain();
+    }
+
+    @Override
+    public void onComplete() {
+      upstreamDone = true;
+      drain();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        error = new IllegalArgumentException("Requested " + n + " records, but must be > 0");
+        cancelUpstream();
+      } else {
+        long current;
+        long next;
+        do {
+          current = demand.get();
+          next = current + n < 0 ? Long.MAX_VALUE : current + n; // Overflow means unbounded
+        } while (!demand.compareAndSet(current, next));
+        requested = true;
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      cancelUpstream();
+      drain();
+    }
+
+    private void cancelUpstream() {
+      Flow.Subscription subscription = upstreamSubscription;
+      if (subscription != null) {
+        subscription.cancel();
+      }
+    }
+
+    /**
+     * Reads records as long as there is demand. Only one thread at a time runs the loop, signals
+     * arriving meanwhile make it loop again.
+     */
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+
+      int missed = 1;
+      do {
+        while (!terminated) {
+          if (cancelled) {
+            terminated = true;
+            break;
+          }
+
+          // Read before polling: onComplete() is signaled after the last chunk has been offered
+          boolean done = upstreamDone;
+          Buffer chunk;
+          while ((chunk = chunks.poll()) != null) {
+            parser.feed(chunk);
+            chunkRequested = false;
+          }
+          Throwable e = error;
+          if (e != null) {
+            fail(e);
+            break;
+          }
+          if (done && !endOfInput) {
+            parser.endOfInput();
+            endOfInput = true;
+          }
+          if (!hasRecord) {
+            // Without demand read ahead one record, so that the end of the document is detected
+            // (and signaled) as soon as the last record has been emitted
+            if (!requested && !endOfInput) {
+              break;
+            }
+
+            XmlFeedParser.State state;
+            try {
+              state = parser.next();
+            } catch (Throwable t) {
+              cancelUpstream();
+              fail(t);
+              break;
+            }
+
+            if (state == XmlFeedParser.State.END_OF_DOCUMENT) {
+              terminated = true;
+              downstream.onComplete();
+              break;
+            } else if (state == XmlFeedParser.State.NEED_MORE_INPUT) {
+              Flow.Subscription subscription = upstreamSubscription;
+              if (!chunkRequested && subscription != null) {
+                chunkRequested = true;
+                subscription.request(1);
+              }
+              break;
+            }
+            record = parser.record();
+            hasRecord = true;
+          }
+
+          if (demand.get() == 0) {
+            break;
+          }
+          if (demand.get() != Long.MAX_VALUE) {
+            demand.decrementAndGet();
+          }
+          T value = record;
+          record = null;
+          hasRecord = false;
+          downstream.onNext(value);
+        }
+        if (terminated) {
+          chunks.clear();
+          record = null;
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void fail(Throwable t) {
+      terminated = true;
+      downstream.onError(t);
+    }
+  }
+}
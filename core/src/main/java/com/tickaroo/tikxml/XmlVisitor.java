@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import java.io.IOException;
+
+/**
+ * Receives the xml document token by token, see {@link TikXml#scan(okio.BufferedSource,
+ * XmlVisitor)}. This is useful to extract a few values of a large document without binding it to
+ * model classes.
+ *
+ * <p>The {@link CharSequence} arguments are reused for every callback to avoid allocating a {@link
+ * String} per value. Hence they are only valid during the callback. Call {@link
+ * CharSequence#toString()} to keep a value.
+ */
+public interface XmlVisitor {
+
+  /**
+   * Called for an opening xml tag like {@code <element>}, followed by {@link
+   * #attribute(CharSequence, CharSequence)} for every attribute of this element.
+   *
+   * @param name The name of the element
+   */
+  void startElement(CharSequence name) throws IOException;
+
+  /**
+   * Called for each attribute of the element that has been started right before.
+   *
+   * @param name The name of the attribute
+   * @param value The value of the attribute
+   */
+  void attribute(CharSequence name, CharSequence value) throws IOException;
+
+  /**
+   * Called for the text content (or CDATA) of an element. Might be called multiple times per
+   * element if the text content is interrupted by child elements.
+   *
+   * @param text The text content
+   */
+  void text(CharSequence text) throws IOException;
+
+  /**
+   * Called for a closing xml tag like {@code </element>} or an empty tag like {@code <element />}
+   */
+  void endElement() throws IOException;
+}
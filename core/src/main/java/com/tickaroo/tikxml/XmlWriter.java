@@ -20,6 +20,7 @@ package com.tickaroo.tikxml;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Arrays;
 import okio.BufferedSink;
 import okio.ByteString;
 
@@ -84,7 +85,7 @@ public class XmlWriter implements Closeable {
       ByteString.encodeUtf8("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
 
   /** The output data, containing at most one top-level array or object. */
-  private final BufferedSink sink;
+  private BufferedSink sink;
   private boolean xmlDeclarationWritten = false;
 
   private int[] stack = new int[32];
@@ -111,6 +112,39 @@ public class XmlWriter implements Closeable {
     return new XmlWriter(source);
   }
 
+  /**
+   * Resets this writer so that it can be reused to write another xml document into {@code sink}.
+   * All writing state is cleared, but the internal (already grown) arrays are kept.
+   *
+   * <p> The previous sink is neither flushed nor closed. </p>
+   *
+   * @param sink The new sink to write to
+   * @return this writer
+   */
+  public XmlWriter reset(BufferedSink sink) {
+    if (sink == null) {
+      throw new NullPointerException("sink == null");
+    }
+    clear();
+    this.sink = sink;
+    return this;
+  }
+
+  /**
+   * Clears the writing state and releases the reference to the current sink (i.e. before putting
+   * this writer into a pool)
+   */
+  void clear() {
+    sink = null;
+    xmlDeclarationWritten = false;
+    // The arrays are not necessarily cleaned up above stackSize (i.e. close() sets stackSize to 0)
+    Arrays.fill(pathNames, null);
+    Arrays.fill(pathIndices, 0);
+    Arrays.fill(stack, 0);
+    stackSize = 0;
+    stack[stackSize++] = XmlScope.EMPTY_DOCUMENT;
+  }
+
   private void pushStack(int newTop) {
     if (stackSize == stack.length) {
       int[] newStack = new int[stackSize * 2];
@@ -299,6 +333,60 @@ public class XmlWriter implements Closeable {
     return this;
   }
 
+  /**
+   * Writes the raw (utf-8 encoded) bytes as text content into an element: {@code <element>text
+   * content</element>}
+   *
+   * @param textContentValue The text content
+   * @throws IOException
+   */
+  public XmlWriter textContent(ByteString textContentValue) throws IOException {
+    int topOfStack = peekStack();
+    switch (topOfStack) {
+      case ELEMENT_OPENING:
+        sink.writeByte(CLOSING_XML_ELEMENT);
+        replaceTopOfStack(XmlScope.ELEMENT_CONTENT);
+        sink.write(textContentValue);
+        break;
+
+      case ELEMENT_CONTENT:
+        sink.write(textContentValue);
+        break;
+
+      default:
+        // Let textContent(String) report the error
+        textContent(textContentValue.utf8());
+    }
+    return this;
+  }
+
+  /**
+   * Writes a {@link LargeText} as text content into an element by streaming it into the sink:
+   * {@code <element>text content</element>}
+   *
+   * @param textContentValue The text content
+   * @throws IOException
+   */
+  public XmlWriter textContent(LargeText textContentValue) throws IOException {
+    int topOfStack = peekStack();
+    switch (topOfStack) {
+      case ELEMENT_OPENING:
+        sink.writeByte(CLOSING_XML_ELEMENT);
+        replaceTopOfStack(XmlScope.ELEMENT_CONTENT);
+        textContentValue.writeTo(sink);
+        break;
+
+      case ELEMENT_CONTENT:
+        textContentValue.writeTo(sink);
+        break;
+
+      default:
+        // Let textContent(String) report the error
+        textContent(textContentValue.toString());
+    }
+    return this;
+  }
+
   /**
    * Writes the text content into an element: {@code <element>123</element>}
    *
@@ -450,6 +538,28 @@ public class XmlWriter implements Closeable {
     return attribute(attributeName, Double.toString(value));
   }
 
+  /**
+   * Writes a xml attribute and the corresponding raw (utf-8 encoded) value. Must be called after
+   * {@link #beginElement(String)} and before {@link #endElement()} or {@link #textContent(String)}
+   *
+   * @param attributeName The name of the attribute
+   * @param value the value
+   * @throws IOException
+   */
+  public XmlWriter attribute(String attributeName, ByteString value) throws IOException {
+    if (XmlScope.ELEMENT_OPENING == peekStack()) {
+      sink.writeByte(' ') // Write a whitespace
+          .writeUtf8(attributeName)
+          .write(ATTRIBUTE_ASSIGNMENT_BEGIN)
+          .write(value)
+          .writeByte(DOUBLE_QUOTE);
+      return this;
+    }
+
+    // Let attribute(String, String) report the error
+    return attribute(attributeName, value.utf8());
+  }
+
   /**
    * Writes the xml declaration {@code <?xml version="1.0" encoding="UTF-8"?>}
    *
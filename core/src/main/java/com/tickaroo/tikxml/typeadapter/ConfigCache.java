@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.typeadapter;
+
+import com.tickaroo.tikxml.TikXmlConfig;
+import java.lang.ref.WeakReference;
+
+/**
+ * Caches a value (a {@link TypeAdapter} or a {@link com.tickaroo.tikxml.TypeConverter}) per
+ * {@link TikXmlConfig} for {@link TypeAdapterReference} and {@link TypeConverterReference}. A
+ * generated {@link TypeAdapter} may be shared by multiple {@link com.tickaroo.tikxml.TikXml}
+ * instances, so reads and writes with different configs must not evict each other's values.
+ *
+ * <p>Up to {@link #MAX_ENTRIES} configs are cached. If more configs are in use, the values of the
+ * others are not cached and resolved from the registry on every lookup. The configs are weakly
+ * referenced, so a cache never keeps a config alive, and the entries of garbage collected configs
+ * are reused.
+ *
+ * <p>Thread safe: lookups read an immutable array of entries, which is replaced when a value is
+ * added by {@link #put(TikXmlConfig, Object)}.
+ */
+final class ConfigCache<V> {
+
+  /** The max. number of configs cached */
+  static final int MAX_ENTRIES = 8;
+
+  private static final Entry<?>[] EMPTY = new Entry<?>[0];
+
+  private volatile Entry<?>[] entries = EMPTY;
+
+  /**
+   * Get the value cached for the given config
+   *
+   * @param config The config
+   * @return The cached value or null, if no value has been cached for the config
+   */
+  @SuppressWarnings("unchecked")
+  V get(TikXmlConfig config) {
+    for (Entry<?> entry : entries) {
+      if (entry.get() == config) {
+        return (V) entry.value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Caches the value for the given config, unless {@link #MAX_ENTRIES} configs are cached already.
+   * Entries are never evicted while their config is alive, so that a cache shared by more configs
+   * doesn't replace (and copy) its entries on every lookup.
+   *
+   * @param config The config
+   * @param value The value resolved from the config
+   */
+  void put(TikXmlConfig config, V value) {
+    if (isFull(entries)) {
+      return; // Without taking the lock
+    }
+    synchronized (this) {
+      Entry<?>[] old = entries;
+      if (isFull(old)) {
+        return;
+      }
+      int size = 0;
+      Entry<?>[] updated = new Entry<?>[old.length + 1];
+      for (Entry<?> entry : old) {
+        TikXmlConfig cached = entry.get();
+        if (cached != null && cached != config) {
+          updated[size++] = entry;
+        }
+      }
+      updated[size++] = new Entry<V>(config, value);
+      if (size < updated.length) {
+        Entry<?>[] trimmed = new Entry<?>[size];
+        System.arraycopy(updated, 0, trimmed, 0, size);
+        updated = trimmed;
+      }
+      entries = updated;
+    }
+  }
+
+  /**
+   * @return true if the given entries have no room for another config, which is the case if there
+   * are {@link #MAX_ENTRIES} entries whose configs are all alive
+   */
+  private static boolean isFull(Entry<?>[] entries) {
+    if (entries.length < MAX_ENTRIES) {
+      return false;
+    }
+    for (Entry<?> entry : entries) {
+      if (entry.get() == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class Entry<V> extends WeakReference<TikXmlConfig> {
+    final V value;
+
+    Entry(TikXmlConfig config, V value) {
+      super(config);
+      this.value = value;
+    }
+  }
+}
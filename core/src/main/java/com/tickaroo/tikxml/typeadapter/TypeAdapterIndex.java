@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.typeadapter;
+
+/**
+ * An index of generated {@link TypeAdapter}s. Without an index, generated type adapters are
+ * loaded via reflections ({@code Class.forName()} and {@code newInstance()}) the first time a class
+ * is read or written.
+ *
+ * <p>The annotation processor generates an index of all type adapters of a module if the
+ * annotation processor option {@code tikxml.adapterIndex} is set to the full qualified class name
+ * of the index, i.e. {@code -Atikxml.adapterIndex=com.example.MyAdapterIndex}. The generated index
+ * is registered for {@link java.util.ServiceLoader} too. Add it with {@link
+ * com.tickaroo.tikxml.TikXml.Builder#addAdapterIndex(TypeAdapterIndex)} or {@link
+ * com.tickaroo.tikxml.TikXml.Builder#loadAdapterIndexes(ClassLoader)}.
+ */
+public interface TypeAdapterIndex {
+
+  /**
+   * Instantiates the {@link TypeAdapter} for the given class
+   *
+   * @param clazz The class to instantiate a {@link TypeAdapter} for
+   * @param generic true if the generic type adapter (for polymorphism via interfaces or abstract
+   * classes) is requested
+   * @return A new {@link TypeAdapter} or null if this index doesn't contain one for the given class
+   */
+  TypeAdapter<?> newTypeAdapter(Class<?> clazz, boolean generic);
+}
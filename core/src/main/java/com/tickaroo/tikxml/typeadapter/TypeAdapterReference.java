@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.typeadapter;
+
+import com.tickaroo.tikxml.TikXmlConfig;
+import com.tickaroo.tikxml.TypeAdapterNotFoundException;
+
+/**
+ * Used by generated {@link TypeAdapter}s to resolve the {@link TypeAdapter} of a child element
+ * once instead of looking it up in {@link TikXmlConfig#getTypeAdapter(java.lang.reflect.Type)}
+ * for every element. A generated {@link TypeAdapter} may be shared by multiple {@link
+ * com.tickaroo.tikxml.TikXml} instances (see {@link
+ * com.tickaroo.tikxml.TikXml.Builder#shareTypeRegistryWith(com.tickaroo.tikxml.TikXml)}), which
+ * may resolve different {@link TypeAdapter}s, so the resolved {@link TypeAdapter} is cached per
+ * {@link TikXmlConfig}.
+ *
+ * <p>Thread safe: if multiple threads resolve the type adapter at the same time, each of them gets
+ * the type adapter from the registry.
+ */
+public final class TypeAdapterReference<T> {
+
+  private final Class<?> type;
+  private final boolean generic;
+  private final ConfigCache<TypeAdapter<T>> resolved = new ConfigCache<TypeAdapter<T>>();
+
+  /**
+   * @param type The type to resolve the {@link TypeAdapter} for
+   * @param generic true if the generic type adapter should be resolved
+   */
+  public TypeAdapterReference(Class<?> type, boolean generic) {
+    this.type = type;
+    this.generic = generic;
+  }
+
+  /**
+   * Get the {@link TypeAdapter}
+   *
+   * @param config The config of the current read or write
+   * @return The {@link TypeAdapter}
+   * @throws TypeAdapterNotFoundException if there is no {@link TypeAdapter} for the type
+   */
+  public TypeAdapter<T> get(TikXmlConfig config) throws TypeAdapterNotFoundException {
+    TypeAdapter<T> adapter = resolved.get(config);
+    if (adapter == null) {
+      adapter = config.getTypeAdapter(type, generic);
+      resolved.put(config, adapter);
+    }
+    return adapter;
+  }
+}
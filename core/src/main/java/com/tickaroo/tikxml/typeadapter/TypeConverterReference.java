@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.typeadapter;
+
+import com.tickaroo.tikxml.TikXmlConfig;
+import com.tickaroo.tikxml.TypeConverter;
+import com.tickaroo.tikxml.TypeConverterNotFoundException;
+
+/**
+ * Used by generated {@link TypeAdapter}s to resolve a {@link TypeConverter} once instead of
+ * looking it up in {@link TikXmlConfig#getTypeConverter(Class)} for every value. Like {@link
+ * TypeAdapterReference}, the resolved {@link TypeConverter} is cached per {@link TikXmlConfig}.
+ */
+public final class TypeConverterReference<T> {
+
+  private final Class<T> type;
+  private final ConfigCache<TypeConverter<T>> resolved = new ConfigCache<TypeConverter<T>>();
+
+  /**
+   * @param type The type to resolve the {@link TypeConverter} for
+   */
+  public TypeConverterReference(Class<T> type) {
+    this.type = type;
+  }
+
+  /**
+   * Get the {@link TypeConverter}
+   *
+   * @param config The config of the current read or write
+   * @return The {@link TypeConverter}
+   * @throws TypeConverterNotFoundException if there is no {@link TypeConverter} for the type
+   */
+  public TypeConverter<T> get(TikXmlConfig config) throws TypeConverterNotFoundException {
+    TypeConverter<T> converter = resolved.get(config);
+    if (converter == null) {
+      converter = config.getTypeConverter(type);
+      resolved.put(config, converter);
+    }
+    return converter;
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.DeflaterSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Sink;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompressionTest {
+
+  private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><text>Hello äöü</text>";
+
+  private static final TypeAdapter<String> TEXT_ADAPTER = new TypeAdapter<String>() {
+    @Override
+    public String fromXml(XmlReader reader, TikXmlConfig config, boolean isGenericList)
+        throws IOException {
+      return reader.nextTextContent();
+    }
+
+    @Override
+    public void toXml(XmlWriter writer, TikXmlConfig config, String value,
+        String overridingXmlElementName) throws IOException {
+      writer.beginElement("text");
+      writer.textContent(value);
+      writer.endElement();
+    }
+  };
+
+  private final TikXml tikXml = new TikXml.Builder()
+      .decompressInput(true)
+      .addTypeAdapter(String.class, TEXT_ADAPTER)
+      .build();
+
+  private static Buffer compress(String text, Sink compressing, Buffer compressed)
+      throws IOException {
+    BufferedSink sink = Okio.buffer(compressing);
+    sink.writeUtf8(text);
+    sink.close();
+    return compressed;
+  }
+
+  private static Buffer gzip(String text) throws IOException {
+    Buffer compressed = new Buffer();
+    return compress(text, new GzipSink(compressed), compressed);
+  }
+
+  private static Buffer deflate(String text) throws IOException {
+    Buffer compressed = new Buffer();
+    return compress(text, new DeflaterSink(compressed, new Deflater()), compressed);
+  }
+
+  @Test
+  public void detect() throws IOException {
+    Assert.assertEquals(Compression.GZIP, Compression.detect(gzip(XML)));
+    Assert.assertEquals(Compression.DEFLATE, Compression.detect(deflate(XML)));
+    for (int level = Deflater.BEST_SPEED; level <= Deflater.BEST_COMPRESSION; level++) {
+      Buffer compressed = new Buffer();
+      compress(XML, new DeflaterSink(compressed, new Deflater(level)), compressed);
+      Assert.assertEquals(Compression.DEFLATE, Compression.detect(compressed));
+    }
+
+    Assert.assertNull(Compression.detect(new Buffer().writeUtf8(XML)));
+    Assert.assertNull(Compression.detect(new Buffer().writeUtf8(" \n<a/>")));
+    Assert.assertNull(Compression.detect(new Buffer().writeUtf8("﻿<a/>")));
+    Assert.assertNull(Compression.detect(new Buffer().writeUtf8("<")));
+    Assert.assertNull(Compression.detect(new Buffer()));
+  }
+
+  @Test
+  public void readCompressed() throws IOException {
+    Assert.assertEquals("Hello äöü", tikXml.read(gzip(XML), String.class));
+    Assert.assertEquals("Hello äöü", tikXml.read(deflate(XML), String.class));
+    Assert.assertEquals("Hello äöü", tikXml.read(new Buffer().writeUtf8(XML), String.class));
+  }
+
+  @Test
+  public void readCompressedWithPrefetching() throws IOException {
+    TikXml prefetching = new TikXml.Builder()
+        .decompressInput(true)
+        .prefetch(64 * 1024)
+        .addTypeAdapter(String.class, TEXT_ADAPTER)
+        .build();
+    Assert.assertEquals("Hello äöü", prefetching.read(gzip(XML), String.class));
+  }
+
+  @Test
+  public void readStreamCompressed() throws IOException {
+    StringBuilder xml = new StringBuilder("<list>");
+    for (int i = 0; i < 1000; i++) {
+      xml.append("<text>").append(i).append("</text>");
+    }
+    xml.append("</list>");
+
+    XmlRecordIterator<String> texts = tikXml.readStream(gzip(xml.toString()), "/list/text",
+        String.class);
+    int count = 0;
+    while (texts.hasNext()) {
+      Assert.assertEquals(String.valueOf(count), texts.next());
+      count++;
+    }
+    texts.close();
+    Assert.assertEquals(1000, count);
+  }
+
+  @Test
+  public void writeGzip() throws IOException {
+    Buffer buffer = new Buffer();
+    final boolean[] closed = { false };
+    BufferedSink sink = Okio.buffer(new ForwardingSink(buffer) {
+      @Override
+      public void close() throws IOException {
+        closed[0] = true;
+        super.close();
+      }
+    });
+    tikXml.write(sink, "Hello äöü", Compression.GZIP);
+    sink.flush();
+    Assert.assertFalse(closed[0]);
+
+    Assert.assertEquals(Compression.GZIP, Compression.detect(buffer));
+    Assert.assertEquals(XML, Okio.buffer(new GzipSource(buffer.clone())).readUtf8());
+    Assert.assertEquals("Hello äöü", tikXml.read(buffer, String.class));
+  }
+
+  @Test
+  public void writeDeflate() throws IOException {
+    Buffer buffer = new Buffer();
+    tikXml.write(buffer, "Hello äöü", String.class, Compression.DEFLATE);
+
+    Assert.assertEquals(Compression.DEFLATE, Compression.detect(buffer));
+    Assert.assertEquals("Hello äöü", tikXml.read(buffer.clone(), String.class));
+    Assert.assertEquals(XML, Okio.buffer(new InflaterSource(buffer, new Inflater()))
+        .readUtf8());
+  }
+}
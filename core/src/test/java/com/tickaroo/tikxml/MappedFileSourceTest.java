@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedFileSourceTest {
+
+  private File file;
+
+  @Before
+  public void createFile() throws IOException {
+    file = File.createTempFile("tikxml", ".xml");
+    BufferedSink sink = Okio.buffer(Okio.sink(file));
+    sink.writeUtf8("<text>");
+    for (int i = 0; i < 1000; i++) {
+      sink.writeUtf8("Line ").writeUtf8(Integer.toString(i)).writeUtf8(" äöü\n");
+    }
+    sink.writeUtf8("</text>");
+    sink.close();
+  }
+
+  @After
+  public void deleteFile() {
+    file.delete();
+  }
+
+  @Test
+  public void readInSmallWindows() throws IOException {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      BufferedSource source = Okio.buffer(new MappedFileSource(channel, 13));
+      BufferedSource expected = Okio.buffer(Okio.source(file));
+      Assert.assertEquals(expected.readByteString(), source.readByteString());
+      source.close();
+      expected.close();
+    } finally {
+      channel.close();
+    }
+  }
+
+  @Test
+  public void readFromChannelPosition() throws IOException {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      channel.position(6); // skip <text>
+      BufferedSource source = Okio.buffer(new MappedFileSource(channel, 100));
+      Assert.assertEquals("Line 0 äöü", source.readUtf8LineStrict());
+      source.close();
+    } finally {
+      channel.close();
+    }
+  }
+
+  @Test
+  public void tikXmlReadPath() throws IOException {
+    TikXml tikXml = new TikXml.Builder()
+        .addTypeAdapter(String.class, new TypeAdapter<String>() {
+          @Override
+          public String fromXml(XmlReader reader, TikXmlConfig config, boolean isGenericList) throws IOException {
+            return reader.nextTextContent();
+          }
+
+          @Override
+          public void toXml(XmlWriter writer, TikXmlConfig config, String value, String overridingXmlElementName) {
+            throw new UnsupportedOperationException();
+          }
+        })
+        .build();
+
+    BufferedSource expected = Okio.buffer(Okio.source(file));
+    String content = expected.readUtf8();
+    expected.close();
+
+    String text = tikXml.read(file.toPath(), String.class);
+    Assert.assertEquals(content.substring("<text>".length(), content.length() - "</text>".length()), text);
+  }
+}
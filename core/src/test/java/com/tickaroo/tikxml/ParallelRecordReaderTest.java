@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import okio.BufferedSink;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelRecordReaderTest {
+
+  private static final int ENTRIES = 2000;
+
+  private File file;
+  private ForkJoinPool pool;
+  private TikXml tikXml;
+
+  /**
+   * Reads the id attribute of an entry element
+   */
+  private static class EntryTypeAdapter implements TypeAdapter<String> {
+    @Override
+    public String fromXml(XmlReader reader, TikXmlConfig config, boolean isGenericList) throws IOException {
+      String id = null;
+      while (reader.hasAttribute()) {
+        if (reader.nextAttributeName().equals("id")) {
+          id = reader.nextAttributeValue();
+        } else {
+          reader.skipAttributeValue();
+        }
+      }
+      while (reader.hasElement()) {
+        reader.beginElement();
+        reader.skipRemainingElement();
+      }
+      if (reader.hasTextContent()) {
+        reader.skipTextContent();
+      }
+      return id;
+    }
+
+    @Override
+    public void toXml(XmlWriter writer, TikXmlConfig config, String value, String overridingXmlElementName) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("tikxml", ".xml");
+    BufferedSink sink = Okio.buffer(Okio.sink(file));
+    sink.writeUtf8("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<feed version=\"1\">\n");
+    sink.writeUtf8("  <title>Feed with <entry id=\"no\"/> inside</title>\n");
+    for (int i = 0; i < ENTRIES; i++) {
+      sink.writeUtf8("  <entry id=\"").writeUtf8(Integer.toString(i)).writeUtf8("\">\n");
+      sink.writeUtf8("    <title><![CDATA[Entry </entry> ").writeUtf8(Integer.toString(i)).writeUtf8("]]></title>\n");
+      sink.writeUtf8("  </entry>\n");
+      if (i % 100 == 0) {
+        sink.writeUtf8("  <!-- <entry id=\"comment\"/> -->\n  <other><entry id=\"nested\"/></other>\n");
+      }
+    }
+    sink.writeUtf8("</feed>\n");
+    sink.close();
+
+    pool = new ForkJoinPool(4);
+    tikXml = new TikXml.Builder()
+        .addTypeAdapter(String.class, new EntryTypeAdapter())
+        .build();
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+    file.delete();
+  }
+
+  private List<String> read(String path, long chunkSize) throws IOException {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      TypeAdapter<String> adapter = tikXml.config.getTypeAdapter(String.class);
+      return new ParallelRecordReader<String>(tikXml, tikXml.config, adapter,
+          XmlRecordIterator.parsePath(path), channel, pool, chunkSize).read();
+    } finally {
+      channel.close();
+    }
+  }
+
+  @Test
+  public void readInSmallChunks() throws IOException {
+    List<String> ids = read("/feed/entry", 200);
+    Assert.assertEquals(ENTRIES, ids.size());
+    for (int i = 0; i < ENTRIES; i++) {
+      Assert.assertEquals(Integer.toString(i), ids.get(i));
+    }
+  }
+
+  @Test
+  public void readInOneChunk() throws IOException {
+    List<String> ids = read("/feed/entry", Long.MAX_VALUE);
+    Assert.assertEquals(ENTRIES, ids.size());
+    Assert.assertEquals("0", ids.get(0));
+    Assert.assertEquals(Integer.toString(ENTRIES - 1), ids.get(ENTRIES - 1));
+  }
+
+  @Test
+  public void readNestedPath() throws IOException {
+    List<String> ids = read("/feed/other/entry", 1);
+    Assert.assertEquals(ENTRIES / 100, ids.size());
+    for (String id : ids) {
+      Assert.assertEquals("nested", id);
+    }
+  }
+
+  @Test
+  public void noMatchingElements() throws IOException {
+    Assert.assertTrue(read("/catalog/entry", 200).isEmpty());
+  }
+
+  @Test
+  public void tikXmlReadParallel() throws IOException {
+    List<String> ids = tikXml.readParallel(file.toPath(), "/feed/entry", String.class, pool);
+    Assert.assertEquals(ENTRIES, ids.size());
+    Assert.assertEquals("0", ids.get(0));
+    Assert.assertEquals(Integer.toString(ENTRIES - 1), ids.get(ENTRIES - 1));
+  }
+
+  @Test
+  public void exceptionInChunkIsRethrown() throws IOException {
+    TikXml failing = new TikXml.Builder()
+        .addTypeAdapter(String.class, new EntryTypeAdapter() {
+          @Override
+          public String fromXml(XmlReader reader, TikXmlConfig config, boolean isGenericList) throws IOException {
+            String id = super.fromXml(reader, config, isGenericList);
+            if (id.equals("1500")) {
+              throw new XmlDataException("Broken entry");
+            }
+            return id;
+          }
+        })
+        .build();
+
+    try {
+      failing.readParallel(file.toPath(), "/feed/entry", String.class, pool);
+      Assert.fail("Exception expected");
+    } catch (XmlDataException e) {
+      Assert.assertEquals("Broken entry", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrefetchingSourceTest {
+
+  /**
+   * Counts the bytes read and returns at most 1000 bytes per read
+   */
+  private static class CountingSource extends ForwardingSource {
+
+    final AtomicInteger bytesRead = new AtomicInteger();
+
+    CountingSource(Source delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public long read(Buffer sink, long byteCount) throws IOException {
+      long read = super.read(sink, Math.min(byteCount, 1000));
+      if (read != -1) {
+        bytesRead.addAndGet((int) read);
+      }
+      return read;
+    }
+  }
+
+  private static String lines(int count) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      builder.append("Line ").append(i).append(" äöü\n");
+    }
+    return builder.toString();
+  }
+
+  @Test
+  public void readAll() throws IOException {
+    String text = lines(20000);
+    PrefetchingSource prefetching = new PrefetchingSource(
+        new CountingSource(new Buffer().writeUtf8(text)), 64 * 1024,
+        PrefetchingSource.NEW_THREAD_EXECUTOR);
+    BufferedSource source = Okio.buffer(prefetching);
+    Assert.assertEquals(text, source.readUtf8());
+    Assert.assertTrue(source.exhausted());
+    prefetching.cancel();
+  }
+
+  @Test(timeout = 10000)
+  public void readAheadIsBoundedByBytes() throws Exception {
+    final int maxBytes = 4 * PrefetchingSource.CHUNK_SIZE;
+    final CountDownLatch full = new CountDownLatch(1);
+    final AtomicInteger consumed = new AtomicInteger();
+    final AtomicBoolean exceeded = new AtomicBoolean();
+
+    // Short reads of at most 1000 bytes must not shrink the read ahead window
+    CountingSource upstream = new CountingSource(new Buffer().writeUtf8(lines(100000))) {
+      @Override
+      public long read(Buffer sink, long byteCount) throws IOException {
+        long read = super.read(sink, byteCount);
+        int total = bytesRead.get();
+        if (total > maxBytes + consumed.get()) {
+          exceeded.set(true);
+        }
+        if (total >= maxBytes) {
+          full.countDown();
+        }
+        return read;
+      }
+    };
+
+    PrefetchingSource prefetching = new PrefetchingSource(upstream, maxBytes,
+        PrefetchingSource.NEW_THREAD_EXECUTOR);
+    full.await();
+    Assert.assertEquals(maxBytes, upstream.bytesRead.get());
+    Assert.assertFalse(exceeded.get());
+
+    // Reading frees space for exactly the bytes read
+    consumed.set(1000);
+    Assert.assertEquals(1000, prefetching.read(new Buffer(), 1000));
+    prefetching.cancel();
+    Assert.assertFalse(exceeded.get());
+  }
+
+  @Test(timeout = 10000)
+  public void cancelWaitsForUpstreamRead() throws Exception {
+    final CountDownLatch reading = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicBoolean readReturned = new AtomicBoolean();
+    Source blocking = new ForwardingSource(new Buffer().writeUtf8("<a>text</a>")) {
+      @Override
+      public long read(Buffer sink, long byteCount) throws IOException {
+        reading.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException();
+        }
+        long read = super.read(sink, byteCount);
+        readReturned.set(true);
+        return read;
+      }
+    };
+
+    final PrefetchingSource prefetching = new PrefetchingSource(blocking, 64 * 1024,
+        PrefetchingSource.NEW_THREAD_EXECUTOR);
+    reading.await();
+
+    final CountDownLatch cancelled = new CountDownLatch(1);
+    Thread cancelling = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        prefetching.cancel();
+        cancelled.countDown();
+      }
+    });
+    cancelling.start();
+
+    Assert.assertFalse(cancelled.await(100, TimeUnit.MILLISECONDS));
+    release.countDown();
+    cancelled.await();
+    Assert.assertTrue(readReturned.get());
+  }
+
+  @Test(timeout = 10000)
+  public void readHonoursUpstreamTimeout() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final Timeout timeout = new Timeout().timeout(50, TimeUnit.MILLISECONDS);
+    Source blocking = new ForwardingSource(new Buffer().writeUtf8("<a>text</a>")) {
+      @Override
+      public Timeout timeout() {
+        return timeout;
+      }
+
+      @Override
+      public long read(Buffer sink, long byteCount) throws IOException {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException();
+        }
+        return super.read(sink, byteCount);
+      }
+    };
+
+    PrefetchingSource prefetching = new PrefetchingSource(blocking, 64 * 1024,
+        PrefetchingSource.NEW_THREAD_EXECUTOR);
+    try {
+      prefetching.read(new Buffer(), 100);
+      Assert.fail("Exception expected");
+    } catch (InterruptedIOException e) {
+      Assert.assertEquals("timeout", e.getMessage());
+    } finally {
+      release.countDown();
+      prefetching.cancel();
+    }
+  }
+
+  @Test
+  public void upstreamException() throws IOException {
+    Source failing = new ForwardingSource(new Buffer().writeUtf8("<a>text")) {
+      @Override
+      public long read(Buffer sink, long byteCount) throws IOException {
+        long read = super.read(sink, byteCount);
+        if (read == -1) {
+          throw new IOException("Connection reset");
+        }
+        return read;
+      }
+    };
+
+    PrefetchingSource prefetching = new PrefetchingSource(failing, 64 * 1024,
+        PrefetchingSource.NEW_THREAD_EXECUTOR);
+    BufferedSource source = Okio.buffer(prefetching);
+    try {
+      source.readUtf8();
+      Assert.fail("Exception expected");
+    } catch (IOException e) {
+      Assert.assertEquals("Connection reset", e.getMessage());
+    } finally {
+      prefetching.cancel();
+    }
+  }
+
+  @Test
+  public void readGzipWithPrefetching() throws IOException {
+    StringBuilder xml = new StringBuilder("<root>");
+    for (int i = 0; i < 20000; i++) {
+      xml.append("Text ").append(i).append(' ');
+    }
+    xml.append("</root>");
+
+    Buffer compressed = new Buffer();
+    GzipSink gzip = new GzipSink(compressed);
+    Buffer uncompressed = new Buffer().writeUtf8(xml.toString());
+    gzip.write(uncompressed, uncompressed.size());
+    gzip.close();
+
+    TikXml tikXml = new TikXml.Builder()
+        .prefetch(64 * 1024)
+        .addTypeAdapter(String.class, new TypeAdapter<String>() {
+          @Override
+          public String fromXml(XmlReader reader, TikXmlConfig config, boolean isGenericList)
+              throws IOException {
+            return reader.nextTextContent();
+          }
+
+          @Override
+          public void toXml(XmlWriter writer, TikXmlConfig config, String value,
+              String overridingXmlElementName) {
+            throw new UnsupportedOperationException();
+          }
+        })
+        .build();
+
+    String text = tikXml.read(Okio.buffer(new GzipSource(compressed)), String.class);
+    Assert.assertEquals(xml.substring(6, xml.length() - 7), text);
+  }
+}
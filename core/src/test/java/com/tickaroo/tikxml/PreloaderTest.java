@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import com.tickaroo.tikxml.typeadapter.TypeAdapterIndex;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import okio.Buffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PreloaderTest {
+
+  static class Root {
+    Child child;
+    List<Item> items;
+    Map<String, Item[]> itemsByName;
+    String name;
+    int count;
+  }
+
+  static class Child {
+    Root parent; // Cycle
+  }
+
+  static class Item {
+  }
+
+  static class Unreachable {
+  }
+
+  /**
+   * Records the classes type adapters are instantiated for
+   */
+  static class RecordingIndex implements TypeAdapterIndex {
+
+    final List<Class<?>> instantiated = new ArrayList<>();
+    int reads = 0;
+
+    @Override
+    public TypeAdapter<?> newTypeAdapter(Class<?> clazz, boolean generic) {
+      if (generic || !Arrays.<Class<?>>asList(Root.class, Child.class, Item.class, Unreachable.class)
+          .contains(clazz)) {
+        return null;
+      }
+      instantiated.add(clazz);
+      return new TypeAdapter<Object>() {
+        @Override
+        public Object fromXml(XmlReader reader, TikXmlConfig config, boolean isGenericList)
+            throws IOException {
+          reads++;
+          reader.skipRemainingElement();
+          return null;
+        }
+
+        @Override
+        public void toXml(XmlWriter writer, TikXmlConfig config, Object value,
+            String overridingXmlElementTagName) {
+        }
+      };
+    }
+  }
+
+  @Test
+  public void preloadReachableTypes() throws IOException {
+    RecordingIndex index = new RecordingIndex();
+    TikXml tikXml = new TikXml.Builder()
+        .addAdapterIndex(index)
+        .preload(Root.class)
+        .build();
+
+    Assert.assertEquals(Arrays.<Class<?>>asList(Root.class, Child.class, Item.class),
+        index.instantiated);
+
+    tikXml.read(new Buffer().writeUtf8("<root/>"), Root.class);
+    Assert.assertEquals(3, index.instantiated.size());
+  }
+
+  @Test
+  public void preloadUnknownRootType() {
+    try {
+      new TikXml.Builder().preload(Object.class).build();
+      Assert.fail("Exception expected");
+    } catch (IllegalArgumentException e) {
+      Assert.assertTrue(e.getCause() instanceof TypeAdapterNotFoundException);
+    }
+  }
+
+  @Test
+  public void warmUp() throws IOException {
+    RecordingIndex index = new RecordingIndex();
+    new TikXml.Builder()
+        .addAdapterIndex(index)
+        .warmUp(Root.class, new Buffer().writeUtf8("<root><child/></root>"), 5)
+        .build();
+
+    Assert.assertEquals(5, index.reads);
+    Assert.assertEquals(Arrays.<Class<?>>asList(Root.class), index.instantiated);
+  }
+
+  @Test
+  public void warmUpWithInvalidSample() throws IOException {
+    TikXml.Builder builder = new TikXml.Builder()
+        .addAdapterIndex(new RecordingIndex())
+        .warmUp(Root.class, new Buffer().writeUtf8("<root>"), 1);
+    try {
+      builder.build();
+      Assert.fail("Exception expected");
+    } catch (IllegalArgumentException e) {
+      Assert.assertTrue(e.getCause() instanceof IOException);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import java.io.IOException;
+import java.util.Random;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SwarTest {
+
+  private static final ByteString WHITESPACES = ByteString.encodeUtf8(" \t\r\n");
+  private static final ByteString TERMINALS = ByteString.encodeUtf8(" >/=\n");
+
+  /**
+   * A buffer of 3 segments where the head segment doesn't start at position 0
+   */
+  private static Buffer randomBuffer(Random random, String alphabet) throws IOException {
+    Buffer buffer = new Buffer();
+    for (int i = 0; i < 20000; i++) {
+      buffer.writeByte(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    buffer.skip(3);
+    return buffer;
+  }
+
+  private static long naiveIndexOfNonWhitespace(Buffer buffer, long fromIndex) {
+    for (long i = fromIndex; i < buffer.size(); i++) {
+      if (WHITESPACES.indexOf(new byte[] { buffer.getByte(i) }) == -1) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Test
+  public void indexOf() throws IOException {
+    Random random = new Random(1);
+    Buffer buffer = randomBuffer(random, "abcdefghijklmnopqrstuvwxyz<");
+    Buffer.UnsafeCursor cursor = new Buffer.UnsafeCursor();
+    for (long from = 0; from < buffer.size(); from += random.nextInt(50)) {
+      Assert.assertEquals(buffer.indexOf((byte) '<', from), Swar.indexOf(buffer, (byte) '<', from, cursor));
+    }
+    Assert.assertEquals(-1, Swar.indexOf(buffer, (byte) '>', 0, cursor));
+    Assert.assertEquals(-1, Swar.indexOf(buffer, (byte) '<', buffer.size(), cursor));
+    Assert.assertEquals(-1, Swar.indexOf(new Buffer(), (byte) '<', 0, cursor));
+  }
+
+  @Test
+  public void indexOfNonAsciiByte() {
+    Buffer buffer = new Buffer().writeUtf8("äöüÿ<");
+    Buffer.UnsafeCursor cursor = new Buffer.UnsafeCursor();
+    Assert.assertEquals(buffer.indexOf((byte) 0xBC), Swar.indexOf(buffer, (byte) 0xBC, 0, cursor));
+    Assert.assertEquals(buffer.size() - 1, Swar.indexOf(buffer, (byte) '<', 0, cursor));
+  }
+
+  @Test
+  public void indexOfNonWhitespace() throws IOException {
+    Random random = new Random(2);
+    Buffer buffer = randomBuffer(random, "  \t\t\r\n\n\n       a");
+    Buffer.UnsafeCursor cursor = new Buffer.UnsafeCursor();
+    for (long from = 0; from < buffer.size(); from += random.nextInt(50)) {
+      Assert.assertEquals(naiveIndexOfNonWhitespace(buffer, from), Swar.indexOfNonWhitespace(buffer, from, cursor));
+    }
+    Assert.assertEquals(-1, Swar.indexOfNonWhitespace(new Buffer().writeUtf8(" \n\t\r         "), 0, cursor));
+  }
+
+  @Test
+  public void indexOfUnquotedStringTerminal() throws IOException {
+    Random random = new Random(3);
+    Buffer buffer = randomBuffer(random, "abcdefghijklmnopqrstuvwxyz:-_. >/=\n");
+    Buffer.UnsafeCursor cursor = new Buffer.UnsafeCursor();
+    for (long from = 0; from < buffer.size(); from += random.nextInt(50)) {
+      Assert.assertEquals(buffer.indexOfElement(TERMINALS, from),
+          Swar.indexOfUnquotedStringTerminal(buffer, from, cursor));
+    }
+    Assert.assertEquals(-1, Swar.indexOfUnquotedStringTerminal(new Buffer().writeUtf8("elementName"), 0, cursor));
+  }
+}
@@ -18,7 +18,11 @@
 
 package com.tickaroo.tikxml;
 
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import okio.Buffer;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -51,4 +55,61 @@ public class TikXmlBuilderTest {
 
     Assert.assertSame(converter, tikXml.config.getTypeConverter(Object.class));
   }
+
+  @Test
+  public void poolReadersAndWriters() throws IOException {
+    final List<XmlReader> readers = new ArrayList<>();
+    final List<XmlWriter> writers = new ArrayList<>();
+    TypeAdapter<String> adapter = new TypeAdapter<String>() {
+      @Override
+      public String fromXml(XmlReader reader, TikXmlConfig config, boolean isGenericList) throws IOException {
+        readers.add(reader);
+        return reader.nextTextContent();
+      }
+
+      @Override
+      public void toXml(XmlWriter writer, TikXmlConfig config, String value, String overridingXmlElementName)
+          throws IOException {
+        writers.add(writer);
+        writer.beginElement("text").textContent(value).endElement();
+      }
+    };
+
+    TikXml tikXml = new TikXml.Builder()
+        .poolReadersAndWriters(true)
+        .writeDefaultXmlDeclaration(false)
+        .addTypeAdapter(String.class, adapter)
+        .build();
+
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals("Hello " + i,
+          tikXml.read(new Buffer().writeUtf8("<text>Hello " + i + "</text>"), String.class));
+
+      Buffer buffer = new Buffer();
+      tikXml.write(buffer, "Hello " + i);
+      Assert.assertEquals("<text>Hello " + i + "</text>", buffer.readUtf8());
+    }
+
+    Assert.assertSame(readers.get(0), readers.get(1));
+    Assert.assertSame(readers.get(0), readers.get(2));
+    Assert.assertSame(writers.get(0), writers.get(1));
+    Assert.assertSame(writers.get(0), writers.get(2));
+  }
+
+  @Test
+  public void shareTypeRegistry() throws IOException {
+    TypeConvertersTest.TestConverter converter = new TypeConvertersTest.TestConverter();
+    TikXml shared = new TikXml.Builder()
+        .addTypeConverter(Object.class, converter)
+        .build();
+
+    TikXml tikXml1 = new TikXml.Builder().shareTypeRegistryWith(shared).build();
+    TikXml tikXml2 = new TikXml.Builder().shareTypeRegistryWith(shared).build();
+
+    Assert.assertSame(converter, tikXml1.config.getTypeConverter(Object.class));
+    Assert.assertSame(tikXml1.config.getTypeAdapter(SampleClass.class),
+        tikXml2.config.getTypeAdapter(SampleClass.class));
+    Assert.assertSame(shared.config.getTypeAdapter(SampleClass.class),
+        tikXml1.config.getTypeAdapter(SampleClass.class));
+  }
 }
@@ -19,7 +19,15 @@
 package com.tickaroo.tikxml;
 
 import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import com.tickaroo.tikxml.typeadapter.TypeAdapterIndex;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -53,6 +61,93 @@ public class TypeAdaptersTest {
     Assert.assertSame(adapter, adapters.get(SampleClass.class));
   }
 
+  @Test
+  public void adapterIndex() throws IOException {
+    final List<Class<?>> requested = new ArrayList<>();
+    TypeAdapters adapters = new TypeAdapters();
+    adapters.addIndex(new TypeAdapterIndex() {
+      @Override
+      public TypeAdapter<?> newTypeAdapter(Class<?> clazz, boolean generic) {
+        requested.add(clazz);
+        return clazz == Object.class && !generic ? new TestTypeAdapter() : null;
+      }
+    });
+
+    TypeAdapter<Object> adapter = adapters.get(Object.class);
+    Assert.assertTrue(adapter instanceof TestTypeAdapter);
+    Assert.assertSame(adapter, adapters.get(Object.class));
+
+    // Not in the index, loaded via reflections
+    TypeAdapter<SampleClass> sampleAdapter = adapters.get(SampleClass.class);
+    Assert.assertTrue(sampleAdapter instanceof SampleClass.$TypeAdapter);
+    Assert.assertEquals(2, requested.size());
+  }
+
+  @Test
+  public void concurrentInstantiationReturnsSameAdapter() throws Exception {
+    final TypeAdapters adapters = new TypeAdapters();
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<TypeAdapter<SampleClass>>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(new Callable<TypeAdapter<SampleClass>>() {
+          @Override
+          public TypeAdapter<SampleClass> call() throws Exception {
+            start.await();
+            return adapters.get(SampleClass.class);
+          }
+        }));
+      }
+      start.countDown();
+
+      TypeAdapter<SampleClass> first = futures.get(0).get();
+      for (Future<TypeAdapter<SampleClass>> future : futures) {
+        Assert.assertSame(first, future.get());
+      }
+      Assert.assertSame(first, adapters.get(SampleClass.class));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void parentAdapters() throws IOException {
+    TypeAdapters parent = new TypeAdapters();
+    TestTypeAdapter parentAdapter = new TestTypeAdapter();
+    parent.add(Object.class, parentAdapter);
+
+    TypeAdapters child1 = new TypeAdapters();
+    child1.setParent(parent);
+    TypeAdapters child2 = new TypeAdapters();
+    child2.setParent(parent);
+
+    Assert.assertSame(parentAdapter, child1.get(Object.class));
+
+    // Generated adapters are instantiated once by the parent
+    TypeAdapter<SampleClass> generated = child1.get(SampleClass.class);
+    Assert.assertSame(generated, child2.get(SampleClass.class));
+    Assert.assertSame(generated, parent.get(SampleClass.class));
+
+    // Adapters added to a child are not visible to the parent or other children
+    TestTypeAdapter childAdapter = new TestTypeAdapter();
+    child2.add(Object.class, childAdapter);
+    Assert.assertSame(childAdapter, child2.get(Object.class));
+    Assert.assertSame(parentAdapter, child1.get(Object.class));
+    Assert.assertSame(parentAdapter, parent.get(Object.class));
+  }
+
+  @Test
+  public void cyclicParent() {
+    TypeAdapters parent = new TypeAdapters();
+    TypeAdapters child = new TypeAdapters();
+    child.setParent(parent);
+
+    exception.expect(IllegalArgumentException.class);
+    parent.setParent(child);
+  }
+
 
   class TestTypeAdapter implements TypeAdapter<Object> {
 
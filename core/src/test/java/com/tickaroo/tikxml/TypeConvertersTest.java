@@ -64,4 +64,23 @@ public class TypeConvertersTest {
 
 
     }
+
+    @Test
+    public void parentTypeConverters() throws IOException {
+        TypeConverters parent = new TypeConverters();
+        TestConverter parentConverter = new TestConverter();
+        parent.add(Object.class, parentConverter);
+
+        TypeConverters child = new TypeConverters();
+        child.setParent(parent);
+        Assert.assertSame(parentConverter, child.get(Object.class));
+
+        TestConverter childConverter = new TestConverter();
+        child.add(Object.class, childConverter);
+        Assert.assertSame(childConverter, child.get(Object.class));
+        Assert.assertSame(parentConverter, parent.get(Object.class));
+
+        exception.expect(TypeConverterNotFoundException.class);
+        child.get(Date.class);
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import com.tickaroo.tikxml.typeadapter.TypeAdapterReference;
+import com.tickaroo.tikxml.typeadapter.TypeConverterReference;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class TypeReferenceTest {
+
+  @Rule
+  public ExpectedException exception = ExpectedException.none();
+
+  static class TestAdapter implements TypeAdapter<SampleClass> {
+    @Override
+    public SampleClass fromXml(XmlReader reader, TikXmlConfig config, boolean isGenericList) {
+      return null;
+    }
+
+    @Override
+    public void toXml(XmlWriter writer, TikXmlConfig config, SampleClass value, String overridingXmlElementTagName) {
+    }
+  }
+
+  static class TestConverter implements TypeConverter<SampleClass> {
+    @Override
+    public SampleClass read(String value) {
+      return null;
+    }
+
+    @Override
+    public String write(SampleClass value) {
+      return null;
+    }
+  }
+
+  @Test
+  public void typeAdapterReferenceIsResolvedPerConfig() throws IOException {
+    TestAdapter adapter1 = new TestAdapter();
+    TestAdapter adapter2 = new TestAdapter();
+    TikXml tikXml1 = new TikXml.Builder().addTypeAdapter(SampleClass.class, adapter1).build();
+    TikXml tikXml2 = new TikXml.Builder().addTypeAdapter(SampleClass.class, adapter2).build();
+
+    TypeAdapterReference<SampleClass> reference = new TypeAdapterReference<SampleClass>(SampleClass.class, false);
+    Assert.assertSame(adapter1, reference.get(tikXml1.config));
+    Assert.assertSame(adapter1, reference.get(tikXml1.config));
+    Assert.assertSame(adapter2, reference.get(tikXml2.config));
+    Assert.assertSame(adapter1, reference.get(tikXml1.config));
+  }
+
+  @Test
+  public void alternatingConfigsOfSharedRegistryDontResolveAgain() throws IOException {
+    TestAdapter adapter = new TestAdapter();
+    TestConverter converter = new TestConverter();
+    TikXml tikXml1 = new TikXml.Builder()
+        .addTypeAdapter(SampleClass.class, adapter)
+        .addTypeConverter(SampleClass.class, converter)
+        .build();
+    TikXml tikXml2 = new TikXml.Builder().shareTypeRegistryWith(tikXml1).build();
+
+    TypeAdapterReference<SampleClass> adapterReference = new TypeAdapterReference<SampleClass>(SampleClass.class, false);
+    TypeConverterReference<SampleClass> converterReference = new TypeConverterReference<SampleClass>(SampleClass.class);
+    Assert.assertSame(adapter, adapterReference.get(tikXml1.config));
+    Assert.assertSame(adapter, adapterReference.get(tikXml2.config));
+    Assert.assertSame(converter, converterReference.get(tikXml1.config));
+    Assert.assertSame(converter, converterReference.get(tikXml2.config));
+
+    // Replacing them in the shared registry shows that they are not looked up again
+    tikXml1.config.typeAdapters.add(SampleClass.class, new TestAdapter());
+    tikXml1.config.typeConverters.add(SampleClass.class, new TestConverter());
+    for (int i = 0; i < 10; i++) {
+      TikXml tikXml = i % 2 == 0 ? tikXml1 : tikXml2;
+      Assert.assertSame(adapter, adapterReference.get(tikXml.config));
+      Assert.assertSame(converter, converterReference.get(tikXml.config));
+    }
+  }
+
+  @Test
+  public void moreConfigsThanCachedAreResolvedUncached() throws IOException {
+    TestAdapter adapter = new TestAdapter();
+    TikXml parent = new TikXml.Builder().addTypeAdapter(SampleClass.class, adapter).build();
+    TikXml[] tikXmls = new TikXml[10];
+    for (int i = 0; i < tikXmls.length; i++) {
+      tikXmls[i] = new TikXml.Builder().shareTypeRegistryWith(parent).build();
+    }
+
+    TypeAdapterReference<SampleClass> reference = new TypeAdapterReference<SampleClass>(SampleClass.class, false);
+    for (TikXml tikXml : tikXmls) {
+      Assert.assertSame(adapter, reference.get(tikXml.config));
+    }
+
+    // The first 8 configs keep their cached adapter, the others are looked up in the registry
+    TestAdapter replaced = new TestAdapter();
+    parent.config.typeAdapters.add(SampleClass.class, replaced);
+    for (int i = 0; i < tikXmls.length; i++) {
+      Assert.assertSame(i < 8 ? adapter : replaced, reference.get(tikXmls[i].config));
+    }
+  }
+
+  @Test
+  public void typeAdapterReferenceNotFound() throws IOException {
+    TypeAdapterReference<Object> reference = new TypeAdapterReference<Object>(Object.class, false);
+    exception.expect(TypeAdapterNotFoundException.class);
+    reference.get(new TikXml.Builder().build().config);
+  }
+
+  @Test
+  public void typeConverterReferenceIsResolvedPerConfig() throws IOException {
+    TestConverter converter1 = new TestConverter();
+    TestConverter converter2 = new TestConverter();
+    TikXml tikXml1 = new TikXml.Builder().addTypeConverter(SampleClass.class, converter1).build();
+    TikXml tikXml2 = new TikXml.Builder().addTypeConverter(SampleClass.class, converter2).build();
+
+    TypeConverterReference<SampleClass> reference = new TypeConverterReference<SampleClass>(SampleClass.class);
+    Assert.assertSame(converter1, reference.get(tikXml1.config));
+    Assert.assertSame(converter1, reference.get(tikXml1.config));
+    Assert.assertSame(converter2, reference.get(tikXml2.config));
+  }
+
+  @Test
+  public void typeConverterReferenceNotFound() throws IOException {
+    TypeConverterReference<Object> reference = new TypeConverterReference<Object>(Object.class);
+    exception.expect(TypeConverterNotFoundException.class);
+    reference.get(new TikXml.Builder().build().config);
+  }
+}
@@ -21,6 +21,10 @@ package com.tickaroo.tikxml;
 import java.io.IOException;
 
 import okio.Buffer;
+import okio.ByteString;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -279,6 +283,60 @@ public class XmlReaderTest {
         }
     }
 
+    @Test
+    public void wrongClosingTag() throws IOException {
+        String xml = "<element><foo></foobar></element>";
+        XmlReader reader = readerFrom(xml);
+        try {
+            reader.beginElement();
+            Assert.assertEquals("element", reader.nextElementName());
+            reader.beginElement();
+            Assert.assertEquals("foo", reader.nextElementName());
+
+            exception.expect(IOException.class);
+            exception.expectMessage("Expected a closing element tag </foo> but found </foobar> at path /element/foo");
+            reader.endElement();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void sameElementAndAttributeNamesAreTheSameInstance() throws IOException {
+        String xml = "<list><item id=\"1\"/><item id=\"2\"></item ><item id=\"3\">x</item></list>";
+        XmlReader reader = readerFrom(xml);
+        try {
+            reader.beginElement();
+            Assert.assertEquals("list", reader.nextElementName());
+
+            String firstItemName = null;
+            String firstAttributeName = null;
+            while (reader.hasElement()) {
+                reader.beginElement();
+                String itemName = reader.nextElementName();
+                String attributeName = reader.nextAttributeName();
+                Assert.assertEquals("item", itemName);
+                Assert.assertEquals("id", attributeName);
+                if (firstItemName == null) {
+                    firstItemName = itemName;
+                    firstAttributeName = attributeName;
+                } else {
+                    Assert.assertSame(firstItemName, itemName);
+                    Assert.assertSame(firstAttributeName, attributeName);
+                }
+                reader.skipAttributeValue();
+                if (reader.hasTextContent()) {
+                    reader.skipTextContent();
+                }
+                reader.endElement();
+            }
+            reader.endElement();
+            Assert.assertEquals(XmlReader.XmlToken.END_OF_DOCUMENT, reader.peek());
+        } finally {
+            reader.close();
+        }
+    }
+
     @Test
     public void unclosedElement() throws IOException {
         String xml = "<fooElement a=\"qwe\">This is the text";
@@ -624,13 +682,76 @@ public class XmlReaderTest {
 
             reader.beginElement(); // <bar> element
             exception.expect(IOException.class);
-            exception.expectMessage("Unexpected end of input at path /foo/bar/child/text()");
+            exception.expectMessage("Unexpected end of input while skipping the element at path /foo/bar: 2 xml element(s) not closed");
             reader.skipRemainingElement(); // skip <bar>
         } finally {
             reader.close();
         }
     }
 
+    @Test
+    public void skipRemainingElementWithSpecialContent() throws IOException {
+        String xml =
+                "<foo><bar a='1' b=\"x > y\" c='/>'><!-- <notAnElement> --><child a=\"<\"/><?pi <foo> ?>" +
+                "<child><![CDATA[</bar>]]></child><empty/></bar><after a=\"2\">text</after></foo>";
+        XmlReader reader = readerFrom(xml);
+
+        try {
+            reader.beginElement();
+            Assert.assertEquals("foo", reader.nextElementName());
+
+            reader.beginElement();
+            Assert.assertEquals("bar", reader.nextElementName());
+            Assert.assertEquals("a", reader.nextAttributeName());
+            Assert.assertEquals(1, reader.nextAttributeValueAsInt());
+            Assert.assertEquals("b", reader.nextAttributeName());
+            Assert.assertEquals(XmlReader.XmlToken.ATTRIBUTE_VALUE, reader.peek()); // consumes opening quote
+            reader.skipRemainingElement();
+
+            reader.beginElement();
+            Assert.assertEquals("after", reader.nextElementName());
+            Assert.assertEquals("/foo/after", reader.getPath());
+            reader.skipRemainingAttributes();
+            Assert.assertFalse(reader.hasAttribute());
+            Assert.assertEquals("text", reader.nextTextContent());
+            reader.endElement();
+
+            reader.endElement();
+            Assert.assertEquals(XmlReader.XmlToken.END_OF_DOCUMENT, reader.peek());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void skipRemainingElementSelfClosing() throws IOException {
+        String xml = "<foo><bar a='1' /><baz/><other /></foo>";
+        XmlReader reader = readerFrom(xml);
+
+        try {
+            reader.beginElement();
+            Assert.assertEquals("foo", reader.nextElementName());
+
+            reader.beginElement();
+            reader.skipRemainingElement();
+
+            reader.beginElement();
+            Assert.assertEquals("baz", reader.nextElementName());
+            Assert.assertEquals(XmlReader.XmlToken.ELEMENT_END, reader.peek());
+            reader.skipRemainingElement();
+
+            reader.beginElement();
+            Assert.assertEquals("other", reader.nextElementName());
+            reader.skipRemainingAttributes();
+            reader.endElement();
+
+            reader.endElement();
+            Assert.assertEquals(XmlReader.XmlToken.END_OF_DOCUMENT, reader.peek());
+        } finally {
+            reader.close();
+        }
+    }
+
     @Test
     public void callingSkipRemainingElementInWrongPlace() throws IOException {
         String xml =
@@ -795,6 +916,384 @@ public class XmlReaderTest {
         }
     }
 
+    @Test
+    public void readPrimitiveValuesWithWhitespacesSignsAndExponents() throws IOException {
+
+        String xml = "<foo anInt=\" -42 \" aLong='+7' aDouble=\"1.5e-3\" aBool=' TRUE ' aDouble2=\"-.25\">" +
+                "   <anInt>\n  123\n</anInt>" +
+                "   <aDouble>\t6.02E23 </aDouble>" +
+                "   <aLong><![CDATA[ -9000000000 ]]></aLong>" +
+                "   <aBool><![CDATA[true]]></aBool>" +
+                "   <nan>NaN</nan>" +
+                "   <manyDigits>0.1234567890123456789</manyDigits>" +
+                "</foo>";
+        XmlReader reader = readerFrom(xml);
+
+        try {
+            reader.beginElement();
+            Assert.assertEquals("foo", reader.nextElementName());
+
+            Assert.assertEquals("anInt", reader.nextAttributeName());
+            Assert.assertEquals(-42, reader.nextAttributeValueAsInt());
+            Assert.assertEquals("aLong", reader.nextAttributeName());
+            Assert.assertEquals(7L, reader.nextAttributeValueAsLong());
+            Assert.assertEquals("aDouble", reader.nextAttributeName());
+            Assert.assertEquals(1.5e-3, reader.nextAttributeValueAsDouble(), 0);
+            Assert.assertEquals("aBool", reader.nextAttributeName());
+            Assert.assertTrue(reader.nextAttributeValueAsBoolean());
+            Assert.assertEquals("aDouble2", reader.nextAttributeName());
+            Assert.assertEquals(-0.25, reader.nextAttributeValueAsDouble(), 0);
+            Assert.assertFalse(reader.hasAttribute());
+
+            reader.beginElement();
+            Assert.assertEquals("anInt", reader.nextElementName());
+            Assert.assertEquals(123, reader.nextTextContentAsInt());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("aDouble", reader.nextElementName());
+            Assert.assertEquals(6.02E23, reader.nextTextContentAsDouble(), 0);
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("aLong", reader.nextElementName());
+            Assert.assertEquals(-9000000000L, reader.nextTextContentAsLong());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("aBool", reader.nextElementName());
+            Assert.assertTrue(reader.nextTextContentAsBoolean());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("nan", reader.nextElementName());
+            Assert.assertTrue(Double.isNaN(reader.nextTextContentAsDouble()));
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("manyDigits", reader.nextElementName());
+            Assert.assertEquals(0.1234567890123456789, reader.nextTextContentAsDouble(), 0);
+            reader.endElement();
+
+            reader.endElement();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void readIntegerOverflow() throws IOException {
+
+        String xml = "<foo anInt=\"2147483648\"></foo>";
+        XmlReader reader = readerFrom(xml);
+
+        try {
+            reader.beginElement();
+            reader.nextElementName();
+            reader.nextAttributeName();
+            exception.expect(NumberFormatException.class);
+            reader.nextAttributeValueAsInt();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void readInvalidTextContentAsInt() throws IOException {
+
+        String xml = "<foo>12a</foo>";
+        XmlReader reader = readerFrom(xml);
+
+        try {
+            reader.beginElement();
+            reader.nextElementName();
+            exception.expect(NumberFormatException.class);
+            reader.nextTextContentAsInt();
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void selectElementAndAttributeNames() throws IOException {
+        XmlReader.Options elementNames = XmlReader.Options.of("title", "author", "price");
+        XmlReader.Options attributeNames = XmlReader.Options.of("id", "lang");
+
+        String xml = "<book id=\"1\" lang=\"de\" isbn=\"123\">" +
+                "<title>Foo</title>" +
+                "<price>12</price>" +
+                "<titles>unknown</titles>" +
+                "</book>";
+        XmlReader reader = readerFrom(xml);
+
+        try {
+            reader.beginElement();
+            Assert.assertEquals(-1, reader.selectElementName(elementNames));
+            Assert.assertEquals("book", reader.nextElementName());
+
+            Assert.assertEquals(0, reader.selectAttributeName(attributeNames));
+            Assert.assertEquals("/book[@id]", reader.getPath());
+            Assert.assertEquals(1, reader.nextAttributeValueAsInt());
+            Assert.assertEquals(1, reader.selectAttributeName(attributeNames));
+            Assert.assertEquals("de", reader.nextAttributeValue());
+            Assert.assertEquals(-1, reader.selectAttributeName(attributeNames));
+            Assert.assertEquals("isbn", reader.nextAttributeName());
+            reader.skipAttributeValue();
+
+            reader.beginElement();
+            Assert.assertEquals(0, reader.selectElementName(elementNames));
+            Assert.assertEquals("title", reader.getCurrentElementName());
+            Assert.assertEquals("Foo", reader.nextTextContent());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals(2, reader.selectElementName(elementNames));
+            Assert.assertEquals("/book/price", reader.getPath());
+            Assert.assertEquals(12, reader.nextTextContentAsInt());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals(-1, reader.selectElementName(elementNames));
+            Assert.assertEquals("titles", reader.nextElementName());
+            Assert.assertEquals("unknown", reader.nextTextContent());
+            reader.endElement();
+
+            reader.endElement();
+            Assert.assertEquals(XmlReader.XmlToken.END_OF_DOCUMENT, reader.peek());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void readByteStrings() throws IOException {
+        String xml = "<link id=\"ä1\" lang='de'>" +
+                "<url>https://example.com</url>" +
+                "<title>\n  Käse \t</title>" +
+                "<data><![CDATA[<b>]]></data>" +
+                "<empty></empty>" +
+                "</link>";
+        XmlReader reader = readerFrom(xml);
+
+        try {
+            reader.beginElement();
+            Assert.assertEquals("link", reader.nextElementName());
+            Assert.assertEquals("id", reader.nextAttributeName());
+            Assert.assertEquals(ByteString.encodeUtf8("ä1"), reader.nextAttributeValueAsByteString());
+            Assert.assertEquals("lang", reader.nextAttributeName());
+            Assert.assertEquals("/link[@lang]", reader.getPath());
+            Assert.assertEquals(ByteString.encodeUtf8("de"), reader.nextAttributeValueAsByteString());
+            Assert.assertEquals("/link", reader.getPath());
+
+            reader.beginElement();
+            Assert.assertEquals("url", reader.nextElementName());
+            Assert.assertEquals(ByteString.encodeUtf8("https://example.com"), reader.nextTextContentAsByteString());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("title", reader.nextElementName());
+            Assert.assertEquals(ByteString.encodeUtf8("Käse"), reader.nextTextContentAsTrimmedByteString());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("data", reader.nextElementName());
+            Assert.assertEquals(ByteString.encodeUtf8("<b>"), reader.nextTextContentAsByteString());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("empty", reader.nextElementName());
+            Assert.assertEquals(ByteString.EMPTY, reader.nextTextContentAsTrimmedByteString());
+            reader.endElement();
+
+            reader.endElement();
+            Assert.assertEquals(XmlReader.XmlToken.END_OF_DOCUMENT, reader.peek());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void readBase64AndHexTextContent() throws IOException {
+        byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        ByteString bytes = ByteString.of(data);
+        String base64 = bytes.base64();
+        String xml = "<file>" +
+                "<base64>\n  " + base64.substring(0, 4000) + "\n  " + base64.substring(4000) + "\n</base64>" +
+                "<urlSafe><![CDATA[" + bytes.substring(0, 100).base64Url() + "]]></urlSafe>" +
+                "<padded>" + ByteString.encodeUtf8("ab").base64() + "</padded>" +
+                "<hex>" + bytes.substring(0, 100).hex().toUpperCase() + "</hex>" +
+                "<empty></empty>" +
+                "</file>";
+
+        // Deliver only a few bytes at a time to decode across segment boundaries
+        Source chunked = new ForwardingSource(new Buffer().writeUtf8(xml)) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                return super.read(sink, Math.min(byteCount, 7));
+            }
+        };
+        XmlReader reader = XmlReader.of(Okio.buffer(chunked));
+
+        try {
+            reader.beginElement();
+            Assert.assertEquals("file", reader.nextElementName());
+
+            reader.beginElement();
+            Assert.assertEquals("base64", reader.nextElementName());
+            Buffer sink = new Buffer();
+            Assert.assertEquals(data.length, reader.nextTextContentBase64(sink));
+            Assert.assertEquals(bytes, sink.readByteString());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("urlSafe", reader.nextElementName());
+            Assert.assertArrayEquals(bytes.substring(0, 100).toByteArray(), reader.nextTextContentBase64AsBytes());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("padded", reader.nextElementName());
+            Assert.assertEquals("ab", new String(reader.nextTextContentBase64AsBytes(), "UTF-8"));
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("hex", reader.nextElementName());
+            Assert.assertArrayEquals(bytes.substring(0, 100).toByteArray(), reader.nextTextContentHexAsBytes());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("empty", reader.nextElementName());
+            Assert.assertEquals(0, reader.nextTextContentBase64AsBytes().length);
+            reader.endElement();
+
+            reader.endElement();
+            Assert.assertEquals(XmlReader.XmlToken.END_OF_DOCUMENT, reader.peek());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void readTextContentAsLargeText() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("Line ").append(i).append(" ]] ] >\n");
+        }
+        String xml = "<archive>" +
+                "<small>Hello</small>" +
+                "<large><![CDATA[" + text + "]]></large>" +
+                "<plain>" + text.toString().replace(">", "&gt;") + "</plain>" +
+                "<empty></empty>" +
+                "</archive>";
+
+        // Deliver only a few bytes at a time to stream across segment boundaries
+        Source chunked = new ForwardingSource(new Buffer().writeUtf8(xml)) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                return super.read(sink, Math.min(byteCount, 5));
+            }
+        };
+        XmlReader reader = XmlReader.of(Okio.buffer(chunked));
+
+        try {
+            reader.beginElement();
+            Assert.assertEquals("archive", reader.nextElementName());
+
+            reader.beginElement();
+            Assert.assertEquals("small", reader.nextElementName());
+            LargeText small = reader.nextTextContentAsLargeText(100, null);
+            Assert.assertNull(small.file());
+            Assert.assertEquals(5, small.size());
+            Assert.assertEquals("Hello", small.readString());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("large", reader.nextElementName());
+            LargeText large = reader.nextTextContentAsLargeText(100, null);
+            try {
+                Assert.assertNotNull(large.file());
+                Assert.assertEquals(text.length(), large.size());
+                Assert.assertEquals(text.toString(), large.readString());
+            } finally {
+                large.delete();
+            }
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("plain", reader.nextElementName());
+            Buffer sink = new Buffer();
+            Assert.assertEquals(text.toString().replace(">", "&gt;").length(), reader.nextTextContent(sink));
+            Assert.assertEquals(text.toString().replace(">", "&gt;"), sink.readUtf8());
+            reader.endElement();
+
+            reader.beginElement();
+            Assert.assertEquals("empty", reader.nextElementName());
+            Assert.assertEquals(0, reader.nextTextContentAsLargeText(100, null).size());
+            reader.endElement();
+
+            reader.endElement();
+            Assert.assertEquals(XmlReader.XmlToken.END_OF_DOCUMENT, reader.peek());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void readUnterminatedCDATAAsLargeText() throws IOException {
+        XmlReader reader = readerFrom("<data><![CDATA[foo]]");
+        try {
+            reader.beginElement();
+            reader.nextElementName();
+
+            exception.expect(IOException.class);
+            exception.expectMessage("Unterminated CDATA section. Expected ]]> but haven't found at path /data");
+            reader.nextTextContentAsLargeText(100, null);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void resetReader() throws IOException {
+        XmlReader reader = readerFrom("<foo a=\"1\"><bar><baz>");
+        reader.beginElement();
+        Assert.assertEquals("foo", reader.nextElementName());
+        Assert.assertEquals("a", reader.nextAttributeName());
+        reader.skipAttributeValue();
+        reader.beginElement();
+        Assert.assertEquals("bar", reader.nextElementName());
+
+        // Reuse the reader in the middle of a (broken) document
+        reader.reset(new Buffer().writeUtf8("<other x=\"2\">text</other>"));
+        Assert.assertEquals("/", reader.getPath());
+        reader.beginElement();
+        Assert.assertEquals("other", reader.nextElementName());
+        Assert.assertEquals("x", reader.nextAttributeName());
+        Assert.assertEquals("/other[@x]", reader.getPath());
+        Assert.assertEquals(2, reader.nextAttributeValueAsInt());
+        Assert.assertEquals("text", reader.nextTextContent());
+        reader.endElement();
+        Assert.assertEquals(XmlReader.XmlToken.END_OF_DOCUMENT, reader.peek());
+        reader.close();
+    }
+
+    @Test
+    public void readInvalidBase64TextContent() throws IOException {
+        XmlReader reader = readerFrom("<data>YWJj*A==</data>");
+        try {
+            reader.beginElement();
+            reader.nextElementName();
+
+            exception.expect(XmlDataException.class);
+            exception.expectMessage("Invalid base64 character '*' in text content at path /data");
+            reader.nextTextContentBase64AsBytes();
+        } finally {
+            reader.close();
+        }
+    }
+
     @Test
     public void skipAttribute() throws IOException {
 
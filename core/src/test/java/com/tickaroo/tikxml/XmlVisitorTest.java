@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import okio.Buffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class XmlVisitorTest {
+
+  /**
+   * Records all callbacks as strings
+   */
+  private static class RecordingVisitor implements XmlVisitor {
+
+    final List<String> events = new ArrayList<>();
+    final List<CharSequence> values = new ArrayList<>();
+
+    @Override
+    public void startElement(CharSequence name) {
+      events.add("start " + name);
+    }
+
+    @Override
+    public void attribute(CharSequence name, CharSequence value) {
+      events.add("attribute " + name + "=" + value);
+      values.add(value);
+    }
+
+    @Override
+    public void text(CharSequence text) {
+      events.add("text " + text);
+      values.add(text);
+    }
+
+    @Override
+    public void endElement() {
+      events.add("end");
+    }
+  }
+
+  private static List<String> scan(String xml) throws IOException {
+    RecordingVisitor visitor = new RecordingVisitor();
+    new TikXml.Builder().build().scan(new Buffer().writeUtf8(xml), visitor);
+    return visitor.events;
+  }
+
+  @Test
+  public void scanDocument() throws IOException {
+    List<String> events = scan("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<library name=\"City Library\">\n"
+        + "  <!-- comment -->\n"
+        + "  <book id=\"1\" lang='de'><title>Faust</title><empty/><none></none></book>\n"
+        + "  <book id=\"2\"><title><![CDATA[<b>bold</b>]]></title></book>\n"
+        + "</library>");
+
+    Assert.assertEquals(asList(
+        "start library",
+        "attribute name=City Library",
+        "start book",
+        "attribute id=1",
+        "attribute lang=de",
+        "start title",
+        "text Faust",
+        "end",
+        "start empty",
+        "end",
+        "start none",
+        "end",
+        "end",
+        "start book",
+        "attribute id=2",
+        "start title",
+        "text <b>bold</b>",
+        "end",
+        "end",
+        "end"), events);
+  }
+
+  @Test
+  public void mixedContent() throws IOException {
+    Assert.assertEquals(asList("start p", "text Hello ", "start b", "text World", "end", "text !",
+        "end"), scan("<p>Hello <b>World</b>!</p>"));
+  }
+
+  @Test
+  public void nonAscii() throws IOException {
+    Assert.assertEquals(asList("start a", "attribute b=äöü € 😀",
+        "text 中文 😀!", "end"),
+        scan("<a b=\"äöü € 😀\">中文 😀!</a>"));
+  }
+
+  @Test
+  public void malformedUtf8IsReplaced() throws IOException {
+    Buffer xml = new Buffer().writeUtf8("<a>x")
+        .writeByte(0xC3) // truncated 2 byte sequence
+        .writeUtf8("y")
+        .writeByte(0xFF)
+        .writeUtf8("</a>");
+    RecordingVisitor visitor = new RecordingVisitor();
+    new TikXml.Builder().build().scan(xml, visitor);
+    Assert.assertEquals("text x�y�", visitor.events.get(1));
+  }
+
+  @Test
+  public void valuesAreReused() throws IOException {
+    RecordingVisitor visitor = new RecordingVisitor();
+    new TikXml.Builder().build().scan(new Buffer().writeUtf8("<a b=\"1\" c=\"2\">text</a>"), visitor);
+    Assert.assertEquals(3, visitor.values.size());
+    Assert.assertSame(visitor.values.get(0), visitor.values.get(1));
+    Assert.assertSame(visitor.values.get(0), visitor.values.get(2));
+  }
+
+  @Test
+  public void longValues() throws IOException {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      builder.append("ä").append(i);
+    }
+    String value = builder.toString();
+    Assert.assertEquals(asList("start a", "attribute b=" + value, "text " + value, "end"),
+        scan("<a b=\"" + value + "\">" + value + "</a>"));
+  }
+
+  @Test(expected = IOException.class)
+  public void unclosedElement() throws IOException {
+    scan("<a><b></a>");
+  }
+
+  private static List<String> asList(String... events) {
+    List<String> list = new ArrayList<>();
+    for (String event : events) {
+      list.add(event);
+    }
+    return list;
+  }
+}
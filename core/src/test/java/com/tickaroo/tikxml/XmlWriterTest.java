@@ -2,6 +2,7 @@ package com.tickaroo.tikxml;
 
 import java.io.IOException;
 import okio.Buffer;
+import okio.ByteString;
 import org.junit.*;
 
 /**
@@ -56,6 +57,61 @@ public class XmlWriterTest {
     Assert.assertEquals("<e foo=\"other\"/>", TestUtils.bufferToString(buffer));
   }
 
+  @Test
+  public void byteStringAttributeAndTextContent() throws IOException {
+    Buffer buffer = new Buffer();
+    XmlWriter writer = XmlWriter.of(buffer);
+
+    writer.beginElement("e")
+        .attribute("foo", ByteString.encodeUtf8("ä"))
+        .textContent(ByteString.encodeUtf8("Käse"))
+        .endElement()
+        .close();
+
+    Assert.assertEquals("<e foo=\"ä\">Käse</e>", buffer.readUtf8());
+  }
+
+  @Test
+  public void largeTextContent() throws IOException {
+    LargeText.Builder builder = new LargeText.Builder(2, null);
+    builder.write(new Buffer().writeUtf8("Large Text"), 10);
+    LargeText largeText = builder.build();
+
+    try {
+      Buffer buffer = new Buffer();
+      XmlWriter writer = XmlWriter.of(buffer);
+
+      writer.beginElement("e")
+          .textContent(largeText)
+          .endElement()
+          .close();
+
+      Assert.assertEquals("<e>Large Text</e>", TestUtils.bufferToString(buffer));
+    } finally {
+      largeText.delete();
+    }
+  }
+
+  @Test
+  public void resetWriter() throws IOException {
+    Buffer buffer = new Buffer();
+    XmlWriter writer = XmlWriter.of(buffer);
+    writer.xmlDeclaration()
+        .beginElement("first")
+        .beginElement("second");
+
+    Buffer other = new Buffer();
+    writer.reset(other)
+        .xmlDeclaration()
+        .beginElement("e")
+        .attribute("foo", "other")
+        .endElement()
+        .close();
+
+    Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><e foo=\"other\"/>",
+        TestUtils.bufferToString(other));
+  }
+
   @Test
   public void intAttribute() throws IOException {
     Buffer buffer = new Buffer();
@@ -20,7 +20,12 @@ package com.tickaroo.tikxml.reading;
 
 import com.tickaroo.tikxml.TestUtils;
 import com.tickaroo.tikxml.TikXml;
+import com.tickaroo.tikxml.XmlRecordIterator;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import okio.Buffer;
 import okio.BufferedSource;
 import org.junit.Assert;
 import org.junit.Test;
@@ -47,4 +52,122 @@ public class BooksReaderTest {
     Assert.assertEquals(12, catalogue.books.size());
 
   }
+
+  @Test
+  public void readStream() throws IOException {
+    BufferedSource input = TestUtils.sourceForFile("books.xml");
+
+    TikXml tikXml = new TikXml.Builder()
+        .addTypeAdapter(Book.class, new BookTypeAdapter())
+        .build();
+
+    XmlRecordIterator<Book> books = tikXml.readStream(input, "/catalog/book", Book.class);
+    List<String> ids = new ArrayList<>();
+    while (books.hasNext()) {
+      ids.add(books.next().id);
+    }
+    books.close();
+
+    Assert.assertEquals(12, ids.size());
+    Assert.assertEquals("bk101", ids.get(0));
+    Assert.assertEquals("bk112", ids.get(11));
+  }
+
+  @Test
+  public void readStreamNestedPath() throws IOException {
+    Buffer input = new Buffer().writeUtf8("<shop><name>Test</name>"
+        + "<catalog><book id=\"1\"><price>1.5</price></book><other><book id=\"x\"/></other></catalog>"
+        + "<book id=\"y\"/>"
+        + "<catalog><book id=\"2\"/></catalog></shop>");
+
+    TikXml tikXml = new TikXml.Builder()
+        .addTypeAdapter(Book.class, new BookTypeAdapter())
+        .build();
+
+    XmlRecordIterator<Book> books = tikXml.readStream(input, "/shop/catalog/book", Book.class);
+    Assert.assertEquals("1", books.next().id);
+    Assert.assertEquals("2", books.next().id);
+    Assert.assertFalse(books.hasNext());
+    books.close();
+  }
+
+  @Test
+  public void readStreamFailOnMalformedRecord() throws IOException {
+    TikXml tikXml = new TikXml.Builder()
+        .addTypeAdapter(Book.class, new BookTypeAdapter())
+        .build();
+
+    XmlRecordIterator<Book> books = tikXml.readStream(malformedBooks(), "/catalog/book", Book.class);
+    Assert.assertEquals("1", books.next().id);
+    try {
+      books.next();
+      Assert.fail("Exception expected");
+    } catch (NumberFormatException e) {
+      // expected
+    } finally {
+      books.close();
+    }
+  }
+
+  @Test
+  public void readStreamSkipMalformedRecords() throws IOException {
+    TikXml tikXml = new TikXml.Builder()
+        .addTypeAdapter(Book.class, new BookTypeAdapter())
+        .build();
+
+    XmlRecordIterator<Book> books = tikXml.readStream(malformedBooks(), "/catalog/book", Book.class,
+        XmlRecordIterator.ErrorPolicy.SKIP);
+    List<String> ids = new ArrayList<>();
+    while (books.hasNext()) {
+      ids.add(books.next().id);
+    }
+
+    Assert.assertEquals(2, ids.size());
+    Assert.assertEquals("1", ids.get(0));
+    Assert.assertEquals("3", ids.get(1));
+    Assert.assertTrue(books.errors().isEmpty());
+  }
+
+  @Test
+  public void readStreamCollectMalformedRecords() throws IOException {
+    TikXml tikXml = new TikXml.Builder()
+        .poolReadersAndWriters(true)
+        .addTypeAdapter(Book.class, new BookTypeAdapter())
+        .build();
+
+    XmlRecordIterator<Book> books = tikXml.readStream(malformedBooks(), "/catalog/book", Book.class,
+        XmlRecordIterator.ErrorPolicy.COLLECT);
+    Assert.assertEquals(2, books.stream().count());
+    Assert.assertEquals(1, books.errors().size());
+    Assert.assertTrue(books.errors().get(0).getMessage().startsWith("Could not read record /catalog/book[1]"));
+    Assert.assertTrue(books.errors().get(0).getCause() instanceof NumberFormatException);
+  }
+
+  @Test
+  public void readStreamUnexpectedEndOfDocument() throws IOException {
+    Buffer input = new Buffer().writeUtf8("<catalog><book id=\"1\"><price>abc</price><title>");
+
+    TikXml tikXml = new TikXml.Builder()
+        .addTypeAdapter(Book.class, new BookTypeAdapter())
+        .build();
+
+    XmlRecordIterator<Book> books = tikXml.readStream(input, "/catalog/book", Book.class,
+        XmlRecordIterator.ErrorPolicy.SKIP);
+    try {
+      books.hasNext();
+      Assert.fail("Exception expected");
+    } catch (UncheckedIOException e) {
+      // expected
+    } finally {
+      books.close();
+    }
+  }
+
+  private static BufferedSource malformedBooks() {
+    return new Buffer().writeUtf8("<catalog>"
+        + "<book id=\"1\"><price>1.5</price></book>"
+        + "<book id=\"2\"><price>abc</price><title>Broken <![CDATA[<book>]]></title><genre/></book>"
+        + "<book id=\"3\"><price>3.5</price></book>"
+        + "</catalog>");
+  }
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.reading;
+
+import com.tickaroo.tikxml.TestUtils;
+import com.tickaroo.tikxml.TikXml;
+import com.tickaroo.tikxml.XmlFeedParser;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class XmlFeedParserTest {
+
+  private final TikXml tikXml = new TikXml.Builder()
+      .addTypeAdapter(Book.class, new BookTypeAdapter())
+      .build();
+
+  /**
+   * Feeds the given bytes in chunks of the given size and collects the ids of all books
+   */
+  private List<String> feed(byte[] xml, String path, int chunkSize) throws IOException {
+    XmlFeedParser<Book> parser = tikXml.feedParser(path, Book.class);
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < xml.length; i += chunkSize) {
+      parser.feed(ByteBuffer.wrap(xml, i, Math.min(chunkSize, xml.length - i)));
+      XmlFeedParser.State state;
+      while ((state = parser.next()) == XmlFeedParser.State.RECORD) {
+        ids.add(parser.record().id);
+      }
+      Assert.assertEquals(XmlFeedParser.State.NEED_MORE_INPUT, state);
+    }
+
+    parser.endOfInput();
+    while (parser.next() == XmlFeedParser.State.RECORD) {
+      ids.add(parser.record().id);
+    }
+    Assert.assertEquals(XmlFeedParser.State.END_OF_DOCUMENT, parser.next());
+    return ids;
+  }
+
+  @Test
+  public void readInChunks() throws IOException {
+    byte[] xml = TestUtils.sourceForFile("books.xml").readByteArray();
+    for (int chunkSize : new int[] { 1, 2, 3, 7, 64, 4096, xml.length }) {
+      List<String> ids = feed(xml, "/catalog/book", chunkSize);
+      Assert.assertEquals(12, ids.size());
+      Assert.assertEquals("bk101", ids.get(0));
+      Assert.assertEquals("bk112", ids.get(11));
+    }
+  }
+
+  @Test
+  public void readNestedPath() throws IOException {
+    byte[] xml = ("<?xml version=\"1.0\"?>\n"
+        + "<!DOCTYPE shop [ <!ELEMENT shop ANY> <!ENTITY x \"<book>\"> ]>\n"
+        + "<shop><name>Test</name>"
+        + "<!-- <book id=\"comment\"/> -->"
+        + "<catalog a=\"<book>\" b='x\"/>'><book id=\"1\"><title><![CDATA[</book>]]></title></book>"
+        + "<other><book id=\"x\"/></other>"
+        + "<?pi <book/> ?>"
+        + "<book id=\"2\"><book id=\"nested\"/></book></catalog>"
+        + "<book id=\"y\"/>"
+        + "<catalog><book id=\"3\"/><bookshelf/></catalog></shop>").getBytes(Charset.forName("UTF-8"));
+
+    for (int chunkSize = 1; chunkSize < 20; chunkSize++) {
+      List<String> ids = feed(xml, "/shop/catalog/book", chunkSize);
+      Assert.assertEquals(3, ids.size());
+      Assert.assertEquals("1", ids.get(0));
+      Assert.assertEquals("2", ids.get(1));
+      Assert.assertEquals("3", ids.get(2));
+    }
+  }
+
+  @Test
+  public void recordAvailableAsSoonAsComplete() throws IOException {
+    XmlFeedParser<Book> parser = tikXml.feedParser("/catalog/book", Book.class);
+    parser.feed(ByteBuffer.wrap("<catalog><book id=\"1\"><price>1".getBytes("UTF-8")));
+    Assert.assertEquals(XmlFeedParser.State.NEED_MORE_INPUT, parser.next());
+
+    parser.feed(ByteBuffer.wrap(".5</price></book><book id=\"2\"".getBytes("UTF-8")));
+    Assert.assertEquals(XmlFeedParser.State.RECORD, parser.next());
+    Assert.assertEquals("1", parser.record().id);
+    Assert.assertEquals(1.5, parser.record().price, 0);
+    Assert.assertEquals(XmlFeedParser.State.NEED_MORE_INPUT, parser.next());
+
+    parser.feed(ByteBuffer.wrap("/>".getBytes("UTF-8")));
+    Assert.assertEquals(XmlFeedParser.State.RECORD, parser.next());
+    Assert.assertEquals("2", parser.record().id);
+    Assert.assertEquals(XmlFeedParser.State.NEED_MORE_INPUT, parser.next());
+  }
+
+  @Test
+  public void continueAfterMalformedRecord() throws IOException {
+    XmlFeedParser<Book> parser = tikXml.feedParser("/catalog/book", Book.class);
+    parser.feed(ByteBuffer.wrap(("<catalog><book id=\"1\"><price>abc</price></book>"
+        + "<book id=\"2\"><price>2.5</price></book></catalog>").getBytes("UTF-8")));
+    parser.endOfInput();
+
+    try {
+      parser.next();
+      Assert.fail("Exception expected");
+    } catch (NumberFormatException e) {
+      // expected
+    }
+    Assert.assertEquals(XmlFeedParser.State.RECORD, parser.next());
+    Assert.assertEquals("2", parser.record().id);
+    Assert.assertEquals(XmlFeedParser.State.END_OF_DOCUMENT, parser.next());
+  }
+
+  @Test
+  public void unexpectedEndOfInput() throws IOException {
+    XmlFeedParser<Book> parser = tikXml.feedParser("/catalog/book", Book.class);
+    parser.feed(ByteBuffer.wrap("<catalog><book id=\"1\"><price>1.5".getBytes("UTF-8")));
+    parser.endOfInput();
+    try {
+      parser.next();
+      Assert.fail("Exception expected");
+    } catch (EOFException e) {
+      Assert.assertEquals("Unexpected end of input. 3 xml element(s) not closed.", e.getMessage());
+    }
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void noRecord() throws IOException {
+    XmlFeedParser<Book> parser = tikXml.feedParser("/catalog/book", Book.class);
+    parser.feed(ByteBuffer.wrap("<catalog>".getBytes("UTF-8")));
+    Assert.assertEquals(XmlFeedParser.State.NEED_MORE_INPUT, parser.next());
+    parser.record();
+  }
+}
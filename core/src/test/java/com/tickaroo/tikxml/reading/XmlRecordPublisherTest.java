@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.reading;
+
+import com.tickaroo.tikxml.TestUtils;
+import com.tickaroo.tikxml.TikXml;
+import com.tickaroo.tikxml.XmlRecordPublisher;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class XmlRecordPublisherTest {
+
+  private final TikXml tikXml = new TikXml.Builder()
+      .addTypeAdapter(Book.class, new BookTypeAdapter())
+      .build();
+
+  /**
+   * Synchronously publishes the given bytes in chunks of the given size (reusing a single
+   * ByteBuffer) and counts the chunks that have been published
+   */
+  private static class ChunkPublisher implements Flow.Publisher<ByteBuffer> {
+
+    private final byte[] bytes;
+    private final int chunkSize;
+    int published = 0;
+    boolean cancelled = false;
+
+    ChunkPublisher(byte[] bytes, int chunkSize) {
+      this.bytes = bytes;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        final ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        long requested = 0;
+        boolean emitting = false;
+        boolean completed = false;
+
+        @Override
+        public void request(long n) {
+          requested += n;
+          if (emitting) {
+            return; // Reentrant call
+          }
+          emitting = true;
+          while (requested > 0 && !cancelled && !completed) {
+            int offset = published * chunkSize;
+            if (offset >= bytes.length) {
+              completed = true;
+              subscriber.onComplete();
+              break;
+            }
+            buffer.clear();
+            buffer.put(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            buffer.flip();
+            requested--;
+            published++;
+            subscriber.onNext(buffer);
+          }
+          emitting = false;
+        }
+
+        @Override
+        public void cancel() {
+          cancelled = true;
+        }
+      });
+    }
+  }
+
+  private static class TestSubscriber implements Flow.Subscriber<Book> {
+
+    final List<String> ids = new ArrayList<>();
+    Flow.Subscription subscription;
+    Throwable error;
+    boolean completed = false;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(Book item) {
+      ids.add(item.id);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+  private static byte[] books() throws IOException {
+    return TestUtils.sourceForFile("books.xml").readByteArray();
+  }
+
+  /**
+   * Returns the index of the last byte of the n-th book
+   */
+  private static int endOfRecord(byte[] xml, int n) throws IOException {
+    String s = new String(xml, "UTF-8");
+    int index = -1;
+    for (int i = 0; i < n; i++) {
+      index = s.indexOf("</book>", index + 1);
+    }
+    return index + "</book>".length() - 1;
+  }
+
+  @Test
+  public void publishAll() throws IOException {
+    ChunkPublisher upstream = new ChunkPublisher(books(), 100);
+    TestSubscriber subscriber = new TestSubscriber();
+    XmlRecordPublisher.<Book>create(tikXml, upstream, "/catalog/book", Book.class).subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    Assert.assertEquals(12, subscriber.ids.size());
+    Assert.assertEquals("bk101", subscriber.ids.get(0));
+    Assert.assertEquals("bk112", subscriber.ids.get(11));
+    Assert.assertTrue(subscriber.completed);
+    Assert.assertNull(subscriber.error);
+  }
+
+  @Test
+  public void backpressure() throws IOException {
+    byte[] xml = books();
+    ChunkPublisher upstream = new ChunkPublisher(xml, 100);
+    TestSubscriber subscriber = new TestSubscriber();
+    XmlRecordPublisher.<Book>create(tikXml, upstream, "/catalog/book", Book.class).subscribe(subscriber);
+    Assert.assertEquals(0, upstream.published);
+
+    subscriber.subscription.request(1);
+    Assert.assertEquals(1, subscriber.ids.size());
+    // Exactly the chunks up to the end of the record after the first one (read ahead) have been
+    // requested
+    Assert.assertEquals(endOfRecord(xml, 2) / 100 + 1, upstream.published);
+
+    subscriber.subscription.request(2);
+    Assert.assertEquals(3, subscriber.ids.size());
+    Assert.assertEquals(endOfRecord(xml, 4) / 100 + 1, upstream.published);
+    Assert.assertFalse(subscriber.completed);
+
+    // Completes without requesting more records than the document has
+    subscriber.subscription.request(9);
+    Assert.assertEquals(12, subscriber.ids.size());
+    Assert.assertTrue(subscriber.completed);
+    Assert.assertNull(subscriber.error);
+  }
+
+  @Test
+  public void completeAfterExactlyRequestedRecords() throws IOException {
+    byte[] xml = ("<catalog><book id=\"1\"/><book id=\"2\"/></catalog>").getBytes("UTF-8");
+    ChunkPublisher upstream = new ChunkPublisher(xml, 10);
+    TestSubscriber subscriber = new TestSubscriber();
+    XmlRecordPublisher.<Book>create(tikXml, upstream, "/catalog/book", Book.class).subscribe(subscriber);
+    subscriber.subscription.request(2);
+
+    Assert.assertEquals(2, subscriber.ids.size());
+    Assert.assertTrue(subscriber.completed);
+    Assert.assertNull(subscriber.error);
+  }
+
+  @Test
+  public void malformedRecord() throws IOException {
+    byte[] xml = ("<catalog><book id=\"1\"><price>1.5</price></book>"
+        + "<book id=\"2\"><price>abc</price></book><book id=\"3\"/></catalog>").getBytes("UTF-8");
+    ChunkPublisher upstream = new ChunkPublisher(xml, 10);
+    TestSubscriber subscriber = new TestSubscriber();
+    XmlRecordPublisher.<Book>create(tikXml, upstream, "/catalog/book", Book.class).subscribe(subscriber);
+    subscriber.subscription.request(10);
+
+    Assert.assertEquals(1, subscriber.ids.size());
+    Assert.assertTrue(subscriber.error instanceof NumberFormatException);
+    Assert.assertTrue(upstream.cancelled);
+    Assert.assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void cancel() throws IOException {
+    ChunkPublisher upstream = new ChunkPublisher(books(), 100);
+    TestSubscriber subscriber = new TestSubscriber();
+    XmlRecordPublisher.<Book>create(tikXml, upstream, "/catalog/book", Book.class).subscribe(subscriber);
+    subscriber.subscription.request(2);
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(10);
+
+    Assert.assertEquals(2, subscriber.ids.size());
+    Assert.assertTrue(upstream.cancelled);
+    Assert.assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void invalidRequest() throws IOException {
+    ChunkPublisher upstream = new ChunkPublisher(books(), 100);
+    TestSubscriber subscriber = new TestSubscriber();
+    XmlRecordPublisher.<Book>create(tikXml, upstream, "/catalog/book", Book.class).subscribe(subscriber);
+    subscriber.subscription.request(0);
+
+    Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+    Assert.assertTrue(upstream.cancelled);
+  }
+
+  @Test
+  public void asyncUpstream() throws Exception {
+    byte[] xml = books();
+    final List<String> ids = new ArrayList<>();
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    SubmissionPublisher<ByteBuffer> upstream = new SubmissionPublisher<>();
+    XmlRecordPublisher.<Book>create(tikXml, upstream, "/catalog/book", Book.class).subscribe(
+        new Flow.Subscriber<Book>() {
+          Flow.Subscription subscription;
+
+          @Override
+          public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+          }
+
+          @Override
+          public void onNext(Book item) {
+            ids.add(item.id);
+            subscription.request(1);
+          }
+
+          @Override
+          public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+          }
+
+          @Override
+          public void onComplete() {
+            done.complete(null);
+          }
+        });
+
+    for (int i = 0; i < xml.length; i += 7) {
+      upstream.submit(ByteBuffer.wrap(xml, i, Math.min(7, xml.length - i)));
+    }
+    upstream.close();
+
+    done.get(10, TimeUnit.SECONDS);
+    Assert.assertEquals(12, ids.size());
+    Assert.assertEquals("bk112", ids.get(11));
+  }
+}
@@ -18,6 +18,7 @@
 
 package com.tickaroo.tikxml.processor.utils
 
+import javax.lang.model.type.ArrayType
 import javax.lang.model.type.TypeKind
 import javax.lang.model.type.TypeMirror
 
@@ -54,6 +55,12 @@ fun TypeMirror.isString() = when (toString()) {
 
 }
 
+fun TypeMirror.isByteString() = toString() == "okio.ByteString"
+
+fun TypeMirror.isLargeText() = toString() == "com.tickaroo.tikxml.LargeText"
+
+fun TypeMirror.isByteArray() = kind == TypeKind.ARRAY && (this as ArrayType).componentType.kind == TypeKind.BYTE
+
 fun TypeMirror.isInt() = kind == TypeKind.INT || toString() == "java.lang.Integer" || toString() == "kotlin.Int" || toString() == Int::class.qualifiedName || toString() == Int::class.java.canonicalName
 
 fun TypeMirror.isDouble() = kind == TypeKind.DOUBLE || toString() == "java.lang.Double" || toString() == "kotlin.Double" || toString() == Double::class.qualifiedName || toString() == Double::class.java.canonicalName
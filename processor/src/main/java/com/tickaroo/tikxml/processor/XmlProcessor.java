@@ -19,17 +19,24 @@
 package com.tickaroo.tikxml.processor;
 
 import com.google.auto.service.AutoService;
+import com.squareup.javapoet.ClassName;
 import com.tickaroo.tikxml.annotation.GenericAdapter;
 import com.tickaroo.tikxml.annotation.Xml;
 import com.tickaroo.tikxml.processor.field.AnnotatedClass;
 import com.tickaroo.tikxml.processor.field.AnnotatedClassImpl;
+import com.tickaroo.tikxml.processor.generator.AdapterIndexCodeGenerator;
 import com.tickaroo.tikxml.processor.generator.GenericAdapterCodeGenerator;
 import com.tickaroo.tikxml.processor.generator.TypeAdapterCodeGenerator;
 import com.tickaroo.tikxml.processor.scanning.AnnotationDetector;
 import com.tickaroo.tikxml.processor.scanning.AnnotationScanner;
 import com.tickaroo.tikxml.processor.scanning.DefaultAnnotationDetector;
+import com.tickaroo.tikxml.typeadapter.TypeAdapter;
+import java.io.IOException;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.Messager;
@@ -37,6 +44,7 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.Processor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.Modifier;
@@ -49,7 +57,7 @@ import javax.tools.Diagnostic;
 import net.ltgt.gradle.incap.IncrementalAnnotationProcessor;
 
 import static com.tickaroo.tikxml.processor.ProcessorConstants.AUTO_VALUE_POST_FIX;
-import static net.ltgt.gradle.incap.IncrementalAnnotationProcessorType.ISOLATING;
+import static net.ltgt.gradle.incap.IncrementalAnnotationProcessorType.DYNAMIC;
 
 /**
  * Annotation processor for @Xml annotated images
@@ -58,7 +66,7 @@ import static net.ltgt.gradle.incap.IncrementalAnnotationProcessorType.ISOLATING
  * @since 1.0
  */
 @AutoService(Processor.class)
-@IncrementalAnnotationProcessor(ISOLATING)
+@IncrementalAnnotationProcessor(DYNAMIC)
 public class XmlProcessor extends AbstractProcessor {
 
   /**
@@ -66,6 +74,19 @@ public class XmlProcessor extends AbstractProcessor {
    */
   private static final String OPTION_TYPE_CONVERTER_FOR_PRIMITIVES = "primitiveTypeConverters";
   private static final String MAP_IMPL = "tikxml.mapImpl";
+  /**
+   * The full qualified class name of the {@link com.tickaroo.tikxml.typeadapter.TypeAdapterIndex}
+   * to generate. No index is generated if not set.
+   */
+  private static final String ADAPTER_INDEX = "tikxml.adapterIndex";
+  /**
+   * If "true" the generated type adapters select the binding code of attributes and child elements
+   * in a switch instead of looking up a binder object in a map.
+   */
+  private static final String SWITCH_DISPATCH = "tikxml.switchDispatch";
+  private static final String GRADLE_ISOLATING = "org.gradle.annotation.processing.isolating";
+  private static final String GRADLE_AGGREGATING = "org.gradle.annotation.processing.aggregating";
+  private static final String AUTO_VALUE_ANNOTATION = "com.google.auto.value.AutoValue";
 
   private Messager messager;
   private Filer filer;
@@ -73,6 +94,14 @@ public class XmlProcessor extends AbstractProcessor {
   private Types typeUtils;
   private AnnotationDetector annotationDetector;
 
+  // Collected over all rounds. The index is generated in the first round without @Xml classes (the
+  // round after the type adapters have been generated), so that it is compiled and processed like
+  // any other source file. Generating it in the last round would make javac warn about it.
+  private final Map<String, ClassName> indexedAdapters = new TreeMap<>();
+  private final Map<String, ClassName> indexedGenericAdapters = new TreeMap<>();
+  private final Set<Element> indexOriginatingElements = new LinkedHashSet<>();
+  private boolean indexGenerated = false;
+
   @Override
   public synchronized void init(ProcessingEnvironment processingEnv) {
     super.init(processingEnv);
@@ -96,6 +125,10 @@ public class XmlProcessor extends AbstractProcessor {
     Set<String> options = new HashSet<>();
     options.add(OPTION_TYPE_CONVERTER_FOR_PRIMITIVES);
     options.add(MAP_IMPL);
+    options.add(ADAPTER_INDEX);
+    options.add(SWITCH_DISPATCH);
+    // The index is generated from all @Xml classes, so incremental processing must be aggregating
+    options.add(getAdapterIndexClassName() == null ? GRADLE_ISOLATING : GRADLE_AGGREGATING);
     return options;
   }
 
@@ -138,8 +171,17 @@ public class XmlProcessor extends AbstractProcessor {
       GenericAdapterCodeGenerator genericAdapterCodeGenerator = new GenericAdapterCodeGenerator(filer, typeUtils, elementUtils);
       genericAdapterCodeGenerator.generateCode(annotationDetector.getGenericTypes());
 
+      String adapterIndexClassName = getAdapterIndexClassName();
+      if (adapterIndexClassName != null && !indexGenerated) {
+        indexGenericAdapters(annotationDetector.getGenericTypes());
+      }
+
       for (Element element : xmlElements) {
         if (element.getKind() == ElementKind.CLASS && element.getModifiers().contains(Modifier.ABSTRACT)) {
+          if (adapterIndexClassName != null && isAutoValueClass(element)) {
+            // The type adapter is generated by the AutoValue extension
+            indexAdapter((TypeElement) element, adapterIndexClassName);
+          }
           continue;
         }
         AnnotatedClass clazz = new AnnotatedClassImpl(element);
@@ -147,12 +189,29 @@ public class XmlProcessor extends AbstractProcessor {
         scanner.scan(clazz);
 
         String mapImpl = processingEnv.getOptions().get(MAP_IMPL);
+        boolean switchDispatch = Boolean.parseBoolean(processingEnv.getOptions().get(SWITCH_DISPATCH));
         TypeAdapterCodeGenerator generator =
-            new TypeAdapterCodeGenerator(filer, elementUtils, typeUtils, primitiveTypeConverters, mapImpl, messager);
+            new TypeAdapterCodeGenerator(filer, elementUtils, typeUtils, primitiveTypeConverters, mapImpl, messager,
+                switchDispatch);
         generator.generateCode(clazz);
+
+        if (adapterIndexClassName != null) {
+          indexAdapter((TypeElement) element, adapterIndexClassName);
+        }
+      }
+
+      // Only in the last round if the previous round generated @Xml classes (i.e. another processor)
+      if (adapterIndexClassName != null && !indexGenerated && !roundEnv.errorRaised()
+          && (xmlElements.isEmpty() || roundEnv.processingOver())) {
+        new AdapterIndexCodeGenerator(filer).generateCode(adapterIndexClassName, indexedAdapters,
+            indexedGenericAdapters, indexOriginatingElements);
+        indexGenerated = true;
       }
     } catch (ProcessingException e) {
       printError(e);
+    } catch (IOException e) {
+      messager.printMessage(Diagnostic.Kind.ERROR,
+          "Could not generate the type adapter index " + getAdapterIndexClassName() + ": " + e.getMessage());
     }
 
     return false;
@@ -171,6 +230,62 @@ public class XmlProcessor extends AbstractProcessor {
     return primitiveTypeConverters;
   }
 
+  /**
+   * @return The full qualified class name of the type adapter index to generate or null
+   */
+  private String getAdapterIndexClassName() {
+    if (processingEnv == null) {
+      return null;
+    }
+    String className = processingEnv.getOptions().get(ADAPTER_INDEX);
+    return className == null || className.trim().isEmpty() ? null : className.trim();
+  }
+
+  /**
+   * Adds the type adapter generated for the given class to the index, if the index hasn't been
+   * generated yet
+   */
+  private void indexAdapter(TypeElement element, String adapterIndexClassName) {
+    if (indexGenerated) {
+      messager.printMessage(Diagnostic.Kind.NOTE, element + " has been generated after the type "
+          + "adapter index " + adapterIndexClassName + ", so its type adapter is loaded via reflection", element);
+      return;
+    }
+    String packageName = elementUtils.getPackageOf(element).getQualifiedName().toString();
+    indexedAdapters.put(elementUtils.getBinaryName(element).toString(),
+        ClassName.get(packageName, element.getSimpleName() + TypeAdapter.GENERATED_CLASS_SUFFIX));
+    indexOriginatingElements.add(element);
+  }
+
+  /**
+   * Adds the generic type adapters generated by {@link GenericAdapterCodeGenerator} to the index
+   */
+  private void indexGenericAdapters(Map<String, Set<String>> genericTypes) {
+    for (Map.Entry<String, Set<String>> entry : genericTypes.entrySet()) {
+      if (entry.getValue() == null || entry.getValue().isEmpty()) {
+        continue; // No generic type adapter generated
+      }
+      TypeElement element = elementUtils.getTypeElement(entry.getKey());
+      if (element == null) {
+        continue; // Not indexed, loaded via reflections
+      }
+      ClassName className = ClassName.get(element);
+      indexedGenericAdapters.put(elementUtils.getBinaryName(element).toString(),
+          ClassName.get(className.packageName(),
+              className.simpleName() + TypeAdapter.GENERATED_GENERIC_CLASS_SUFFIS));
+      indexOriginatingElements.add(element);
+    }
+  }
+
+  private boolean isAutoValueClass(Element element) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      if (annotation.getAnnotationType().toString().equals(AUTO_VALUE_ANNOTATION)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void addGenericAdapterSuperclasses(TypeElement originalElement, TypeElement element) {
     if (originalElement.getKind() == ElementKind.INTERFACE) {
       return;
@@ -44,8 +44,8 @@ open class ElementField(element: VariableElement, name: String) : NamedField(ele
   override fun generateReadXmlCode(codeGeneratorHelper: CodeGeneratorHelper): TypeSpec {
     val fromXmlMethod = codeGeneratorHelper.fromXmlMethodBuilder()
       .addCode(accessResolver.resolveAssignment(
-        "(\$T)${CodeGeneratorHelper.tikConfigParam}.getTypeAdapter(\$T.class).fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)",
-        ClassName.get(element.asType()), ClassName.get(element.asType())))
+        "(\$T)${codeGeneratorHelper.typeReferenceManager.getTypeAdapter(ClassName.get(element.asType()))}.fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)",
+        ClassName.get(element.asType())))
       .build()
 
     return TypeSpec.anonymousClassBuilder("")
@@ -72,7 +72,7 @@ class ListElementField(element: VariableElement, name: String, private val gener
     val valueTypeAsArrayList = ParameterizedTypeName.get(ClassName.get(ArrayList::class.java), ClassName.get(genericListType))
 
     val valueFromAdapter =
-      " ${CodeGeneratorHelper.tikConfigParam}.getTypeAdapter(\$T.class).fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)"
+      " ${codeGeneratorHelper.typeReferenceManager.getTypeAdapter(ClassName.get(genericListType))}.fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)"
 
     val fromXmlMethod = codeGeneratorHelper.fromXmlMethodBuilder()
       .addCode(CodeBlock.builder()
@@ -81,7 +81,7 @@ class ListElementField(element: VariableElement, name: String, private val gener
         .endControlFlow()
         .build())
       .addStatement("${accessResolver.resolveGetterForReadingXml()}.add((\$T) $valueFromAdapter )",
-        ClassName.get(genericListType), ClassName.get(genericListType))
+        ClassName.get(genericListType))
       .build()
 
     return TypeSpec.anonymousClassBuilder("")
@@ -106,8 +106,8 @@ class ListElementField(element: VariableElement, name: String, private val gener
         beginControlFlow("for (int i =0; i<$sizeVariableName; i++)")
         addStatement("\$T $itemVariableName = $listVariableName.get(i)", ClassName.get(genericListType))
         addStatement(
-          "${CodeGeneratorHelper.tikConfigParam}.getTypeAdapter(\$T.class).toXml(${CodeGeneratorHelper.writerParam}, ${CodeGeneratorHelper.tikConfigParam}, $itemVariableName, \$S)",
-          ClassName.get(genericListType), name)
+          "${codeGeneratorHelper.typeReferenceManager.getTypeAdapter(ClassName.get(genericListType))}.toXml(${CodeGeneratorHelper.writerParam}, ${CodeGeneratorHelper.tikConfigParam}, $itemVariableName, \$S)",
+          name)
         endControlFlow()
       }
       .build()
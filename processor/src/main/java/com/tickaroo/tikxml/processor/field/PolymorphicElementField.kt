@@ -86,8 +86,8 @@ open class PolymorphicSubstitutionField(element: VariableElement, override val t
   override fun generateReadXmlCode(codeGeneratorHelper: CodeGeneratorHelper): TypeSpec {
     val fromXmlMethod = codeGeneratorHelper.fromXmlMethodBuilder()
       .addCode(accessResolver.resolveAssignment(
-        " (\$T) ${CodeGeneratorHelper.tikConfigParam}.getTypeAdapter(\$T.class).fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)",
-        ClassName.get(typeMirror), ClassName.get(typeMirror)))
+        " (\$T) ${codeGeneratorHelper.typeReferenceManager.getTypeAdapter(ClassName.get(typeMirror))}.fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)",
+        ClassName.get(typeMirror)))
       .build()
 
     return TypeSpec.anonymousClassBuilder("")
@@ -120,7 +120,7 @@ class PolymorphicSubstitutionListField(element: VariableElement, typeMirror: Typ
 
     
     val valueFromAdapter =
-      "${CodeGeneratorHelper.tikConfigParam}.getTypeAdapter(\$T.class).fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)"
+      "${codeGeneratorHelper.typeReferenceManager.getTypeAdapter(ClassName.get(typeMirror))}.fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)"
 
     val fromXmlMethod = codeGeneratorHelper.fromXmlMethodBuilder()
       .addCode(CodeBlock.builder()
@@ -128,8 +128,7 @@ class PolymorphicSubstitutionListField(element: VariableElement, typeMirror: Typ
         .add(accessResolver.resolveAssignment("new \$T()", valueTypeAsArrayList))
         .endControlFlow()
         .build())
-      .addStatement("\$T v = (\$T) $valueFromAdapter", ClassName.get(typeMirror), ClassName.get(typeMirror),
-        ClassName.get(typeMirror))
+      .addStatement("\$T v = (\$T) $valueFromAdapter", ClassName.get(typeMirror), ClassName.get(typeMirror))
       .addStatement("${accessResolver.resolveGetterForReadingXml()}.add(v)")
       .build()
 
@@ -19,6 +19,7 @@
 package com.tickaroo.tikxml.processor.field
 
 import com.squareup.javapoet.*
+import com.tickaroo.tikxml.annotation.BinaryEncoding
 import com.tickaroo.tikxml.processor.generator.CodeGeneratorHelper
 import com.tickaroo.tikxml.processor.utils.ifValueNotNullCheck
 import com.tickaroo.tikxml.processor.xml.XmlChildElement
@@ -30,7 +31,8 @@ import javax.lang.model.element.VariableElement
  * This class represents a field annotated with [com.tickaroo.tikxml.annotation.PropertyElement]
  * @author Hannes Dorfmann
  */
-class PropertyField(element: VariableElement, name: String, val writeAsCData: Boolean = false, val converterQualifiedName: String? = null) : NamedField(element, name), XmlChildElement {
+class PropertyField(element: VariableElement, name: String, val writeAsCData: Boolean = false, val converterQualifiedName: String? = null,
+                    val binaryEncoding: BinaryEncoding = BinaryEncoding.NONE) : NamedField(element, name), XmlChildElement {
     override val attributes = LinkedHashMap<String, AttributeField>()
     override val childElements = LinkedHashMap<String, XmlChildElement>()
 
@@ -41,7 +43,7 @@ class PropertyField(element: VariableElement, name: String, val writeAsCData: Bo
         if (!hasAttributes()) {
             val fromXmlMethod = codeGeneratorHelper.fromXmlMethodBuilder()
                     .addCode(codeGeneratorHelper.ignoreAttributes())
-                    .addCode(codeGeneratorHelper.assignViaTypeConverterOrPrimitive(element, CodeGeneratorHelper.AssignmentType.ELEMENT, accessResolver, converterQualifiedName))
+                    .addCode(generateAssignment(codeGeneratorHelper))
                     .build()
 
 
@@ -53,7 +55,7 @@ class PropertyField(element: VariableElement, name: String, val writeAsCData: Bo
 
 
         val fromXmlMethod = codeGeneratorHelper.fromXmlMethodBuilder()
-                .addCode(codeGeneratorHelper.assignViaTypeConverterOrPrimitive(element, CodeGeneratorHelper.AssignmentType.ELEMENT, accessResolver, converterQualifiedName))
+                .addCode(generateAssignment(codeGeneratorHelper))
                 .build()
 
         // Multiple attributes
@@ -71,11 +73,21 @@ class PropertyField(element: VariableElement, name: String, val writeAsCData: Bo
 
     }
 
+    private fun generateAssignment(codeGeneratorHelper: CodeGeneratorHelper) =
+            if (binaryEncoding != BinaryEncoding.NONE)
+                codeGeneratorHelper.assignBinary(element, accessResolver, binaryEncoding)
+            else
+                codeGeneratorHelper.assignViaTypeConverterOrPrimitive(element, CodeGeneratorHelper.AssignmentType.ELEMENT, accessResolver, converterQualifiedName)
+
     override fun generateWriteXmlCode(codeGeneratorHelper: CodeGeneratorHelper) =
             CodeBlock.builder()
                     .ifValueNotNullCheck(this) {
                         add(codeGeneratorHelper.writeBeginElementAndAttributes(this@PropertyField))
-                        add(codeGeneratorHelper.writeTextContentViaTypeConverterOrPrimitive(element, accessResolver, converterQualifiedName, writeAsCData))
+                        if (binaryEncoding != BinaryEncoding.NONE) {
+                            add(codeGeneratorHelper.writeBinaryTextContent(element, accessResolver, binaryEncoding))
+                        } else {
+                            add(codeGeneratorHelper.writeTextContentViaTypeConverterOrPrimitive(element, accessResolver, converterQualifiedName, writeAsCData))
+                        }
                         addStatement("${CodeGeneratorHelper.writerParam}.endElement()")
                     }
                     .build()
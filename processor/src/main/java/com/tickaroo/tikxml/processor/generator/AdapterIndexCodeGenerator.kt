@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.processor.generator
+
+import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.CodeBlock
+import com.squareup.javapoet.JavaFile
+import com.squareup.javapoet.MethodSpec
+import com.squareup.javapoet.ParameterizedTypeName
+import com.squareup.javapoet.TypeSpec
+import com.squareup.javapoet.WildcardTypeName
+import com.tickaroo.tikxml.typeadapter.TypeAdapter
+import com.tickaroo.tikxml.typeadapter.TypeAdapterIndex
+import java.io.IOException
+import javax.annotation.processing.Filer
+import javax.lang.model.element.Element
+import javax.lang.model.element.Modifier.FINAL
+import javax.lang.model.element.Modifier.PUBLIC
+import javax.tools.StandardLocation
+
+/**
+ * Generates a [TypeAdapterIndex] that instantiates the generated type adapters of a module
+ * without reflections, and registers it for [java.util.ServiceLoader].
+ */
+class AdapterIndexCodeGenerator(private val filer: Filer) {
+
+  /**
+   * Generates the index
+   *
+   * @param indexClassName The full qualified class name of the index
+   * @param adapters The binary class names of the model classes mapped to their generated type adapter
+   * @param genericAdapters The binary class names of interfaces and abstract classes mapped to their generated generic type adapter
+   * @param originatingElements The elements the type adapters have been generated for
+   */
+  @Throws(IOException::class)
+  fun generateCode(indexClassName: String, adapters: Map<String, ClassName>, genericAdapters: Map<String, ClassName>,
+    originatingElements: Collection<Element>) {
+
+    val lastDot = indexClassName.lastIndexOf('.')
+    val indexClass = ClassName.get(if (lastDot == -1) "" else indexClassName.substring(0, lastDot),
+      indexClassName.substring(lastDot + 1))
+
+    val returnType =
+      ParameterizedTypeName.get(ClassName.get(TypeAdapter::class.java), WildcardTypeName.subtypeOf(Object::class.java))
+    val classType =
+      ParameterizedTypeName.get(ClassName.get(Class::class.java), WildcardTypeName.subtypeOf(Object::class.java))
+
+    val newTypeAdapterMethod = MethodSpec.methodBuilder("newTypeAdapter")
+      .addAnnotation(Override::class.java)
+      .addModifiers(PUBLIC)
+      .addParameter(classType, "clazz")
+      .addParameter(Boolean::class.javaPrimitiveType, "generic")
+      .returns(returnType)
+      .beginControlFlow("if (generic)")
+      .addCode(generateSwitch(genericAdapters))
+      .endControlFlow()
+      .addCode(generateSwitch(adapters))
+      .build()
+
+    val indexBuilder = TypeSpec.classBuilder(indexClass)
+      .addJavadoc("Index of the generated type adapters, generated by the TikXml annotation processor\n")
+      .addModifiers(PUBLIC, FINAL)
+      .addSuperinterface(TypeAdapterIndex::class.java)
+      .addMethod(newTypeAdapterMethod)
+    originatingElements.forEach { indexBuilder.addOriginatingElement(it) }
+
+    JavaFile.builder(indexClass.packageName(), indexBuilder.build()).build().writeTo(filer)
+
+    val serviceFile = filer.createResource(StandardLocation.CLASS_OUTPUT, "",
+      "META-INF/services/${TypeAdapterIndex::class.java.name}", *originatingElements.toTypedArray())
+    serviceFile.openWriter().use { it.write(indexClass.reflectionName() + "\n") }
+  }
+
+  /**
+   * Generates a switch over the class name that returns a new instance of the matching type adapter
+   */
+  private fun generateSwitch(adapters: Map<String, ClassName>): CodeBlock {
+    val builder = CodeBlock.builder()
+      .beginControlFlow("switch (clazz.getName())")
+    adapters.forEach { (className, adapterClass) ->
+      builder.addStatement("case \$S: return new \$T()", className, adapterClass)
+    }
+    return builder
+      .addStatement("default: return null")
+      .endControlFlow()
+      .build()
+  }
+}
@@ -26,6 +26,7 @@ import com.squareup.javapoet.TypeSpec
 import com.tickaroo.tikxml.TikXmlConfig
 import com.tickaroo.tikxml.TypeConverterNotFoundException
 import com.tickaroo.tikxml.XmlReader
+import com.tickaroo.tikxml.annotation.BinaryEncoding
 import com.tickaroo.tikxml.processor.ProcessingException
 import com.tickaroo.tikxml.processor.field.PolymorphicSubstitutionField
 import com.tickaroo.tikxml.processor.field.PolymorphicSubstitutionListField
@@ -33,8 +34,10 @@ import com.tickaroo.tikxml.processor.field.PolymorphicTypeElementNameMatcher
 import com.tickaroo.tikxml.processor.field.access.FieldAccessResolver
 import com.tickaroo.tikxml.processor.scanning.getXmlElementName
 import com.tickaroo.tikxml.processor.utils.isBoolean
+import com.tickaroo.tikxml.processor.utils.isByteString
 import com.tickaroo.tikxml.processor.utils.isDouble
 import com.tickaroo.tikxml.processor.utils.isInt
+import com.tickaroo.tikxml.processor.utils.isLargeText
 import com.tickaroo.tikxml.processor.utils.isLong
 import com.tickaroo.tikxml.processor.utils.isPrimitive
 import com.tickaroo.tikxml.processor.utils.isString
@@ -63,6 +66,7 @@ import javax.tools.Diagnostic
  */
 class CodeGeneratorHelper(
   val customTypeConverterManager: CustomTypeConverterManager,
+  val typeReferenceManager: TypeReferenceManager,
   val typeConvertersForPrimitives: Set<String>,
   val valueType: ClassName,
   val elementUtils: Elements,
@@ -114,17 +118,24 @@ class CodeGeneratorHelper(
       Long::class.java.canonicalName to "java.lang.Long"
     )
 
+    val byteStringTypes = Collections.singletonMap(
+      "okio.ByteString", "okio.ByteString"
+    )
+
+    val byteStringClassName: ClassName = ClassName.get("okio", "ByteString")
+
     fun tryGeneratePrimitiveConverter(
       typesMap: Map<String, String>,
       typeConvertersForPrimitives: Set<String>,
-      codeWriterFormat: String
+      codeWriterFormat: String,
+      typeConverter: (String) -> String = { "$tikConfigParam.getTypeConverter($it.class)" }
     ): String? {
       return typesMap.asSequence().filter {
         typeConvertersForPrimitives.contains(it.key)
       }.map {
         it.value
       }.firstOrNull()?.let { className ->
-        codeWriterFormat.format(className)
+        codeWriterFormat.format(typeConverter(className))
       }
     }
 
@@ -243,6 +254,29 @@ class CodeGeneratorHelper(
     return builder.build()
   }
 
+  /**
+   * Generate the code of each attribute binder (see [generateAttributeBinders]) without the binder class around it,
+   * so that it can be inlined into the fromXml() method of the type adapter
+   */
+  fun generateAttributeCode(currentElement: XmlElement): Map<String, CodeBlock> =
+    currentElement.attributes.mapValues { (_, attributeField) ->
+      assignViaTypeConverterOrPrimitive(attributeField.element, AssignmentType.ATTRIBUTE, attributeField.accessResolver,
+        attributeField.converterQualifiedName)
+    }
+
+  /**
+   * Get the code of the fromXml() method of a binder generated by [XmlChildElement.generateReadXmlCode], so that it can
+   * be inlined into the fromXml() method of the type adapter. Returns null if the binder has some state
+   * (i.e. a [NestedChildElementBinder]) and therefore must be instantiated.
+   */
+  fun inlinableChildElementBinderCode(binder: TypeSpec): CodeBlock? =
+    if (binder.superinterfaces == listOf(childElementBinderType) && binder.methodSpecs.size == 1
+      && binder.fieldSpecs.isEmpty() && binder.initializerBlock.isEmpty && binder.typeSpecs.isEmpty()) {
+      binder.methodSpecs[0].code
+    } else {
+      null
+    }
+
   /**
    * get the assignment statement for reading attributes
    */
@@ -254,7 +288,7 @@ class CodeGeneratorHelper(
   ): CodeBlock {
     val type = element.asType()
     val xmlReaderMethodPrefix = assignmentType.xmlReaderMethodPrefix()
-    val codeWriterFormat = "$tikConfigParam.getTypeConverter(%s.class).read($readerParam.$xmlReaderMethodPrefix())"
+    val codeWriterFormat = "%s.read($readerParam.$xmlReaderMethodPrefix())"
 
     var resolveMethodName = ""
     val assignmentStatement = when {
@@ -263,26 +297,40 @@ class CodeGeneratorHelper(
         "$fieldName.read($readerParam.$xmlReaderMethodPrefix())"
       }
       type.isString() -> {
-        tryGeneratePrimitiveConverter(stringTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(stringTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isBoolean() -> {
         resolveMethodName = "AsBoolean"
-        tryGeneratePrimitiveConverter(booleanTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(booleanTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isDouble() -> {
         resolveMethodName = "AsDouble"
-        tryGeneratePrimitiveConverter(doubleTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(doubleTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isInt() -> {
         resolveMethodName = "AsInt"
-        tryGeneratePrimitiveConverter(integerTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(integerTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isLong() -> {
         resolveMethodName = "AsLong"
-        tryGeneratePrimitiveConverter(longTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(longTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
+      }
+      type.isByteString() -> {
+        resolveMethodName = "AsByteString"
+        tryGeneratePrimitiveConverter(byteStringTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
+      }
+      type.isLargeText() && assignmentType == AssignmentType.ELEMENT -> {
+        return accessResolver.resolveAssignment(
+          "$readerParam.nextTextContentAsLargeText($tikConfigParam.largeTextThreshold(), $tikConfigParam.largeTextDirectory())")
       }
       else -> {
-        codeWriterFormat.format(type.toString())
+        codeWriterFormat.format(typeReferenceManager.getTypeConverter(type.toString()))
       }
     }
 
@@ -290,6 +338,17 @@ class CodeGeneratorHelper(
       ?: accessResolver.resolveAssignment("$readerParam.$xmlReaderMethodPrefix$resolveMethodName()")
   }
 
+  /**
+   * get the assignment statement for reading base64 or hex encoded binary data (byte[] or okio.ByteString)
+   */
+  fun assignBinary(element: Element, accessResolver: FieldAccessResolver, binaryEncoding: BinaryEncoding): CodeBlock {
+    val readMethod = if (binaryEncoding == BinaryEncoding.HEX) "nextTextContentHexAsBytes" else "nextTextContentBase64AsBytes"
+    return if (element.asType().isByteString())
+      accessResolver.resolveAssignment("\$T.of($readerParam.$readMethod())", byteStringClassName)
+    else
+      accessResolver.resolveAssignment("$readerParam.$readMethod()")
+  }
+
   /**
    * Generate a [NestedChildElementBinder] and recursively calls [com.tickaroo.tikxml.processor.xml.XmlChildElement] to generate its code
    */
@@ -329,14 +388,18 @@ class CodeGeneratorHelper(
   }
 
   fun ignoreAttributes() = CodeBlock.builder()
+    .beginControlFlow("if (\$L.exceptionOnUnreadXml())", tikConfigParam)
     .beginControlFlow("while(\$L.hasAttribute())", readerParam)
     .addStatement("String attributeName = \$L.nextAttributeName()", readerParam)
-    .beginControlFlow("if (\$L.exceptionOnUnreadXml() && !attributeName.startsWith(\$S))", tikConfigParam, "xmlns")
+    .beginControlFlow("if (!attributeName.startsWith(\$S))", "xmlns")
     .addStatement("throw new \$T(\"Unread attribute '\"+ attributeName +\"' at path \"+ $readerParam.getPath())",
       ClassName.get(IOException::class.java))
     .endControlFlow()
     .addStatement("\$L.skipAttributeValue()", readerParam)
     .endControlFlow()
+    .nextControlFlow("else")
+    .addStatement("\$L.skipRemainingAttributes()", readerParam)
+    .endControlFlow()
     .build()
 
   fun fromXmlMethodBuilder() = MethodSpec.methodBuilder("fromXml")
@@ -376,7 +439,7 @@ class CodeGeneratorHelper(
     val xmlWriterMethod = "attribute"
     val resolvedGetter = accessResolver.resolveGetterForWritingXml()
     val codeWriterFormat =
-      "$writerParam.$xmlWriterMethod(\"$attributeName\", $tikConfigParam.getTypeConverter(%s.class).write($resolvedGetter))"
+      "$writerParam.$xmlWriterMethod(\"$attributeName\", %s.write($resolvedGetter))"
 
     val writeStatement = when {
       customTypeConverterQualifiedClassName != null -> {
@@ -384,22 +447,31 @@ class CodeGeneratorHelper(
         "$writerParam.$xmlWriterMethod(\"$attributeName\", $fieldName.write($resolvedGetter))"
       }
       type.isString() -> {
-        tryGeneratePrimitiveConverter(stringTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(stringTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isBoolean() -> {
-        tryGeneratePrimitiveConverter(booleanTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(booleanTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isDouble() -> {
-        tryGeneratePrimitiveConverter(doubleTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(doubleTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isInt() -> {
-        tryGeneratePrimitiveConverter(integerTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(integerTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isLong() -> {
-        tryGeneratePrimitiveConverter(longTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(longTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
+      }
+      type.isByteString() -> {
+        tryGeneratePrimitiveConverter(byteStringTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       else -> {
-        codeWriterFormat.format(type.toString())
+        codeWriterFormat.format(typeReferenceManager.getTypeConverter(type.toString()))
       }
     }
 
@@ -427,8 +499,7 @@ class CodeGeneratorHelper(
    */
   fun writeDelegateToTypeAdapters(type: TypeMirror, accessResolver: FieldAccessResolver, overridingXmlElementName: String?) =
     CodeBlock.builder().addStatement(
-      "$tikConfigParam.getTypeAdapter(\$T.class).toXml($writerParam, $tikConfigParam, ${accessResolver.resolveGetterForWritingXml()}, ${if (overridingXmlElementName == null) "null" else "\"$overridingXmlElementName\""})",
-      ClassName.get(type))
+      "${typeReferenceManager.getTypeAdapter(ClassName.get(type))}.toXml($writerParam, $tikConfigParam, ${accessResolver.resolveGetterForWritingXml()}, ${if (overridingXmlElementName == null) "null" else "\"$overridingXmlElementName\""})")
       .build()
 
   /**
@@ -461,8 +532,9 @@ class CodeGeneratorHelper(
         endControlFlow()
 
         val genericListTypeMirror = orderdByInheritanceHierarchy.first().genericListTypeMirror
-        addStatement("$tikConfigParam.getTypeAdapter(\$T.class, true).toXml($writerParam, $tikConfigParam, (\$T) $variableName, xmlElementName)",
-          genericListTypeMirror, genericListTypeMirror)
+        addStatement(
+          "${typeReferenceManager.getTypeAdapter(ClassName.get(genericListTypeMirror), true)}.toXml($writerParam, $tikConfigParam, (\$T) $variableName, xmlElementName)",
+          genericListTypeMirror)
         /*filteredOrderdByInheritanceHierarchy.forEachIndexed { i, nameMatcher ->
           if (i == 0) {
             beginControlFlow("if ($variableName instanceof \$T)", ClassName.get(nameMatcher.type))
@@ -506,7 +578,7 @@ class CodeGeneratorHelper(
     val elementNotPrimitive = !type.isPrimitive()
     val xmlWriterMethod = if (asCData && type.isString()) "textContentAsCData" else "textContent"
     val resolvedGetter = accessResolver.resolveGetterForWritingXml()
-    val codeWriterFormat = "$writerParam.$xmlWriterMethod($tikConfigParam.getTypeConverter(%s.class).write($resolvedGetter))"
+    val codeWriterFormat = "$writerParam.$xmlWriterMethod(%s.write($resolvedGetter))"
 
     val writeStatement = when {
       customTypeConverterQualifiedClassName != null -> {
@@ -514,22 +586,32 @@ class CodeGeneratorHelper(
         "$writerParam.$xmlWriterMethod($fieldName.write($resolvedGetter))"
       }
       type.isString() -> {
-        tryGeneratePrimitiveConverter(stringTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(stringTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isBoolean() -> {
-        tryGeneratePrimitiveConverter(booleanTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(booleanTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isDouble() -> {
-        tryGeneratePrimitiveConverter(doubleTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(doubleTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isInt() -> {
-        tryGeneratePrimitiveConverter(integerTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(integerTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
       type.isLong() -> {
-        tryGeneratePrimitiveConverter(longTypes, typeConvertersForPrimitives, codeWriterFormat)
+        tryGeneratePrimitiveConverter(longTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
       }
+      type.isByteString() -> {
+        tryGeneratePrimitiveConverter(byteStringTypes, typeConvertersForPrimitives, codeWriterFormat,
+          typeReferenceManager::getTypeConverter)
+      }
+      type.isLargeText() -> null
       else -> {
-        codeWriterFormat.format(type.toString())
+        codeWriterFormat.format(typeReferenceManager.getTypeConverter(type.toString()))
       }
     }
 
@@ -537,6 +619,18 @@ class CodeGeneratorHelper(
       ?: writeValueWithoutConverter(elementNotPrimitive, resolvedGetter, xmlWriterMethod)
   }
 
+  /**
+   * Writes base64 or hex encoded binary data (byte[] or okio.ByteString) as text content
+   */
+  fun writeBinaryTextContent(element: Element, accessResolver: FieldAccessResolver, binaryEncoding: BinaryEncoding): CodeBlock {
+    val resolvedGetter = accessResolver.resolveGetterForWritingXml()
+    val encodeMethod = if (binaryEncoding == BinaryEncoding.HEX) "hex" else "base64"
+    return if (element.asType().isByteString())
+      CodeBlock.builder().addStatement("$writerParam.textContent($resolvedGetter.$encodeMethod())").build()
+    else
+      CodeBlock.builder().addStatement("$writerParam.textContent(\$T.of($resolvedGetter).$encodeMethod())", byteStringClassName).build()
+  }
+
   /**
    * Generates the code tat is able to resolve polymorphism for lists, polymorphic elements or by simply forwarding code generation to the child.
    */
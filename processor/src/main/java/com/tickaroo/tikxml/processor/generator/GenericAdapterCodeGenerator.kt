@@ -38,13 +38,15 @@ class GenericAdapterCodeGenerator(
         val typeAdapterObject = ClassName.get(elementUtils.getTypeElement(genericTypeName))
         val typeAdapterInterface = ParameterizedTypeName.get(ClassName.get(TypeAdapter::class.java), typeAdapterObject)
 
+        val typeReferenceManager = TypeReferenceManager(elementUtils)
         val adapterClassBuilder =
           TypeSpec
             .classBuilder("${typeAdapterObject.simpleName()}${TypeAdapter.GENERATED_GENERIC_CLASS_SUFFIS}")
             .addSuperinterface(typeAdapterInterface)
             .addModifiers(PUBLIC)
-            .addMethod(generateFromXml(typeAdapterObject, implementationNames!!))
-            .addMethod(generateToXml(typeAdapterObject, implementationNames))
+            .addMethod(generateFromXml(typeAdapterObject, implementationNames!!, typeReferenceManager))
+            .addMethod(generateToXml(typeAdapterObject, implementationNames, typeReferenceManager))
+        typeReferenceManager.generateFields(adapterClassBuilder)
 
         try {
           val javaFile = JavaFile.builder(typeAdapterObject.packageName(), adapterClassBuilder.build()).build()
@@ -55,14 +57,13 @@ class GenericAdapterCodeGenerator(
       }
   }
 
-  private fun generateFromXml(returnTypeName: TypeName, implementationNames: Set<String>): MethodSpec {
+  private fun generateFromXml(returnTypeName: TypeName, implementationNames: Set<String>,
+    typeReferenceManager: TypeReferenceManager): MethodSpec {
     val codeBlockBuilder = CodeBlock.builder()
       .addStatement("\$T ${CodeGeneratorHelper.valueParam} = null", returnTypeName)
       .addStatement("\$T elementName", String::class.java)
       .beginControlFlow("if (isGenericList)")
-      .beginControlFlow("while (${CodeGeneratorHelper.readerParam}.hasAttribute())")
-      .addStatement("${CodeGeneratorHelper.readerParam}.skipAttribute()")
-      .endControlFlow()
+      .addStatement("${CodeGeneratorHelper.readerParam}.skipRemainingAttributes()")
       .beginControlFlow("if (!${CodeGeneratorHelper.readerParam}.hasElement())")
       .addStatement("return null")
       .endControlFlow()
@@ -81,8 +82,9 @@ class GenericAdapterCodeGenerator(
       codeBlockBuilder.run {
         val equalsCheck = "elementName.equals(\"$xmLElementName\")"
         if (index == 0) beginControlFlow("if ($equalsCheck)") else nextControlFlow("else if ($equalsCheck)")
-        addStatement("${CodeGeneratorHelper.valueParam} = (\$T) config.getTypeAdapter(\$T.class).fromXml(reader, config, false)",
-          implTypeName, implTypeName)
+        addStatement(
+          "${CodeGeneratorHelper.valueParam} = (\$T) ${typeReferenceManager.getTypeAdapter(ClassName.get(implTypeName))}.fromXml(reader, config, false)",
+          implTypeName)
       }
     }
 
@@ -92,15 +94,8 @@ class GenericAdapterCodeGenerator(
         "throw new \$T(\"Could not map the xml element with the tag name <\" + elementName + \"> at path '\" + reader.getPath()+\"' to java class. Have you annotated such a field in your java class to map this xml attribute? Otherwise you can turn this error message off with TikXml.Builder().exceptionOnUnreadXml(false).build().\")",
         IOException::class.java)
       .nextControlFlow("else")
-      .beginControlFlow("while (${CodeGeneratorHelper.readerParam}.hasAttribute())")
-      .addStatement("${CodeGeneratorHelper.readerParam}.skipAttribute()")
-      .endControlFlow()
-      .beginControlFlow("while (${CodeGeneratorHelper.readerParam}.hasElement())")
-      .addStatement("${CodeGeneratorHelper.readerParam}.beginElement()")
       .addStatement("${CodeGeneratorHelper.readerParam}.skipRemainingElement()")
       .endControlFlow()
-      .addStatement("${CodeGeneratorHelper.readerParam}.endElement()")
-      .endControlFlow()
       .build()
 
     return MethodSpec.methodBuilder("fromXml")
@@ -116,7 +111,8 @@ class GenericAdapterCodeGenerator(
       .build()
   }
 
-  private fun generateToXml(valueTypeName: TypeName, implementationNames: Set<String>): MethodSpec {
+  private fun generateToXml(valueTypeName: TypeName, implementationNames: Set<String>,
+    typeReferenceManager: TypeReferenceManager): MethodSpec {
     val codeBlockBuilder = CodeBlock.builder()
 
     val typeElementNameMatcher = mutableListOf<PolymorphicTypeElementNameMatcher>()
@@ -141,8 +137,8 @@ class GenericAdapterCodeGenerator(
       }
 
       codeBlockBuilder.addStatement(
-        "${CodeGeneratorHelper.tikConfigParam}.getTypeAdapter(\$T.class).toXml(${CodeGeneratorHelper.writerParam}, ${CodeGeneratorHelper.tikConfigParam}, (\$T) ${CodeGeneratorHelper.valueParam}, \$T.ofNullable(overridingXmlElementTagName).orElse(\$S))",
-        elementNameMatcher.type, elementNameMatcher.type, Optional::class.java, elementNameMatcher.xmlElementName)
+        "${typeReferenceManager.getTypeAdapter(ClassName.get(elementNameMatcher.type))}.toXml(${CodeGeneratorHelper.writerParam}, ${CodeGeneratorHelper.tikConfigParam}, (\$T) ${CodeGeneratorHelper.valueParam}, \$T.ofNullable(overridingXmlElementTagName).orElse(\$S))",
+        elementNameMatcher.type, Optional::class.java, elementNameMatcher.xmlElementName)
     }
 
     val codeBlock = codeBlockBuilder
@@ -19,11 +19,13 @@
 package com.tickaroo.tikxml.processor.generator
 
 import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.CodeBlock
 import com.squareup.javapoet.FieldSpec
 import com.squareup.javapoet.JavaFile
 import com.squareup.javapoet.MethodSpec
 import com.squareup.javapoet.ParameterizedTypeName
 import com.squareup.javapoet.TypeSpec
+import com.tickaroo.tikxml.LargeText
 import com.tickaroo.tikxml.TikXmlConfig
 import com.tickaroo.tikxml.XmlReader
 import com.tickaroo.tikxml.XmlWriter
@@ -31,10 +33,14 @@ import com.tickaroo.tikxml.processor.field.AnnotatedClass
 import com.tickaroo.tikxml.processor.field.Namespace
 import com.tickaroo.tikxml.processor.field.PolymorphicSubstitutionField
 import com.tickaroo.tikxml.processor.field.PolymorphicSubstitutionListField
+import com.tickaroo.tikxml.processor.field.PropertyField
 import com.tickaroo.tikxml.processor.scanning.getXmlElementName
+import com.tickaroo.tikxml.processor.utils.isByteString
+import com.tickaroo.tikxml.processor.utils.isLargeText
 import com.tickaroo.tikxml.processor.utils.isList
 import com.tickaroo.tikxml.processor.xml.PlaceholderXmlElement
 import com.tickaroo.tikxml.processor.xml.XmlChildElement
+import com.tickaroo.tikxml.processor.xml.XmlElement
 import com.tickaroo.tikxml.typeadapter.AttributeBinder
 import com.tickaroo.tikxml.typeadapter.ChildElementBinder
 import com.tickaroo.tikxml.typeadapter.TypeAdapter
@@ -43,8 +49,10 @@ import java.util.Locale
 import javax.annotation.processing.Filer
 import javax.annotation.processing.Messager
 import javax.lang.model.element.Modifier
+import javax.lang.model.element.Modifier.FINAL
 import javax.lang.model.element.Modifier.PRIVATE
 import javax.lang.model.element.Modifier.PUBLIC
+import javax.lang.model.element.Modifier.STATIC
 import javax.lang.model.element.TypeElement
 import javax.lang.model.type.DeclaredType
 import javax.lang.model.type.TypeMirror
@@ -64,7 +72,8 @@ class TypeAdapterCodeGenerator(
   private val typeUtils: Types,
   private val typeConvertersForPrimitives: Set<String>,
   private val mapImpl: String?,
-  private val messager: Messager,) {
+  private val messager: Messager,
+  private val switchDispatch: Boolean = false,) {
 
   /**
    * The name of the class that holds some value when we have to parse xml into a constructor
@@ -72,6 +81,12 @@ class TypeAdapterCodeGenerator(
   private val VALUE_HOLDER_CLASS_NAME = "ValueHolder"
   private val namespaceDefinitionPrefix = "xmlns"
 
+  /**
+   * The names of the [XmlReader.Options] constants used by [switchDispatch]
+   */
+  private val ATTRIBUTE_NAMES = "ATTRIBUTE_NAMES"
+  private val ELEMENT_NAMES = "ELEMENT_NAMES"
+
   /**
    * Generates an [com.tickaroo.tikxml.TypeAdapter] for the given class
    */
@@ -82,12 +97,20 @@ class TypeAdapterCodeGenerator(
       ParameterizedTypeName.get(ClassName.get(TypeAdapter::class.java), ClassName.get(annotatedClass.element))
 
     val customTypeConverterManager = CustomTypeConverterManager()
+    val typeReferenceManager = TypeReferenceManager(elementUtils)
     val codeGenUtils =
-      CodeGeneratorHelper(customTypeConverterManager, typeConvertersForPrimitives, parseIntoValueType, elementUtils, typeUtils, messager)
+      CodeGeneratorHelper(customTypeConverterManager, typeReferenceManager, typeConvertersForPrimitives, parseIntoValueType, elementUtils, typeUtils, messager)
 
     val constructorBuilder = MethodSpec.constructorBuilder()
       .addModifiers(PUBLIC)
-      .addCode(codeGenUtils.generateAttributeBinders(annotatedClass))
+
+    // With switchDispatch the code of the binders is inlined into fromXml() and selected by the xml name
+    val attributeDispatch = if (switchDispatch) codeGenUtils.generateAttributeCode(annotatedClass) else emptyMap()
+    val childElementDispatch = LinkedHashMap<String, CodeBlock>()
+    val childElementBinderFields = ArrayList<FieldSpec>()
+    if (!switchDispatch) {
+      constructorBuilder.addCode(codeGenUtils.generateAttributeBinders(annotatedClass))
+    }
 
     for ((xmlName, xmlElement) in annotatedClass.childElements) {
 
@@ -104,8 +127,26 @@ class TypeAdapterCodeGenerator(
               orginalElementTypeName.length)}"
           }
         }
-        constructorBuilder.addStatement("${CodeGeneratorHelper.childElementBindersParam}.put(\$S, \$N)", xmlName,
-          "${childElementBinderPrefix}ChildElementBinder")
+        if (switchDispatch) {
+          childElementDispatch[xmlName] = CodeBlock.of("\$N.fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, ${CodeGeneratorHelper.valueParam});\n",
+            "${childElementBinderPrefix}ChildElementBinder")
+        } else {
+          constructorBuilder.addStatement("${CodeGeneratorHelper.childElementBindersParam}.put(\$S, \$N)", xmlName,
+            "${childElementBinderPrefix}ChildElementBinder")
+        }
+      } else if (switchDispatch) {
+        val binder = xmlElement.generateReadXmlCode(codeGenUtils)
+        val inlinedCode = codeGenUtils.inlinableChildElementBinderCode(binder)
+        if (inlinedCode != null) {
+          childElementDispatch[xmlName] = inlinedCode
+        } else {
+          // Binders with state are instantiated in the constructor (like the binders of the map)
+          val fieldName = codeGenUtils.uniqueVariableName("childElementBinder")
+          childElementBinderFields.add(FieldSpec.builder(codeGenUtils.childElementBinderType, fieldName, PRIVATE, FINAL).build())
+          constructorBuilder.addStatement("\$N = \$L", fieldName, binder)
+          childElementDispatch[xmlName] = CodeBlock.of("\$N.fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, ${CodeGeneratorHelper.valueParam});\n",
+            fieldName)
+        }
       } else {
         constructorBuilder.addStatement("${CodeGeneratorHelper.childElementBindersParam}.put(\$S, \$L)", xmlName,
           xmlElement.generateReadXmlCode(codeGenUtils))
@@ -129,12 +170,16 @@ class TypeAdapterCodeGenerator(
       adapterClassBuilder.addType(valueHolderBuilder.build())
     }
 
-    generateFields(annotatedClass, adapterClassBuilder, customTypeConverterManager)
+    generateFields(annotatedClass, adapterClassBuilder, customTypeConverterManager, typeReferenceManager)
+    childElementBinderFields.forEach { adapterClassBuilder.addField(it) }
 
     adapterClassBuilder.addMethod(constructorBuilder.build())
-      .addMethod(generateFromXmlMethod(annotatedClass).build())
+      .addMethod(generateFromXmlMethod(annotatedClass, attributeDispatch, childElementDispatch).build())
       .addMethod(generateToXmlMethod(annotatedClass, codeGenUtils).build())
 
+    // Add the fields of all type adapters and type converters, once all of them have been requested by the code above
+    typeReferenceManager.generateFields(adapterClassBuilder)
+
     val packageElement = elementUtils.getPackageOf(annotatedClass.element)
     val packageName = if (packageElement.isUnnamed) "" else packageElement.qualifiedName.toString()
 
@@ -146,7 +191,7 @@ class TypeAdapterCodeGenerator(
    * Generates the fields
    */
   private fun generateFields(annotatedClass: AnnotatedClass, adapterClassBuilder: TypeSpec.Builder,
-    customTypeConverterManager: CustomTypeConverterManager) {
+    customTypeConverterManager: CustomTypeConverterManager, typeReferenceManager: TypeReferenceManager) {
 
     val targetClassToParseInto = getClassToParseInto(annotatedClass)
 
@@ -159,7 +204,17 @@ class TypeAdapterCodeGenerator(
       HashMap::class.java
     }
 
-    if (annotatedClass.hasAttributes()) {
+    if (switchDispatch) {
+      val optionsType = ClassName.get(XmlReader.Options::class.java)
+      if (annotatedClass.hasAttributes()) {
+        adapterClassBuilder.addField(optionsConstant(optionsType, ATTRIBUTE_NAMES, annotatedClass.attributes.keys))
+      }
+      if (annotatedClass.hasChildElements()) {
+        adapterClassBuilder.addField(optionsConstant(optionsType, ELEMENT_NAMES, annotatedClass.childElements.keys))
+      }
+    }
+
+    if (annotatedClass.hasAttributes() && !switchDispatch) {
       val attributeBinderMapField = ParameterizedTypeName.get(ClassName.get(java.util.Map::class.java),
         ClassName.get(String::class.java),
         ParameterizedTypeName.get(ClassName.get(AttributeBinder::class.java), targetClassToParseInto))
@@ -180,13 +235,16 @@ class TypeAdapterCodeGenerator(
       val childElementBinderHashMapField = ParameterizedTypeName.get(ClassName.get(mapImplClass),
         ClassName.get(String::class.java), childElementBinder)
 
-      adapterClassBuilder.addField(
-        FieldSpec.builder(childElementBinderMapField, CodeGeneratorHelper.childElementBindersParam, PRIVATE)
-          .initializer("new  \$T()", childElementBinderHashMapField)
-          .build())
+      if (!switchDispatch) {
+        adapterClassBuilder.addField(
+          FieldSpec.builder(childElementBinderMapField, CodeGeneratorHelper.childElementBindersParam, PRIVATE)
+            .initializer("new  \$T()", childElementBinderHashMapField)
+            .build())
+      }
 
       // create fields for generic types
-      generateGenericFields(annotatedClass, targetClassToParseInto, childElementBinder, adapterClassBuilder)
+      generateGenericFields(annotatedClass, targetClassToParseInto, childElementBinder, adapterClassBuilder,
+        typeReferenceManager)
     }
 
     // Add fields from TypeConverter
@@ -197,8 +255,23 @@ class TypeAdapterCodeGenerator(
     }
   }
 
+  /**
+   * Generates a constant with the [XmlReader.Options] for the given xml names. The index of a name is its case in the
+   * switch generated by [generateFromXmlMethod]
+   */
+  private fun optionsConstant(optionsType: ClassName, fieldName: String, xmlNames: Collection<String>): FieldSpec {
+    val names = CodeBlock.builder()
+    xmlNames.forEachIndexed { i, xmlName ->
+      names.add(if (i == 0) "\$S" else ", \$S", xmlName)
+    }
+    return FieldSpec.builder(optionsType, fieldName, PRIVATE, STATIC, FINAL)
+      .initializer("\$T.of(\$L)", optionsType, names.build())
+      .build()
+  }
+
   private fun generateGenericFields(annotatedClass: AnnotatedClass, targetClassToParseInto: ClassName,
-    childElementBinder: ParameterizedTypeName, adapterClassBuilder: TypeSpec.Builder) {
+    childElementBinder: ParameterizedTypeName, adapterClassBuilder: TypeSpec.Builder,
+    typeReferenceManager: TypeReferenceManager) {
     annotatedClass.getAllChildElementsRecursive()
       .filter { it is PolymorphicSubstitutionField || it is PolymorphicSubstitutionListField }
       .groupBy {
@@ -242,7 +315,7 @@ class TypeAdapterCodeGenerator(
               (typeUtils.asElement(
                 (concreteType as PolymorphicSubstitutionListField).typeMirror) as TypeElement).getXmlElementName() != concreteType.name.decapitalize(
                 Locale.GERMANY)
-            }, fromXmlMethodSpecBuilder, genericListType, "v", true, isRootList)
+            }, fromXmlMethodSpecBuilder, genericListType, "v", true, isRootList, typeReferenceManager)
 
             fromXmlMethodSpecBuilder
               .beginControlFlow("if (v != null)")
@@ -266,7 +339,8 @@ class TypeAdapterCodeGenerator(
               (typeUtils.asElement(
                 (concreteType as PolymorphicSubstitutionField).typeMirror) as TypeElement).getXmlElementName() != concreteType.name.decapitalize(
                 Locale.GERMANY)
-            }, fromXmlMethodSpecBuilder, genericType!!, "${CodeGeneratorHelper.valueParam}.$genericName", false, isRootList)
+            }, fromXmlMethodSpecBuilder, genericType!!, "${CodeGeneratorHelper.valueParam}.$genericName", false, isRootList,
+              typeReferenceManager)
             fieldName =
               "${(genericType as DeclaredType).asElement().simpleName.toString().decapitalize(Locale.GERMANY)}ChildElementBinder"
           }
@@ -294,7 +368,8 @@ class TypeAdapterCodeGenerator(
     genericType: TypeMirror,
     valueParam: String,
     isGenericList: Boolean,
-    isRootList: Boolean) {
+    isRootList: Boolean,
+    typeReferenceManager: TypeReferenceManager) {
 
 
 
@@ -333,13 +408,13 @@ class TypeAdapterCodeGenerator(
         if (isGenericList) {
           fromXmlMethodSpecBuilder
             .addStatement(
-              "$valueParam = (\$T) ${CodeGeneratorHelper.tikConfigParam}.getTypeAdapter(\$T.class).fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, ${!isRootList && !hasSpecialMapping})",
-              specialType, specialType)
+              "$valueParam = (\$T) ${typeReferenceManager.getTypeAdapter(ClassName.get(specialType))}.fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, ${!isRootList && !hasSpecialMapping})",
+              specialType)
         } else {
           fromXmlMethodSpecBuilder
             .addCode(firstConreteType.accessResolver.resolveAssignment(
-              "(\$T) ${CodeGeneratorHelper.tikConfigParam}.getTypeAdapter(\$T.class).fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)",
-              specialType, specialType))
+              "(\$T) ${typeReferenceManager.getTypeAdapter(ClassName.get(specialType))}.fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)",
+              specialType))
         }
       }
 
@@ -357,13 +432,13 @@ class TypeAdapterCodeGenerator(
     if (isGenericList) {
       fromXmlMethodSpecBuilder
         .addStatement(
-          "$valueParam = (\$T) ${CodeGeneratorHelper.tikConfigParam}.getTypeAdapter(\$T.class, true).fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, ${!isRootList && !hasSpecialMapping})",
-          genericType, genericType)
+          "$valueParam = (\$T) ${typeReferenceManager.getTypeAdapter(ClassName.get(genericType), true)}.fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, ${!isRootList && !hasSpecialMapping})",
+          genericType)
     } else {
       fromXmlMethodSpecBuilder
         .addCode(firstConreteType.accessResolver.resolveAssignment(
-          "(\$T) ${CodeGeneratorHelper.tikConfigParam}.getTypeAdapter(\$T.class, true).fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)",
-          genericType, genericType))
+          "(\$T) ${typeReferenceManager.getTypeAdapter(ClassName.get(genericType), true)}.fromXml(${CodeGeneratorHelper.readerParam}, ${CodeGeneratorHelper.tikConfigParam}, false)",
+          genericType))
     }
 
     if (hasSpecialMapping) {
@@ -371,16 +446,95 @@ class TypeAdapterCodeGenerator(
     }
   }
 
+  /**
+   * Adds a case for each of the given code blocks. The index of a code block is the index returned by the select methods
+   * of [XmlReader]
+   */
+  private fun addCases(builder: MethodSpec.Builder, cases: Collection<CodeBlock>, endElement: Boolean) {
+    cases.forEachIndexed { i, code ->
+      builder.addCode("case \$L: {\n\$>", i)
+        .addCode(code)
+      if (endElement) {
+        builder.addStatement("\$L.endElement()", CodeGeneratorHelper.readerParam)
+      }
+      builder.addStatement("break")
+        .addCode("\$<}\n")
+    }
+  }
+
+  /**
+   * Adds the code to read the name of a child element and to dispatch it to the code that reads the child element
+   */
+  private fun addChildElementDispatch(builder: MethodSpec.Builder, targetClassToParseInto: ClassName,
+    childElementDispatch: Map<String, CodeBlock>) {
+    val reader = CodeGeneratorHelper.readerParam
+    val config = CodeGeneratorHelper.tikConfigParam
+    val value = CodeGeneratorHelper.valueParam
+
+    builder.addStatement("\$L.beginElement()", reader)
+    if (switchDispatch) {
+      builder.beginControlFlow("switch (\$L.selectElementName(\$L))", reader, ELEMENT_NAMES)
+      addCases(builder, childElementDispatch.values, true)
+      builder.addCode("default: {\n\$>")
+        .addStatement("String elementName = \$L.nextElementName()", reader)
+        .beginControlFlow("if (\$L.exceptionOnUnreadXml())", config)
+    } else {
+      builder.addStatement("String elementName = \$L.nextElementName()", reader)
+        .addStatement("\$T childElementBinder = \$L.get(elementName)",
+          ParameterizedTypeName.get(ClassName.get(ChildElementBinder::class.java), targetClassToParseInto),
+          CodeGeneratorHelper.childElementBindersParam)
+        .beginControlFlow("if (childElementBinder != null)")
+        .addStatement("childElementBinder.fromXml(\$L, \$L, \$L)", reader, config, value)
+        .addStatement("\$L.endElement()", reader)
+        .nextControlFlow("else if (\$L.exceptionOnUnreadXml())", config)
+    }
+    builder.addStatement("throw new \$T(\$S + \$L + \$S + \$L.getPath()+\$S)", IOException::class.java,
+      "Could not map the xml element with the tag name <", "elementName", "> at path '",
+      reader,
+      "' to java class. Have you annotated such a field in your java class to map this xml attribute? Otherwise you can turn this error message off with TikXml.Builder().exceptionOnUnreadXml(false).build().")
+      .nextControlFlow("else")
+      .addStatement("\$L.skipRemainingElement()", reader)
+      .endControlFlow() // end else skip remaining element
+    if (switchDispatch) {
+      builder.addCode("\$<}\n") // end default
+        .endControlFlow() // end switch
+    }
+  }
+
   /**
    * Generates the method to parse xml.
+   *
+   * @param attributeDispatch The code to read each attribute, only used with [switchDispatch]
+   * @param childElementDispatch The code to read each child element, only used with [switchDispatch]
    */
-  private fun generateFromXmlMethod(annotatedClass: AnnotatedClass): MethodSpec.Builder {
+  private fun generateFromXmlMethod(annotatedClass: AnnotatedClass, attributeDispatch: Map<String, CodeBlock>,
+    childElementDispatch: Map<String, CodeBlock>): MethodSpec.Builder {
     val reader = CodeGeneratorHelper.readerParam
     val config = CodeGeneratorHelper.tikConfigParam
     val value = CodeGeneratorHelper.valueParam
     val targetClassToParseInto = getClassToParseInto(annotatedClass)
     val textContentStringBuilder = "textContentBuilder"
 
+    // ByteString text content is collected in a okio.Buffer without decoding it, LargeText is streamed into a LargeText.Builder
+    val textContentType = annotatedClass.textContentField?.element?.asType()
+    val textContentBuilderType = when {
+      textContentType?.isByteString() == true -> ClassName.get("okio", "Buffer")
+      textContentType?.isLargeText() == true -> ClassName.get(LargeText.Builder::class.java)
+      else -> ClassName.get(StringBuilder::class.java)
+    }
+    val textContentBuilderArgs =
+      if (textContentType?.isLargeText() == true) "$config.largeTextThreshold(), $config.largeTextDirectory()" else ""
+    val appendTextContent = when {
+      textContentType?.isByteString() == true -> "\$L.write(\$L.nextTextContentAsByteString())"
+      textContentType?.isLargeText() == true -> "\$2L.nextTextContent(\$1L)"
+      else -> "\$L.append(\$L.nextTextContent())"
+    }
+    val builtTextContent = when {
+      textContentType?.isByteString() == true -> "readByteString()"
+      textContentType?.isLargeText() == true -> "build()"
+      else -> "toString()"
+    }
+
     val builder = MethodSpec.methodBuilder("fromXml")
       .returns(ClassName.get(annotatedClass.element))
       .addModifiers(PUBLIC)
@@ -393,13 +547,45 @@ class TypeAdapterCodeGenerator(
 
 
     if (annotatedClass.hasTextContent()) {
-      builder.addStatement("\$T \$L = new \$T()", StringBuilder::class.java, textContentStringBuilder, StringBuilder::class.java)
+      builder.addStatement("\$T \$L = new \$T(\$L)", textContentBuilderType, textContentStringBuilder, textContentBuilderType,
+        textContentBuilderArgs)
+    }
+
+    // A LargeText may spill into a temporary file, which has to be deleted if reading fails
+    val discardTextContentOnError = textContentType?.isLargeText() == true
+    val largeTextPropertyFields = largeTextPropertyFields(annotatedClass)
+    if (discardTextContentOnError || largeTextPropertyFields.isNotEmpty()) {
+      builder.beginControlFlow("try")
     }
 
     //
     // Read attributes
     //
-    if (annotatedClass.hasAttributes()) {
+    if (annotatedClass.hasAttributes() && switchDispatch) {
+      // consume attributes
+      builder.beginControlFlow("while(\$L.hasAttribute())", reader)
+        .beginControlFlow("switch (\$L.selectAttributeName(\$L))", reader, ATTRIBUTE_NAMES)
+      addCases(builder, attributeDispatch.values, false)
+      builder.addCode("default: {\n\$>")
+        .beginControlFlow("if (\$L.exceptionOnUnreadXml())", config)
+        .addStatement("String attributeName = \$L.nextAttributeName()", reader)
+        .beginControlFlow("if (!attributeName.startsWith(\$S))", namespaceDefinitionPrefix)
+        .addStatement("throw new \$T(\$S+attributeName+\$S+\$L.getPath()+\$S)", IOException::class.java,
+          "Could not map the xml attribute with the name '",
+          "' at path ",
+          reader,
+          " to java class. Have you annotated such a field in your java class to map this xml attribute? Otherwise you can turn this error message off with TikXml.Builder().exceptionOnUnreadXml(false).build().")
+        .endControlFlow() // End if
+        .addStatement("\$L.skipAttributeValue()", reader)
+        .nextControlFlow("else")
+        // Unknown attributes are skipped without decoding their names
+        .addStatement("\$L.skipAttribute()", reader)
+        .endControlFlow()
+        .addCode("\$<}\n") // end default
+        .endControlFlow() // end switch
+        .endControlFlow() // end while hasAttribute()
+
+    } else if (annotatedClass.hasAttributes()) {
       // consume attributes
       builder.beginControlFlow("while(\$L.hasAttribute())", reader)
         .addStatement("String attributeName = \$L.nextAttributeName()", reader)
@@ -421,9 +607,10 @@ class TypeAdapterCodeGenerator(
 
     } else {
       // Skip attributes if there are any
-      builder.beginControlFlow("while(\$L.hasAttribute())", reader)
+      builder.beginControlFlow("if (\$L.exceptionOnUnreadXml())", config)
+        .beginControlFlow("while(\$L.hasAttribute())", reader)
         .addStatement("String attributeName = \$L.nextAttributeName()", reader)
-        .beginControlFlow("if (\$L.exceptionOnUnreadXml() && !attributeName.startsWith(\$S))", config, namespaceDefinitionPrefix)
+        .beginControlFlow("if (!attributeName.startsWith(\$S))", namespaceDefinitionPrefix)
         .addStatement("throw new \$T(\$S+attributeName+\$S+\$L.getPath()+\$S)", IOException::class.java,
           "Could not map the xml attribute with the name '",
           "' at path ",
@@ -431,6 +618,9 @@ class TypeAdapterCodeGenerator(
           " to java class. Have you annotated such a field in your java class to map this xml attribute? Otherwise you can turn this error message off with TikXml.Builder().exceptionOnUnreadXml(false).build().")
         .endControlFlow()
         .addStatement("\$L.skipAttributeValue()", reader)
+        .endControlFlow() // end while hasAttribute()
+        .nextControlFlow("else")
+        .addStatement("\$L.skipRemainingAttributes()", reader)
         .endControlFlow()
     }
 
@@ -442,27 +632,12 @@ class TypeAdapterCodeGenerator(
       builder.beginControlFlow("while(true)")
         .beginControlFlow("if (\$L.hasElement())", reader)
 
-        .addStatement("\$L.beginElement()", reader)
-        .addStatement("String elementName = \$L.nextElementName()", reader)
-        .addStatement("\$T childElementBinder = \$L.get(elementName)",
-          ParameterizedTypeName.get(ClassName.get(ChildElementBinder::class.java), targetClassToParseInto),
-          CodeGeneratorHelper.childElementBindersParam)
-        .beginControlFlow("if (childElementBinder != null)")
-        .addStatement("childElementBinder.fromXml(\$L, \$L, \$L)", reader, config, value)
-        .addStatement("\$L.endElement()", reader)
-        .nextControlFlow("else if (\$L.exceptionOnUnreadXml())", config)
-        .addStatement("throw new \$T(\$S + \$L + \$S + \$L.getPath()+\$S)", IOException::class.java,
-          "Could not map the xml element with the tag name <", "elementName", "> at path '",
-          reader,
-          "' to java class. Have you annotated such a field in your java class to map this xml attribute? Otherwise you can turn this error message off with TikXml.Builder().exceptionOnUnreadXml(false).build().")
-        .nextControlFlow("else")
-        .addStatement("\$L.skipRemainingElement()", reader)
-        .endControlFlow() // end else skip remaining element
+      addChildElementDispatch(builder, targetClassToParseInto, childElementDispatch)
 
-        .nextControlFlow("else if (\$L.hasTextContent())", reader)
+      builder.nextControlFlow("else if (\$L.hasTextContent())", reader)
 
       if (annotatedClass.hasTextContent()) {
-        builder.addStatement("\$L.append(\$L.nextTextContent())", textContentStringBuilder, reader)
+        builder.addStatement(appendTextContent, textContentStringBuilder, reader)
       } else {
         builder.beginControlFlow("if (\$L.exceptionOnUnreadXml())", config)
           .addStatement("throw new \$T(\$S+\$L.getPath()+\$S)", IOException::class.java,
@@ -483,24 +658,9 @@ class TypeAdapterCodeGenerator(
       builder.beginControlFlow("while(true)")
         .beginControlFlow("if (\$L.hasElement())", reader)
 
-        .addStatement("\$L.beginElement()", reader)
-        .addStatement("String elementName = \$L.nextElementName()", reader)
-        .addStatement("\$T childElementBinder = \$L.get(elementName)",
-          ParameterizedTypeName.get(ClassName.get(ChildElementBinder::class.java), targetClassToParseInto),
-          CodeGeneratorHelper.childElementBindersParam)
-        .beginControlFlow("if (childElementBinder != null)")
-        .addStatement("childElementBinder.fromXml(\$L, \$L, \$L)", reader, config, value)
-        .addStatement("\$L.endElement()", reader)
-        .nextControlFlow("else if (\$L.exceptionOnUnreadXml())", config)
-        .addStatement("throw new \$T(\$S + \$L + \$S + \$L.getPath()+\$S)", IOException::class.java,
-          "Could not map the xml element with the tag name <", "elementName", "> at path '",
-          reader,
-          "' to java class. Have you annotated such a field in your java class to map this xml attribute? Otherwise you can turn this error message off with TikXml.Builder().exceptionOnUnreadXml(false).build().")
-        .nextControlFlow("else")
-        .addStatement("\$L.skipRemainingElement()", reader)
-        .endControlFlow() // end else skip remaining element
+      addChildElementDispatch(builder, targetClassToParseInto, childElementDispatch)
 
-        .nextControlFlow("else if (\$L.hasTextContent())", reader)
+      builder.nextControlFlow("else if (\$L.hasTextContent())", reader)
         .beginControlFlow("if (\$L.exceptionOnUnreadXml())", config)
         .addStatement("throw new \$T(\$S+\$L.getPath()+\$S)", IOException::class.java,
           "Could not map the xml element's text content at path '",
@@ -530,7 +690,7 @@ class TypeAdapterCodeGenerator(
         .endControlFlow() // end else skip remaining element
 
         .nextControlFlow("else if (\$L.hasTextContent())", reader)
-        .addStatement("\$L.append(\$L.nextTextContent())", textContentStringBuilder, reader)
+        .addStatement(appendTextContent, textContentStringBuilder, reader)
 
         .nextControlFlow("else")
         .addStatement("break") // quite while loop
@@ -570,10 +730,26 @@ class TypeAdapterCodeGenerator(
     // assign Text Content
     if (annotatedClass.hasTextContent()) {
       val field = annotatedClass.textContentField!!
-      builder.addCode(field.accessResolver.resolveAssignment("$textContentStringBuilder.toString()"))
+      builder.addCode(field.accessResolver.resolveAssignment("$textContentStringBuilder.$builtTextContent"))
       // TODO constructor support
     }
 
+    if (discardTextContentOnError || largeTextPropertyFields.isNotEmpty()) {
+      builder.nextControlFlow("catch (\$T t)", Throwable::class.java)
+      if (discardTextContentOnError) {
+        builder.addStatement("\$L.discard()", textContentStringBuilder)
+      }
+      // Property elements read before the failure have been assigned already
+      for (field in largeTextPropertyFields) {
+        val getter = field.accessResolver.resolveGetterForReadingXml()
+        builder.beginControlFlow("if (\$L != null)", getter)
+          .addStatement("\$L.close()", getter)
+          .endControlFlow()
+      }
+      builder.addStatement("throw t")
+        .endControlFlow()
+    }
+
     val annotatedConstructor = annotatedClass.annotatedConstructor
     if (annotatedConstructor != null) {
       val stringBuilder = StringBuilder("return new \$T(");
@@ -591,6 +767,14 @@ class TypeAdapterCodeGenerator(
     return builder;
   }
 
+  /**
+   * Collects the [LargeText] fields annotated with @PropertyElement, including the ones nested in a @Path
+   */
+  private fun largeTextPropertyFields(xmlElement: XmlElement): List<PropertyField> =
+    xmlElement.childElements.values.flatMap {
+      if (it is PropertyField && it.element.asType().isLargeText()) listOf(it) else largeTextPropertyFields(it)
+    }
+
   /**
    * Generates the method that is responsible to a object as xml
    */
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Hannes Dorfmann
+ * Copyright (C) 2015 Tickaroo, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.tickaroo.tikxml.processor.generator
+
+import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.FieldSpec
+import com.squareup.javapoet.ParameterizedTypeName
+import com.squareup.javapoet.TypeName
+import com.squareup.javapoet.TypeSpec
+import com.tickaroo.tikxml.typeadapter.TypeAdapterReference
+import com.tickaroo.tikxml.typeadapter.TypeConverterReference
+import java.util.LinkedHashMap
+import javax.lang.model.element.Modifier.FINAL
+import javax.lang.model.element.Modifier.PRIVATE
+import javax.lang.model.util.Elements
+
+/**
+ * Manages the fields of a generated type adapter that hold a [TypeAdapterReference] or a [TypeConverterReference].
+ * A child type adapter or type converter is resolved once through such a field instead of looking it up in the
+ * TikXmlConfig for every xml element or attribute.
+ */
+class TypeReferenceManager(private val elementUtils: Elements) {
+
+  private class ConverterReference(val fieldName: String, val classLiteral: String, val type: TypeName)
+
+  /**
+   * Map from the type (and whether the generic type adapter is requested) to java field name
+   */
+  private val typeAdapterMap = LinkedHashMap<Pair<TypeName, Boolean>, String>()
+
+  /**
+   * Map from the qualified class name to the field of a type converter
+   */
+  private val typeConverterMap = LinkedHashMap<String, ConverterReference>()
+
+  private var typeAdapterFieldNameCounter = 1
+  private var typeConverterFieldNameCounter = 1
+
+  /**
+   * Get the java expression that resolves the type adapter for the given type
+   */
+  fun getTypeAdapter(type: TypeName, generic: Boolean = false): String {
+    val fieldName = typeAdapterMap.getOrPut(Pair(type, generic)) {
+      "typeAdapterReference${typeAdapterFieldNameCounter++}"
+    }
+    return "$fieldName.get(${CodeGeneratorHelper.tikConfigParam})"
+  }
+
+  /**
+   * Get the java expression that resolves the type converter for the given qualified class name (or primitive type).
+   * If the class can't be resolved (i.e. an array type) the type converter is looked up in the TikXmlConfig.
+   */
+  fun getTypeConverter(className: String): String {
+    val reference = typeConverterMap[className] ?: run {
+      val type = primitiveTypes[className]
+        ?: elementUtils.getTypeElement(className)?.let { ClassName.get(it) }
+        ?: return "${CodeGeneratorHelper.tikConfigParam}.getTypeConverter($className.class)"
+      ConverterReference("typeConverterReference${typeConverterFieldNameCounter++}", className, type).also {
+        typeConverterMap[className] = it
+      }
+    }
+    return "${reference.fieldName}.get(${CodeGeneratorHelper.tikConfigParam})"
+  }
+
+  /**
+   * Adds the fields for all type adapters and type converters that have been requested so far
+   */
+  fun generateFields(adapterClassBuilder: TypeSpec.Builder) {
+    for ((key, fieldName) in typeAdapterMap) {
+      val (type, generic) = key
+      val rawType = if (type is ParameterizedTypeName) type.rawType else type
+      val fieldType = ParameterizedTypeName.get(ClassName.get(TypeAdapterReference::class.java), type)
+      adapterClassBuilder.addField(
+        FieldSpec.builder(fieldType, fieldName, PRIVATE, FINAL)
+          .initializer("new \$T(\$T.class, \$L)", fieldType, rawType, generic)
+          .build())
+    }
+
+    for (reference in typeConverterMap.values) {
+      val fieldType = ParameterizedTypeName.get(ClassName.get(TypeConverterReference::class.java), reference.type)
+      adapterClassBuilder.addField(
+        FieldSpec.builder(fieldType, reference.fieldName, PRIVATE, FINAL)
+          .initializer("new \$T(${reference.classLiteral}.class)", fieldType)
+          .build())
+    }
+  }
+
+  private companion object {
+    val primitiveTypes = mapOf<String, TypeName>(
+      "boolean" to TypeName.BOOLEAN.box(),
+      "byte" to TypeName.BYTE.box(),
+      "short" to TypeName.SHORT.box(),
+      "int" to TypeName.INT.box(),
+      "long" to TypeName.LONG.box(),
+      "char" to TypeName.CHAR.box(),
+      "float" to TypeName.FLOAT.box(),
+      "double" to TypeName.DOUBLE.box()
+    )
+  }
+}
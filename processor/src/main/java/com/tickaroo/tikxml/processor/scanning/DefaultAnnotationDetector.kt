@@ -19,6 +19,7 @@
 package com.tickaroo.tikxml.processor.scanning
 
 import com.tickaroo.tikxml.annotation.Attribute
+import com.tickaroo.tikxml.annotation.BinaryEncoding
 import com.tickaroo.tikxml.annotation.Element
 import com.tickaroo.tikxml.annotation.ElementNameMatcher
 import com.tickaroo.tikxml.annotation.GenericAdapter
@@ -44,8 +45,11 @@ import com.tickaroo.tikxml.processor.utils.hasMinimumPackageVisibilityModifiers
 import com.tickaroo.tikxml.processor.utils.hasSuperClass
 import com.tickaroo.tikxml.processor.utils.hasTikXmlAnnotation
 import com.tickaroo.tikxml.processor.utils.isAbstract
+import com.tickaroo.tikxml.processor.utils.isByteArray
+import com.tickaroo.tikxml.processor.utils.isByteString
 import com.tickaroo.tikxml.processor.utils.isClass
 import com.tickaroo.tikxml.processor.utils.isInterface
+import com.tickaroo.tikxml.processor.utils.isLargeText
 import com.tickaroo.tikxml.processor.utils.isList
 import com.tickaroo.tikxml.processor.utils.isPrivate
 import com.tickaroo.tikxml.processor.utils.isProtected
@@ -93,9 +97,9 @@ open class DefaultAnnotationDetector(protected val elementUtils: Elements, prote
 
   override fun isXmlTextContent(element: VariableElement): TextContentField? =
     if (isTextContentAnnotated(element) && isXmlField(element) == null) {
-      if (!element.asType().isString()) {
+      if (!element.asType().isString() && !element.asType().isByteString() && !element.asType().isLargeText()) {
         throw ProcessingException(element,
-          "Only type String is supported for @${TextContent::class.simpleName} but field '$element' in class ${element.getSurroundingClassQualifiedName()} is not of type String")
+          "Only type String, okio.ByteString or LargeText is supported for @${TextContent::class.simpleName} but field '$element' in class ${element.getSurroundingClassQualifiedName()} is not of type String, okio.ByteString or LargeText")
       }
 
       val annotation = element.getAnnotation(TextContent::class.java)
@@ -157,10 +161,24 @@ open class DefaultAnnotationDetector(protected val elementUtils: Elements, prote
 
     if (propertyAnnotation != null) {
       val converterChecker = PropertyElementConverterChecker()
+      val converterQualifiedName = converterChecker.getQualifiedConverterName(element, propertyAnnotation)
+      val binaryEncoding = propertyAnnotation.binaryEncoding
+      if (binaryEncoding != BinaryEncoding.NONE) {
+        if (!element.asType().isByteArray() && !element.asType().isByteString()) {
+          throw ProcessingException(element,
+            "Only type byte[] or okio.ByteString is supported for @${PropertyElement::class.simpleName}(binaryEncoding = $binaryEncoding) but field '$element' in class ${element.getSurroundingClassQualifiedName()} is of type ${element.asType()}")
+        }
+        if (converterQualifiedName != null) {
+          throw ProcessingException(element,
+            "A converter and a binaryEncoding can't be used together on field '$element' in class ${element.getSurroundingClassQualifiedName()}. Use either @${PropertyElement::class.simpleName}(converter = ...) or @${PropertyElement::class.simpleName}(binaryEncoding = ...)")
+        }
+      }
+
       return PropertyField(element,
         nameFromAnnotationOrField(propertyAnnotation.name, element),
         propertyAnnotation.writeAsCData,
-        converterChecker.getQualifiedConverterName(element, propertyAnnotation))
+        converterQualifiedName,
+        binaryEncoding)
     }
 
     if (elementAnnotation != null) {
@@ -22,11 +22,19 @@ import com.google.common.truth.Truth
 import com.google.testing.compile.JavaFileObjects
 import com.google.testing.compile.JavaSourceSubjectFactory
 import com.google.testing.compile.JavaSourcesSubject
+import com.google.testing.compile.JavaSourcesSubjectFactory
+import com.tickaroo.tikxml.annotation.Attribute
+import com.tickaroo.tikxml.annotation.Element
 import com.tickaroo.tikxml.annotation.GenericAdapter
+import com.tickaroo.tikxml.annotation.Path
+import com.tickaroo.tikxml.annotation.PropertyElement
+import com.tickaroo.tikxml.annotation.TextContent
 import com.tickaroo.tikxml.annotation.Xml
 import org.junit.Test
 import javax.tools.JavaFileObject
+import javax.tools.StandardLocation
 import kotlin.test.assertEquals
+import kotlin.test.assertTrue
 
 /**
  *
@@ -139,4 +147,131 @@ class XmlProcessorTest {
       .failsToCompile()
       .withErrorContaining("Only interfaces and abstract classes can be annotated with @${GenericAdapter::class.java.simpleName}! Please remove @${GenericAdapter::class.java.simpleName} from test.ConcreteClass!")
   }
-}
\ No newline at end of file
+
+  @Test
+  fun adapterIndex() {
+    val animalFile = JavaFileObjects.forSourceLines("test.Animal",
+      "package test;",
+      "@${GenericAdapter::class.qualifiedName}",
+      "public interface Animal {}")
+
+    val dogFile = JavaFileObjects.forSourceLines("test.Dog",
+      "package test;",
+      "@${Xml::class.qualifiedName}",
+      "public class Dog implements Animal {}")
+
+    val expectedIndex = JavaFileObjects.forSourceLines("test.TestAdapterIndex",
+      "package test;",
+      "import com.tickaroo.tikxml.typeadapter.TypeAdapter;",
+      "import com.tickaroo.tikxml.typeadapter.TypeAdapterIndex;",
+      "import java.lang.Class;",
+      "import java.lang.Override;",
+      "public final class TestAdapterIndex implements TypeAdapterIndex {",
+      "  @Override",
+      "  public TypeAdapter<?> newTypeAdapter(Class<?> clazz, boolean generic) {",
+      "    if (generic) {",
+      "      switch (clazz.getName()) {",
+      "        case \"test.Animal\": return new Animal\$\$TypeAdapterGeneric();",
+      "        default: return null;",
+      "      }",
+      "    }",
+      "    switch (clazz.getName()) {",
+      "      case \"test.Dog\": return new Dog\$\$TypeAdapter();",
+      "      default: return null;",
+      "    }",
+      "  }",
+      "}")
+
+    Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+      .that(listOf(animalFile, dogFile))
+      .withCompilerOptions("-Atikxml.adapterIndex=test.TestAdapterIndex")
+      .processedWith(XmlProcessor())
+      .compilesWithoutError()
+      .and()
+      .generatesSources(expectedIndex)
+      .and()
+      .generatesFileNamed(StandardLocation.CLASS_OUTPUT, "",
+        "META-INF/services/com.tickaroo.tikxml.typeadapter.TypeAdapterIndex")
+  }
+
+  @Test
+  fun noAdapterIndexByDefault() {
+    val componentFile = JavaFileObjects.forSourceLines("test.Dog",
+      "package test;",
+      "@${Xml::class.qualifiedName}",
+      "public class Dog {}")
+
+    Truth.assertAbout<JavaSourcesSubject.SingleSourceAdapter, JavaFileObject>(JavaSourceSubjectFactory.javaSource())
+      .that(componentFile).processedWith(XmlProcessor())
+      .compilesWithoutError()
+
+    val processor = XmlProcessor()
+    assertTrue(processor.supportedOptions.contains("org.gradle.annotation.processing.isolating"))
+  }
+
+  @Test
+  fun typeReferencesCompile() {
+    val childFile = JavaFileObjects.forSourceLines("test.Child",
+      "package test;",
+      "@${Xml::class.qualifiedName}",
+      "public class Child {}")
+
+    val parentFile = JavaFileObjects.forSourceLines("test.Parent",
+      "package test;",
+      "@${Xml::class.qualifiedName}",
+      "public class Parent {",
+      "  @${Attribute::class.qualifiedName} java.util.Date date;",
+      "  @${Attribute::class.qualifiedName} int count;",
+      "  @${PropertyElement::class.qualifiedName} java.util.Date created;",
+      "  @${Element::class.qualifiedName} Child child;",
+      "  @${Element::class.qualifiedName}(name = \"children\") java.util.List<Child> children;",
+      "}")
+
+    Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+      .that(listOf(childFile, parentFile))
+      .withCompilerOptions("-AprimitiveTypeConverters=int")
+      .processedWith(XmlProcessor())
+      .compilesWithoutError()
+  }
+
+  @Test
+  fun switchDispatch() {
+    val animalFile = JavaFileObjects.forSourceLines("test.Animal",
+      "package test;",
+      "@${GenericAdapter::class.qualifiedName}",
+      "public interface Animal {}")
+
+    val dogFile = JavaFileObjects.forSourceLines("test.Dog",
+      "package test;",
+      "@${Xml::class.qualifiedName}",
+      "public class Dog implements Animal {",
+      "  @${Attribute::class.qualifiedName} String name;",
+      "}")
+
+    val keeperFile = JavaFileObjects.forSourceLines("test.Keeper",
+      "package test;",
+      "@${Xml::class.qualifiedName}",
+      "public class Keeper {}")
+
+    val zooFile = JavaFileObjects.forSourceLines("test.Zoo",
+      "package test;",
+      "@${Xml::class.qualifiedName}",
+      "public class Zoo {",
+      "  @${Attribute::class.qualifiedName} int id;",
+      "  @${Path::class.qualifiedName}(\"address\") @${PropertyElement::class.qualifiedName} String street;",
+      "  @${PropertyElement::class.qualifiedName} java.util.Date opened;",
+      "  @${Element::class.qualifiedName} Keeper keeper;",
+      "  @${Element::class.qualifiedName}(name = \"animals\") java.util.List<Animal> animals;",
+      "  @${TextContent::class.qualifiedName} String description;",
+      "}")
+
+    Truth.assertAbout(JavaSourcesSubjectFactory.javaSources())
+      .that(listOf(animalFile, dogFile, keeperFile, zooFile))
+      .withCompilerOptions("-Atikxml.switchDispatch=true")
+      .processedWith(XmlProcessor())
+      .compilesWithoutError()
+
+    val processor = XmlProcessor()
+    assertTrue(processor.supportedOptions.contains("tikxml.switchDispatch"))
+  }
+}
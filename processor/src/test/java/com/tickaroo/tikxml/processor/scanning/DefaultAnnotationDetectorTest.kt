@@ -24,6 +24,7 @@ import com.google.testing.compile.JavaSourceSubjectFactory
 import com.google.testing.compile.JavaSourcesSubject
 import com.google.testing.compile.JavaSourcesSubjectFactory
 import com.tickaroo.tikxml.annotation.Attribute
+import com.tickaroo.tikxml.annotation.BinaryEncoding
 import com.tickaroo.tikxml.annotation.Element
 import com.tickaroo.tikxml.annotation.ElementNameMatcher
 import com.tickaroo.tikxml.annotation.GenericAdapter
@@ -1259,7 +1260,28 @@ class DefaultAnnotationDetectorTest {
       .that(componentFile).processedWith(XmlProcessor())
       .failsToCompile()
       .withErrorContaining(
-        "Only type String is supported for @TextContent but field 'foo' in class test.TextContentOnNotString is not of type String")
+        "Only type String, okio.ByteString or LargeText is supported for @TextContent but field 'foo' in class test.TextContentOnNotString is not of type String, okio.ByteString or LargeText")
+  }
+
+  @Test
+  fun binaryEncodingOnNotByteArrayField() {
+    val componentFile = JavaFileObjects.forSourceLines("test.BinaryEncodingOnString",
+      "package test;",
+      "",
+      "@${Xml::class.java.canonicalName}",
+      "class BinaryEncodingOnString {",
+      "   @${PropertyElement::class.qualifiedName}(binaryEncoding = ${BinaryEncoding::class.qualifiedName}.BASE64)",
+      "   String foo;",
+      "",
+      "}"
+    )
+
+
+    Truth.assertAbout<JavaSourcesSubject.SingleSourceAdapter, JavaFileObject>(JavaSourceSubjectFactory.javaSource())
+      .that(componentFile).processedWith(XmlProcessor())
+      .failsToCompile()
+      .withErrorContaining(
+        "Only type byte[] or okio.ByteString is supported for @PropertyElement(binaryEncoding = BASE64) but field 'foo' in class test.BinaryEncodingOnString is of type java.lang.String")
   }
 
   @Test
@@ -18,6 +18,7 @@
 
 package com.tickaroo.tikxml.retrofit;
 
+import com.tickaroo.tikxml.Compression;
 import com.tickaroo.tikxml.TikXml;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
@@ -25,6 +26,7 @@ import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
 import retrofit2.Retrofit;
+import retrofit2.http.Headers;
 
 /**
  * {@linkplain Converter.Factory} for serializing and deserializing xml to java objects and vice
@@ -34,6 +36,12 @@ import retrofit2.Retrofit;
  * instance or use {@link #create(TikXml)} and pass your customized and properly configured {@link
  * TikXml} instance that should be used for this converter.
  *
+ * <p>Request bodies are compressed if the service method declares a {@code Content-Encoding}
+ * header with {@link Headers}, i.e. {@code @Headers("Content-Encoding: gzip")} ({@code gzip} and
+ * {@code deflate} are supported, request bodies of other content encodings are not compressed by
+ * this converter). Use {@link TikXml.Builder#decompressInput(boolean)} to
+ * decompress compressed response bodies that are not decompressed by OkHttp.
+ *
  * @author Hannes Dorfmann
  * @since 1.0
  */
@@ -71,6 +79,36 @@ public final class TikXmlConverterFactory extends Converter.Factory {
   @Override
   public Converter<?, RequestBody> requestBodyConverter(Type type,
       Annotation[] parameterAnnotations, Annotation[] methodAnnotations, Retrofit retrofit) {
-    return new TikXmlRequestBodyConverter<>(tikXml);
+    return new TikXmlRequestBodyConverter<>(tikXml, contentEncoding(methodAnnotations));
+  }
+
+  /**
+   * Finds the compression of the request body declared by a {@code Content-Encoding} header of
+   * the {@link Headers} annotation
+   *
+   * @return The compression or null if the request body should not be compressed, also for content
+   * encodings other than {@code gzip} and {@code deflate} (like {@code identity})
+   */
+  private static Compression contentEncoding(Annotation[] methodAnnotations) {
+    for (Annotation annotation : methodAnnotations) {
+      if (!(annotation instanceof Headers)) {
+        continue;
+      }
+      for (String header : ((Headers) annotation).value()) {
+        int colon = header.indexOf(':');
+        if (colon == -1
+            || !header.substring(0, colon).trim().equalsIgnoreCase("Content-Encoding")) {
+          continue;
+        }
+        String encoding = header.substring(colon + 1).trim();
+        if (encoding.equalsIgnoreCase("gzip")) {
+          return Compression.GZIP;
+        } else if (encoding.equalsIgnoreCase("deflate")) {
+          return Compression.DEFLATE;
+        }
+        return null;
+      }
+    }
+    return null;
   }
 }
@@ -18,6 +18,7 @@
 
 package com.tickaroo.tikxml.retrofit;
 
+import com.tickaroo.tikxml.Compression;
 import com.tickaroo.tikxml.TikXml;
 import java.io.IOException;
 import okhttp3.MediaType;
@@ -35,14 +36,23 @@ final class TikXmlRequestBodyConverter<T> implements Converter<T, RequestBody> {
 
   private static final MediaType MEDIA_TYPE = MediaType.parse("application/xml; charset=UTF-8");
   private final TikXml tikXml;
+  private final Compression compression;
 
-  TikXmlRequestBodyConverter(TikXml tikXml) {
+  /**
+   * @param compression The compression of the request body or null if not compressed
+   */
+  TikXmlRequestBodyConverter(TikXml tikXml, Compression compression) {
     this.tikXml = tikXml;
+    this.compression = compression;
   }
 
   @Override public RequestBody convert(T value) throws IOException {
     Buffer buffer = new Buffer();
-    tikXml.write(buffer, value);
+    if (compression != null) {
+      tikXml.write(buffer, value, compression);
+    } else {
+      tikXml.write(buffer, value);
+    }
     return RequestBody.create(MEDIA_TYPE, buffer.readByteString());
   }
 }
@@ -22,11 +22,14 @@ import java.io.IOException;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.GzipSource;
+import okio.Okio;
 import org.junit.*;
 import retrofit2.Call;
 import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.http.Body;
+import retrofit2.http.Headers;
 import retrofit2.http.POST;
 
 /**
@@ -38,6 +41,12 @@ public class TikXmlConverterFactoryTest {
 
   interface Service {
     @POST("/") Call<Person> postPerson(@Body Person aPerson);
+
+    @Headers("Content-Encoding: gzip")
+    @POST("/") Call<Person> postGzipPerson(@Body Person aPerson);
+
+    @Headers("Content-Encoding: identity")
+    @POST("/") Call<Person> postIdentityPerson(@Body Person aPerson);
   }
 
   private Service service;
@@ -67,4 +76,34 @@ public class TikXmlConverterFactoryTest {
     Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><person><name>outgoingName</name></person>", request.getBody().readUtf8());
     Assert.assertEquals("application/xml; charset=UTF-8", request.getHeader("Content-Type"));
   }
+
+  @Test
+  public void gzipRequestBody() throws InterruptedException, IOException {
+    server.enqueue(new MockResponse().setBody("<person><name>Hannes</name></person>"));
+
+    Person person = new Person();
+    person.name = "outgoingName";
+    Response<Person> response = service.postGzipPerson(person).execute();
+    Assert.assertEquals("Hannes", response.body().name);
+
+    RecordedRequest request = server.takeRequest();
+    Assert.assertEquals("gzip", request.getHeader("Content-Encoding"));
+    Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><person><name>outgoingName</name></person>",
+        Okio.buffer(new GzipSource(request.getBody())).readUtf8());
+  }
+
+  @Test
+  public void otherContentEncodingIsNotCompressed() throws InterruptedException, IOException {
+    server.enqueue(new MockResponse().setBody("<person><name>Hannes</name></person>"));
+
+    Person person = new Person();
+    person.name = "outgoingName";
+    Response<Person> response = service.postIdentityPerson(person).execute();
+    Assert.assertEquals("Hannes", response.body().name);
+
+    RecordedRequest request = server.takeRequest();
+    Assert.assertEquals("identity", request.getHeader("Content-Encoding"));
+    Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><person><name>outgoingName</name></person>",
+        request.getBody().readUtf8());
+  }
 }